@@ -0,0 +1,25 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.6.8"
+}
+
+dependencies {
+    val gdxVersion: String by project
+
+    jmh(project(":lib"))
+
+    jmh("com.badlogicgames.gdx:gdx:$gdxVersion")
+    jmh("com.badlogicgames.gdx:gdx-backend-headless:$gdxVersion")
+    jmh("com.badlogicgames.gdx:gdx-platform:$gdxVersion:natives-desktop")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+jmh {
+    jmhVersion.set("1.36")
+    resultFormat.set("JSON")
+    jvmArgsAppend.add("-Dmsdfgdx.assets=" + rootProject.file("test/assets").absolutePath)
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.benchmarks;
+
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Array;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfBatch;
+import com.maltaisn.msdfgdx.widget.MsdfLabel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Drawing a frame of laid out labels, with a {@link SpriteBatch}, where the shader is changed for
+ * every label, and with a {@link MsdfBatch}, where the style is passed per vertex.
+ * The GL is mocked, so this measures the CPU time spent submitting vertices and changing state.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int labelCount;
+
+    @Param({"sprite", "msdf"})
+    public String batchType;
+
+    private Skin skin;
+    private Batch batch;
+    private final Array<MsdfLabel> labels = new Array<>();
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Headless.init();
+        skin = Headless.createSkin();
+        batch = batchType.equals("msdf") ? new MsdfBatch() : new SpriteBatch();
+
+        FontStyle[] fontStyles = {
+                Headless.createFontStyle(),
+                Headless.createFontStyle().setSize(16f),
+        };
+        for (int i = 0; i < labelCount; i++) {
+            MsdfLabel label = new MsdfLabel("Label " + i, skin, fontStyles[i % fontStyles.length]);
+            label.setBounds((i % 10) * 100f, (i / 10) * 30f, 100f, 30f);
+            label.validate();
+            labels.add(label);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batch.dispose();
+        skin.dispose();
+        labels.clear();
+    }
+
+    @Benchmark
+    public Batch drawFrame() {
+        batch.begin();
+        for (int i = 0; i < labels.size; i++) {
+            labels.get(i).draw(batch, 1f);
+        }
+        batch.end();
+        return batch;
+    }
+
+}
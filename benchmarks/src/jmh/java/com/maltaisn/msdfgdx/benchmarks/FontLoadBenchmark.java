@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.benchmarks;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.resolvers.AbsoluteFileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.maltaisn.msdfgdx.BinaryFontFormat;
+import com.maltaisn.msdfgdx.MsdfFontData;
+import com.maltaisn.msdfgdx.MsdfFontLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Parsing of font files, in the text and binary formats.
+ * Textures aren't loaded, since that's the same for all formats and done by the asset manager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FontLoadBenchmark {
+
+    @Param({"fnt", "msdfbin"})
+    public String format;
+
+    private FileHandle fontFile;
+    private File tempFile;
+    private MsdfFontLoader loader;
+
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Headless.init();
+        fontFile = Headless.getAsset("font/" + Headless.FONT_NAME + ".fnt");
+        if (format.equals(BinaryFontFormat.EXTENSION)) {
+            tempFile = File.createTempFile(Headless.FONT_NAME, "." + BinaryFontFormat.EXTENSION);
+            FileHandle binaryFile = Gdx.files.absolute(tempFile.getAbsolutePath());
+            BinaryFontFormat.convert(fontFile, binaryFile);
+            fontFile = binaryFile;
+        }
+        loader = new MsdfFontLoader(new AbsoluteFileHandleResolver());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (tempFile != null) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        }
+    }
+
+    @Benchmark
+    public MsdfFontData parseFontData() {
+        return new MsdfFontData(fontFile, false);
+    }
+
+    @Benchmark
+    public void loaderLoadAsync() {
+        loader.loadAsync(null, fontFile.path(), fontFile, null);
+    }
+
+}
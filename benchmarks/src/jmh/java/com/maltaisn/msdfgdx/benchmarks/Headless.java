@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfFont;
+import com.maltaisn.msdfgdx.MsdfShader;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+
+/**
+ * Headless application used by the benchmarks, with a mocked GL that does nothing,
+ * except reporting shaders as compiled so that shaders and batches can be created.
+ * GL calls are made through a proxy, so they cost about the same in all benchmarks.
+ */
+final class Headless {
+
+    static final String FONT_NAME = "roboto-32";
+
+    private static boolean initialized;
+
+
+    private Headless() {
+        // no instances
+    }
+
+    /**
+     * Start the headless application if not already started.
+     */
+    static synchronized void init() {
+        if (initialized) return;
+        initialized = true;
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.updatesPerSecond = -1;
+        new HeadlessApplication(new ApplicationAdapter() {
+        }, config);
+
+        GL20 gl = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(),
+                new Class<?>[]{GL20.class}, new MockGLHandler());
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+    }
+
+    /**
+     * Returns a file in the test assets directory, given with the {@code msdfgdx.assets} system property.
+     */
+    static FileHandle getAsset(String path) {
+        String assets = System.getProperty("msdfgdx.assets", "../test/assets");
+        return Gdx.files.absolute(assets).child(path);
+    }
+
+    /**
+     * Create a skin with the default shader and the test font.
+     */
+    static Skin createSkin() {
+        Skin skin = new Skin();
+        skin.add("default", new MsdfShader());
+        skin.add(FONT_NAME, new MsdfFont(getAsset("font/" + FONT_NAME + ".fnt"), 32f, 5f));
+        return skin;
+    }
+
+    static FontStyle createFontStyle() {
+        return new FontStyle()
+                .setFontName(FONT_NAME)
+                .setSize(24f);
+    }
+
+    private static final class MockGLHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.equals("glCreateShader") || name.equals("glCreateProgram")) {
+                return 1;
+            } else if (name.equals("glGetShaderiv") || name.equals("glGetProgramiv")) {
+                int pname = (Integer) args[1];
+                if (pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS) {
+                    ((IntBuffer) args[2]).put(0, 1);
+                }
+                return null;
+            }
+
+            Class<?> type = method.getReturnType();
+            if (type == String.class) {
+                return "";
+            } else if (type == boolean.class) {
+                return false;
+            } else if (type == int.class) {
+                return 0;
+            } else if (type == float.class) {
+                return 0f;
+            }
+            return null;
+        }
+    }
+
+}
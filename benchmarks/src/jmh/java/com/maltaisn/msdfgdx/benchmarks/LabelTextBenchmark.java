@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.benchmarks;
+
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.widget.MsdfLabel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Setting the text of a label and laying it out, like a label updated every frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelTextBenchmark {
+
+    private static final String[] TEXTS = {"Score: 12345", "Score: 12346"};
+
+    @Param({"false", "true"})
+    public boolean allCaps;
+
+    private Skin skin;
+    private MsdfLabel label;
+    private int index;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Headless.init();
+        skin = Headless.createSkin();
+        FontStyle fontStyle = Headless.createFontStyle().setAllCaps(allCaps);
+        label = new MsdfLabel(TEXTS[0], skin, fontStyle);
+        label.setSize(400f, 40f);
+        label.validate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        skin.dispose();
+    }
+
+    @Benchmark
+    public MsdfLabel setText() {
+        index = 1 - index;
+        label.setText(TEXTS[index]);
+        return label;
+    }
+
+    @Benchmark
+    public MsdfLabel setTextAndLayout() {
+        index = 1 - index;
+        label.setText(TEXTS[index]);
+        label.validate();
+        return label;
+    }
+
+}
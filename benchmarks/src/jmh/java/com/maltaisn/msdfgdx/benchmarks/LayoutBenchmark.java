@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.benchmarks;
+
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.maltaisn.msdfgdx.widget.MsdfLabel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Layout of a label with a short single line text, and with a paragraph wrapped to the label width.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutBenchmark {
+
+    private static final String SHORT_TEXT = "Settings";
+    private static final String PARAGRAPH_TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, "
+            + "sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, "
+            + "quis nostrud exercitation ullamco laboris nisi ut aliquip ex ea commodo consequat. Duis aute "
+            + "irure dolor in reprehenderit in voluptate velit esse cillum dolore eu fugiat nulla pariatur. "
+            + "Excepteur sint occaecat cupidatat non proident, sunt in culpa qui officia deserunt mollit "
+            + "anim id est laborum.";
+
+    @Param({"short", "paragraph"})
+    public String text;
+
+    private Skin skin;
+    private MsdfLabel label;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Headless.init();
+        skin = Headless.createSkin();
+        boolean paragraph = text.equals("paragraph");
+        label = new MsdfLabel(paragraph ? PARAGRAPH_TEXT : SHORT_TEXT, skin, Headless.createFontStyle());
+        label.setWrap(paragraph);
+        label.setSize(400f, paragraph ? 300f : 40f);
+        label.validate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        skin.dispose();
+    }
+
+    @Benchmark
+    public MsdfLabel layout() {
+        label.invalidate();
+        label.validate();
+        return label;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.benchmarks;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfFont;
+import com.maltaisn.msdfgdx.MsdfShader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Uniform uploads of {@link MsdfShader#updateForFont(MsdfFont, FontStyle)}, with the same style
+ * every time, where uploads are skipped, and alternating between two styles, where all uniforms change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShaderUpdateBenchmark {
+
+    @Param({"same", "alternating"})
+    public String styles;
+
+    private Skin skin;
+    private MsdfShader shader;
+    private MsdfFont font;
+    private FontStyle[] fontStyles;
+    private int index;
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Headless.init();
+        skin = Headless.createSkin();
+        shader = skin.get(MsdfShader.class);
+        font = skin.get(Headless.FONT_NAME, MsdfFont.class);
+
+        FontStyle first = Headless.createFontStyle()
+                .setShadowColor(Color.BLACK)
+                .setInnerShadowColor(Color.GRAY);
+        FontStyle second = new FontStyle(first)
+                .setSize(48f)
+                .setWeight(0.1f)
+                .setColor(Color.RED)
+                .setShadowColor(Color.BLUE)
+                .setInnerShadowColor(Color.GREEN);
+        fontStyles = styles.equals("same") ? new FontStyle[]{first, first} : new FontStyle[]{first, second};
+        shader.bind();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        skin.dispose();
+    }
+
+    @Benchmark
+    public MsdfShader updateForFont() {
+        index = 1 - index;
+        shader.updateForFont(font, fontStyles[index]);
+        return shader;
+    }
+
+}
@@ -75,6 +75,10 @@ signing {
     sign(publishing.publications["maven"])
 }
 
+tasks.test {
+    systemProperty("msdfgdx.assets", rootProject.file("test/assets").absolutePath)
+}
+
 tasks.javadoc {
     if (JavaVersion.current().isJava9Compatible) {
         (options as StandardJavadocDocletOptions).addBooleanOption("html5", true)
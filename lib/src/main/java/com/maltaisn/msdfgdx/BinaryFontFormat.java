@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * Reads and writes the binary font format, a compact alternative to the text {@code .fnt} format
+ * which holds the glyph metrics, the kernings, the page file names and the values
+ * needed for distance field rendering. The whole file is read in a single pass.
+ * <p>
+ * The format is big endian and is laid out as follows:
+ * <ul>
+ * <li>Header: magic number ({@code "MSDF"}), format version (short).</li>
+ * <li>Distance field: glyph size, distance range (floats), field type (byte, ordinal of {@link DistanceFieldType}).</li>
+ * <li>Pages: page width, page height, page count (unsigned shorts), then the file name
+ * of each page relative to the font file (short length followed by UTF-8 bytes).</li>
+ * <li>Metrics: padding top, right, bottom, left, line height, cap height, x height,
+ * ascent, descent, space advance (floats), as computed by {@link MsdfFontData} when not flipped.</li>
+ * <li>Glyphs: glyph count (int), then for each glyph its character, source x, source y, width,
+ * height (unsigned shorts), x offset, y offset as in the text format, x advance and page (shorts).
+ * The missing glyph has character zero.</li>
+ * <li>Kernings: kerning count (int), then for each kerning the first and second
+ * characters (shorts) and the amount (byte).</li>
+ * </ul>
+ */
+public final class BinaryFontFormat {
+
+    /**
+     * The extension of binary font files.
+     */
+    public static final String EXTENSION = "msdfbin";
+
+    private static final int MAGIC = 0x4D534446;
+    private static final int VERSION = 1;
+
+    // Magic number, version, glyph size, distance range, field type, page width and height, page count.
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 4 + 1 + 2 + 2 + 2;
+
+
+    private BinaryFontFormat() {
+        // No instances
+    }
+
+
+    /**
+     * Read a binary font file into font data.
+     */
+    static void read(@NotNull MsdfFontData data, @NotNull FileHandle fontFile, boolean flip) {
+        if (data.imagePaths != null) throw new IllegalStateException("Already loaded.");
+
+        ByteBuffer buffer = ByteBuffer.wrap(fontFile.readBytes());
+        try {
+            checkHeader(buffer);
+
+            readDistanceField(data, buffer);
+
+            data.pageWidth = buffer.getShort() & 0xFFFF;
+            data.pageHeight = buffer.getShort() & 0xFFFF;
+            data.imagePaths = readPaths(buffer, fontFile);
+
+            data.padTop = buffer.getFloat();
+            data.padRight = buffer.getFloat();
+            data.padBottom = buffer.getFloat();
+            data.padLeft = buffer.getFloat();
+            data.lineHeight = buffer.getFloat();
+            data.capHeight = buffer.getFloat();
+            data.xHeight = buffer.getFloat();
+            data.ascent = buffer.getFloat();
+            data.descent = buffer.getFloat();
+            data.spaceXadvance = buffer.getFloat();
+            data.down = -data.lineHeight;
+            if (flip) {
+                data.ascent = -data.ascent;
+                data.down = -data.down;
+            }
+
+            int glyphCount = buffer.getInt();
+            for (int i = 0; i < glyphCount; i++) {
+                Glyph glyph = new Glyph();
+                glyph.id = buffer.getChar();
+                glyph.srcX = buffer.getShort() & 0xFFFF;
+                glyph.srcY = buffer.getShort() & 0xFFFF;
+                glyph.width = buffer.getShort() & 0xFFFF;
+                glyph.height = buffer.getShort() & 0xFFFF;
+                glyph.xoffset = buffer.getShort();
+                int yoffset = buffer.getShort();
+                glyph.yoffset = flip ? yoffset : -(glyph.height + yoffset);
+                glyph.xadvance = buffer.getShort();
+                glyph.page = buffer.getShort();
+                if (glyph.id == 0) {
+                    data.missingGlyph = glyph;
+                } else {
+                    data.setGlyph(glyph.id, glyph);
+                }
+            }
+
+            int kerningCount = buffer.getInt();
+            for (int i = 0; i < kerningCount; i++) {
+                char first = buffer.getChar();
+                char second = buffer.getChar();
+                byte amount = buffer.get();
+                Glyph glyph = data.getGlyph(first);
+                if (glyph != null) {
+                    glyph.setKerning(second, amount);
+                }
+            }
+
+        } catch (BufferUnderflowException e) {
+            throw new GdxRuntimeException("Error loading font file: " + fontFile + ", file is truncated.", e);
+        } catch (GdxRuntimeException e) {
+            throw new GdxRuntimeException("Error loading font file: " + fontFile, e);
+        }
+    }
+
+    /**
+     * Read the header of a binary font file, see {@link MsdfFontData#readHeader(FileHandle)}.
+     */
+    @NotNull
+    static MsdfFontData readHeader(@NotNull FileHandle fontFile) {
+        InputStream in = null;
+        try {
+            // Only read the header up to the page paths.
+            in = fontFile.read();
+            byte[] header = new byte[HEADER_SIZE];
+            readFully(in, header, HEADER_SIZE);
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            checkHeader(buffer);
+
+            MsdfFontData data = new MsdfFontData();
+            data.fontFile = fontFile;
+            readDistanceField(data, buffer);
+            data.pageWidth = buffer.getShort() & 0xFFFF;
+            data.pageHeight = buffer.getShort() & 0xFFFF;
+            int pageCount = buffer.getShort() & 0xFFFF;
+
+            data.imagePaths = new String[pageCount];
+            FileHandle parent = fontFile.parent();
+            byte[] lengthBytes = new byte[2];
+            for (int i = 0; i < pageCount; i++) {
+                readFully(in, lengthBytes, 2);
+                byte[] bytes = new byte[((lengthBytes[0] & 0xFF) << 8) | (lengthBytes[1] & 0xFF)];
+                readFully(in, bytes, bytes.length);
+                data.imagePaths[i] = parent.child(new String(bytes, "UTF-8")).path().replaceAll("\\\\", "/");
+            }
+            return data;
+
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error loading font file: " + fontFile, e);
+        } catch (GdxRuntimeException e) {
+            throw new GdxRuntimeException("Error loading font file: " + fontFile, e);
+        } finally {
+            StreamUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Write font data to a binary font file. Page file names are written relative to the font file.
+     */
+    public static void write(@NotNull MsdfFontData data, @NotNull FileHandle outputFile) {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(outputFile.write(false, 8192));
+            write(data, out, data.fontFile != null ? data.fontFile.parent().path() : null);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error writing font file: " + outputFile, e);
+        } finally {
+            StreamUtils.closeQuietly(out);
+        }
+    }
+
+    /**
+     * Write font data in the binary format to a stream, which isn't closed.
+     *
+     * @param pagesDir The directory page file names are made relative to, or null to keep only the file name.
+     */
+    public static void write(@NotNull MsdfFontData data, @NotNull OutputStream stream,
+                             String pagesDir) throws IOException {
+        DataOutputStream out = stream instanceof DataOutputStream
+                ? (DataOutputStream) stream : new DataOutputStream(stream);
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        out.writeFloat(data.glyphSize);
+        out.writeFloat(data.distanceRange);
+        out.writeByte(data.fieldType.ordinal());
+
+        out.writeShort(data.pageWidth);
+        out.writeShort(data.pageHeight);
+        out.writeShort(data.imagePaths.length);
+        for (String path : data.imagePaths) {
+            writeString(out, relativePath(path, pagesDir));
+        }
+
+        // Metrics are written as if the data was not flipped.
+        out.writeFloat(data.padTop);
+        out.writeFloat(data.padRight);
+        out.writeFloat(data.padBottom);
+        out.writeFloat(data.padLeft);
+        out.writeFloat(data.lineHeight);
+        out.writeFloat(data.capHeight);
+        out.writeFloat(data.xHeight);
+        out.writeFloat(data.flipped ? -data.ascent : data.ascent);
+        out.writeFloat(data.descent);
+        out.writeFloat(data.spaceXadvance);
+
+        KerningTable kerningTable = data.getKerningTable();
+        int glyphCount = data.missingGlyph != null ? 1 : 0;
+        int kerningCount = kerningTable != null ? kerningTable.size() : 0;
+        for (Glyph[] page : data.glyphs) {
+            if (page == null) continue;
+            for (Glyph glyph : page) {
+                if (glyph == null) continue;
+                glyphCount++;
+                if (kerningTable == null) kerningCount += countKernings(glyph);
+            }
+        }
+
+        out.writeInt(glyphCount);
+        if (data.missingGlyph != null) {
+            writeGlyph(out, data, data.missingGlyph, 0);
+        }
+        for (Glyph[] page : data.glyphs) {
+            if (page == null) continue;
+            for (Glyph glyph : page) {
+                if (glyph != null) writeGlyph(out, data, glyph, glyph.id);
+            }
+        }
+
+        out.writeInt(kerningCount);
+        if (kerningTable != null) {
+            // Kernings were moved from the glyphs to the table. The first and second characters are packed in an int.
+            int[] pairs = kerningTable.toArray();
+            for (int i = 0; i < pairs.length; i += 2) {
+                out.writeInt(pairs[i]);
+                out.writeByte(pairs[i + 1]);
+            }
+        } else {
+            for (Glyph[] page : data.glyphs) {
+                if (page == null) continue;
+                for (Glyph glyph : page) {
+                    if (glyph == null || glyph.kerning == null) continue;
+                    for (int p = 0; p < glyph.kerning.length; p++) {
+                        byte[] kerningPage = glyph.kerning[p];
+                        if (kerningPage == null) continue;
+                        for (int i = 0; i < kerningPage.length; i++) {
+                            if (kerningPage[i] != 0) {
+                                out.writeChar(glyph.id);
+                                out.writeChar(p * kerningPage.length + i);
+                                out.writeByte(kerningPage[i]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Convert a text font file to a binary font file.
+     * The text file must define the glyph size and the distance range.
+     */
+    public static void convert(@NotNull FileHandle fontFile, @NotNull FileHandle outputFile) {
+        MsdfFontData data = new MsdfFontData(fontFile, false);
+        if (data.glyphSize <= 0f) throw new GdxRuntimeException("Glyph size not defined in " + fontFile);
+        if (data.distanceRange <= 0f) throw new GdxRuntimeException("Distance range not defined in " + fontFile);
+        write(data, outputFile);
+    }
+
+    private static void writeGlyph(DataOutputStream out, MsdfFontData data, Glyph glyph, int id) throws IOException {
+        out.writeChar(id);
+        out.writeShort(glyph.srcX);
+        out.writeShort(glyph.srcY);
+        out.writeShort(glyph.width);
+        out.writeShort(glyph.height);
+        out.writeShort(glyph.xoffset);
+        out.writeShort(data.flipped ? glyph.yoffset : -(glyph.yoffset + glyph.height));
+        out.writeShort(glyph.xadvance);
+        out.writeShort(glyph.page);
+    }
+
+    private static int countKernings(Glyph glyph) {
+        if (glyph.kerning == null) return 0;
+        int count = 0;
+        for (byte[] page : glyph.kerning) {
+            if (page == null) continue;
+            for (byte amount : page) {
+                if (amount != 0) count++;
+            }
+        }
+        return count;
+    }
+
+    private static String relativePath(String path, String dir) {
+        if (dir != null && !dir.isEmpty() && path.startsWith(dir + '/')) {
+            return path.substring(dir.length() + 1);
+        }
+        int slash = path.lastIndexOf('/');
+        return slash == -1 ? path : path.substring(slash + 1);
+    }
+
+    private static void checkHeader(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new GdxRuntimeException("Not a binary font file.");
+        }
+        int version = buffer.getShort();
+        if (version != VERSION) {
+            throw new GdxRuntimeException("Unsupported binary font version " + version + '.');
+        }
+    }
+
+    private static void readDistanceField(MsdfFontData data, ByteBuffer buffer) {
+        data.glyphSize = buffer.getFloat();
+        data.distanceRange = buffer.getFloat();
+        int fieldType = buffer.get();
+        if (fieldType < 0 || fieldType >= DistanceFieldType.values().length) {
+            throw new GdxRuntimeException("Unknown distance field type " + fieldType + '.');
+        }
+        data.fieldType = DistanceFieldType.values()[fieldType];
+    }
+
+    private static String[] readPaths(ByteBuffer buffer, FileHandle fontFile) {
+        int pageCount = buffer.getShort() & 0xFFFF;
+        String[] paths = new String[pageCount];
+        FileHandle parent = fontFile.parent();
+        for (int i = 0; i < pageCount; i++) {
+            paths[i] = parent.child(readString(buffer)).path().replaceAll("\\\\", "/");
+        }
+        return paths;
+    }
+
+    private static void readFully(InputStream in, byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read == -1) throw new GdxRuntimeException("File is truncated.");
+            offset += read;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes("UTF-8");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new GdxRuntimeException(e);
+        }
+    }
+
+}
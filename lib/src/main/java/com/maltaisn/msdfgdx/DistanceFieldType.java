@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * The type of distance field encoded in the pages of a font.
+ */
+public enum DistanceFieldType {
+
+    /**
+     * Multi-channel distance field in the RGB channels, and single channel distance
+     * field in the alpha channel used for shadows (MSDFA). Pages are loaded as RGBA textures.
+     */
+    MSDF("msdf"),
+
+    /**
+     * Single channel distance field in the alpha channel, used for both the glyph and the shadows.
+     * Pages are loaded as alpha textures, taking a quarter of the memory of MSDF pages.
+     * Single channel grayscale images are loaded as is, the alpha channel is used for other images.
+     * Corners are rounded when the text is much larger than the glyph size.
+     */
+    SDF("sdf");
+
+    /**
+     * The value of the {@code fieldType} attribute in text font files.
+     */
+    @NotNull
+    public final String value;
+
+    DistanceFieldType(@NotNull String value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the type for a {@code fieldType} attribute value, or MSDF if null or unknown.
+     * The {@code msdfa} value and the {@code psdf} value produced by some generators are also recognized.
+     */
+    @NotNull
+    public static DistanceFieldType fromValue(@Nullable String value) {
+        if ("sdf".equalsIgnoreCase(value) || "psdf".equalsIgnoreCase(value)) {
+            return SDF;
+        }
+        return MSDF;
+    }
+
+}
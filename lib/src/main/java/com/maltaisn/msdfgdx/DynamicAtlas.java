@@ -0,0 +1,365 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntSet;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A font page to which glyphs are added when they are first needed, for fonts with
+ * large charsets like CJK fonts. Glyphs are obtained from a {@link GlyphSource} and uploaded
+ * to a cell of the page. When all cells are used, the least recently used glyph is evicted.
+ * <p>
+ * The atlas is added as the last page of the font, and the glyphs already in the font data
+ * are kept in their page and never evicted. This way a font can have common characters pre-baked,
+ * and others added dynamically. The atlas must be created before any label or font cache uses
+ * the font, since font caches have a fixed number of pages.
+ * <p>
+ * Text laid out before a glyph was evicted must be laid out again, and the atlas
+ * {@link #getVersion() version} changes when that happens. {@link com.maltaisn.msdfgdx.widget.MsdfLabel}
+ * does this automatically. If more glyphs are displayed at once than the atlas can hold, some text
+ * will show the wrong glyphs, so the page should be large enough for the text displayed at once.
+ * <p>
+ * The atlas must only be used from the rendering thread.
+ */
+public final class DynamicAtlas implements Disposable {
+
+    // Spacing between cells so that linear filtering doesn't sample the neighbouring cells.
+    private static final int CELL_SPACING = 1;
+
+    @NotNull
+    private final MsdfFontData data;
+    @NotNull
+    private final GlyphSource source;
+
+    @NotNull
+    private final Texture texture;
+    @NotNull
+    private final TextureRegion region;
+    private final int page;
+
+    // Pixmap of the size of a cell, in which glyphs are drawn before being uploaded.
+    @NotNull
+    private final Pixmap cell;
+    private final int columns;
+
+    // Glyphs in use, mapping characters to cells and cells to characters.
+    private final IntIntMap cells = new IntIntMap();
+    private final char[] cellChars;
+    private int usedCells;
+
+    // Cells in least recently used order, in a doubly linked list of cell indices.
+    private final int[] prev;
+    private final int[] next;
+    private int head = -1;
+    private int tail = -1;
+
+    // Characters the source has no glyph for.
+    private final IntSet missing = new IntSet();
+
+    private int version;
+
+    private int insertions;
+    private int evictions;
+
+
+    /**
+     * Create a dynamic atlas and add it to a font.
+     *
+     * @param font       The font, which must have been created from {@link MsdfFontData}.
+     * @param source     The source of the glyphs.
+     * @param pageWidth  The width of the atlas page in pixels.
+     * @param pageHeight The height of the atlas page in pixels.
+     * @param cellWidth  The width of a cell, the maximum width of a glyph, in pixels.
+     * @param cellHeight The height of a cell, the maximum height of a glyph, in pixels.
+     */
+    public DynamicAtlas(@NotNull MsdfFont font, @NotNull GlyphSource source,
+                        int pageWidth, int pageHeight, int cellWidth, int cellHeight) {
+        //noinspection ConstantConditions
+        if (source == null) throw new NullPointerException("Source cannot be null");
+        BitmapFont bitmapFont = font.getFont();
+        if (!(bitmapFont.getData() instanceof MsdfFontData)) {
+            throw new GdxRuntimeException("Dynamic atlas requires a font created from MsdfFontData.");
+        }
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            throw new IllegalArgumentException("Cell size must be greater than zero.");
+        }
+        columns = (pageWidth + CELL_SPACING) / (cellWidth + CELL_SPACING);
+        int rows = (pageHeight + CELL_SPACING) / (cellHeight + CELL_SPACING);
+        if (columns == 0 || rows == 0) {
+            throw new IllegalArgumentException("Page must be larger than a cell.");
+        }
+
+        this.data = (MsdfFontData) bitmapFont.getData();
+        if (data.dynamicAtlas != null) throw new GdxRuntimeException("Font already has a dynamic atlas.");
+        this.source = source;
+
+        Pixmap.Format format = data.fieldType == DistanceFieldType.SDF ? Pixmap.Format.Alpha : Pixmap.Format.RGBA8888;
+        texture = new Texture(pageWidth, pageHeight, format);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        region = new TextureRegion(texture);
+        cell = new Pixmap(cellWidth, cellHeight, format);
+        cell.setBlending(Pixmap.Blending.None);
+
+        int cellCount = columns * rows;
+        cellChars = new char[cellCount];
+        prev = new int[cellCount];
+        next = new int[cellCount];
+
+        Array<TextureRegion> regions = bitmapFont.getRegions();
+        page = regions.size;
+        regions.add(region);
+        data.dynamicAtlas = this;
+    }
+
+
+    /**
+     * Returns the glyph for a character, adding it to the page if needed, or null if there's none.
+     *
+     * @param glyph The glyph in the font data, or null if it was never loaded.
+     */
+    Glyph getGlyph(char ch, Glyph glyph) {
+        if (glyph == null) {
+            if (missing.contains(ch)) return null;
+
+            glyph = new Glyph();
+            glyph.id = ch;
+            if (!loadGlyph(ch, glyph)) {
+                missing.add(ch);
+                return null;
+            }
+
+            // Convert the metrics like BitmapFontData.load() does.
+            if (!data.flipped) {
+                glyph.yoffset = -(glyph.height + glyph.yoffset);
+            }
+            data.setGlyph(ch, glyph);
+            if (glyph.width > 0 && glyph.height > 0) {
+                glyph.page = page;
+                insert(ch, glyph);
+            }
+            return glyph;
+        }
+
+        int index = cells.get(ch, -1);
+        if (index != -1) {
+            touch(index);
+        } else {
+            // Glyph was evicted, load it again. Metrics are unchanged.
+            int yoffset = glyph.yoffset;
+            loadGlyph(ch, glyph);
+            glyph.yoffset = yoffset;
+            insert(ch, glyph);
+        }
+        return glyph;
+    }
+
+    /**
+     * Add the glyphs of a layout back to the page if they were evicted, and mark them as recently used.
+     * This must be called before drawing a layout that was computed before the atlas version last changed.
+     */
+    public void ensureGlyphs(@NotNull GlyphLayout layout) {
+        Array<GlyphLayout.GlyphRun> runs = layout.runs;
+        for (int i = 0; i < runs.size; i++) {
+            Array<Glyph> glyphs = runs.get(i).glyphs;
+            for (int j = 0; j < glyphs.size; j++) {
+                Glyph glyph = glyphs.get(j);
+                if (glyph.page == page) {
+                    getGlyph((char) glyph.id, glyph);
+                }
+            }
+        }
+    }
+
+    private boolean loadGlyph(char ch, Glyph glyph) {
+        cell.setColor(0);
+        cell.fill();
+        if (!source.loadGlyph(ch, glyph, cell)) {
+            return false;
+        }
+        if (glyph.width > cell.getWidth() || glyph.height > cell.getHeight()) {
+            throw new GdxRuntimeException("Glyph for '" + ch + "' of size " + glyph.width + "x" + glyph.height
+                    + " is larger than the atlas cells.");
+        }
+        return true;
+    }
+
+    /**
+     * Upload the glyph in the cell pixmap to a free cell, evicting the least recently used glyph if none is free.
+     */
+    private void insert(char ch, Glyph glyph) {
+        int index;
+        if (usedCells < cellChars.length) {
+            index = usedCells;
+            usedCells++;
+        } else {
+            index = tail;
+            unlink(index);
+            cells.remove(cellChars[index], -1);
+            evictions++;
+            version++;
+        }
+        cellChars[index] = ch;
+        cells.put(ch, index);
+        link(index);
+
+        glyph.srcX = (index % columns) * (cell.getWidth() + CELL_SPACING);
+        glyph.srcY = (index / columns) * (cell.getHeight() + CELL_SPACING);
+        data.setGlyphRegion(glyph, region);
+        texture.draw(cell, glyph.srcX, glyph.srcY);
+        insertions++;
+    }
+
+    private void touch(int index) {
+        if (index != head) {
+            unlink(index);
+            link(index);
+        }
+    }
+
+    private void link(int index) {
+        prev[index] = -1;
+        next[index] = head;
+        if (head != -1) prev[head] = index;
+        head = index;
+        if (tail == -1) tail = index;
+    }
+
+    private void unlink(int index) {
+        int p = prev[index];
+        int n = next[index];
+        if (p != -1) next[p] = n; else head = n;
+        if (n != -1) prev[n] = p; else tail = p;
+    }
+
+    /**
+     * Evict all glyphs from the page, for example after the OpenGL context was lost,
+     * since the page is then restored empty.
+     */
+    public void clear() {
+        cells.clear();
+        usedCells = 0;
+        head = -1;
+        tail = -1;
+        missing.clear();
+        version++;
+    }
+
+    /**
+     * Returns a number that changes every time glyphs are evicted.
+     * Text laid out with a different version may have glyphs no longer in the page.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the index of the atlas page in the font regions.
+     */
+    public int getPage() {
+        return page;
+    }
+
+    @NotNull
+    public Texture getTexture() {
+        return texture;
+    }
+
+    @NotNull
+    public GlyphSource getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the number of glyphs the page can hold.
+     */
+    public int getCapacity() {
+        return cellChars.length;
+    }
+
+    /**
+     * Returns the number of glyphs in the page.
+     */
+    public int getSize() {
+        return usedCells;
+    }
+
+    /**
+     * Returns the fraction of the cells in use, between 0 and 1.
+     */
+    public float getOccupancy() {
+        return (float) usedCells / cellChars.length;
+    }
+
+    /**
+     * Returns the number of glyphs uploaded to the page, including glyphs loaded again after being evicted.
+     */
+    public int getInsertions() {
+        return insertions;
+    }
+
+    /**
+     * Returns the number of glyphs evicted to make room for others.
+     */
+    public int getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Reset the insertions and evictions counters.
+     */
+    public void resetStats() {
+        insertions = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Dispose the page texture and the cell pixmap. The font can't be used anymore afterwards.
+     * This is done automatically when the font is disposed.
+     */
+    @Override
+    public void dispose() {
+        texture.dispose();
+        if (!cell.isDisposed()) {
+            cell.dispose();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DynamicAtlas{" +
+                "size=" + usedCells +
+                ", capacity=" + cellChars.length +
+                ", insertions=" + insertions +
+                ", evictions=" + evictions +
+                ", version=" + version +
+                '}';
+    }
+
+}
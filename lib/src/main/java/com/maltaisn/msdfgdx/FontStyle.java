@@ -108,6 +108,11 @@ public final class FontStyle {
      */
     private float innerShadowRange = 0.3f;
 
+    /**
+     * Counter incremented every time a property of this style changes with a setter.
+     */
+    private transient int version;
+
 
     public FontStyle() {
         // Default constructor
@@ -138,6 +143,7 @@ public final class FontStyle {
         if (fontName == null) throw new NullPointerException("Font name cannot be null.");
 
         this.fontName = fontName;
+        version++;
         return this;
     }
 
@@ -147,6 +153,7 @@ public final class FontStyle {
 
     public FontStyle setSize(float size) {
         this.size = size;
+        version++;
         return this;
     }
 
@@ -156,6 +163,7 @@ public final class FontStyle {
 
     public FontStyle setWeight(float weight) {
         this.weight = weight;
+        version++;
         return this;
     }
 
@@ -169,6 +177,7 @@ public final class FontStyle {
         if (color == null) throw new NullPointerException("Color cannot be null.");
 
         this.color = color;
+        version++;
         return this;
     }
 
@@ -178,6 +187,7 @@ public final class FontStyle {
 
     public FontStyle setAllCaps(boolean allCaps) {
         this.allCaps = allCaps;
+        version++;
         return this;
     }
 
@@ -187,6 +197,7 @@ public final class FontStyle {
 
     public FontStyle setShadowClipped(boolean shadowClipped) {
         this.shadowClipped = shadowClipped;
+        version++;
         return this;
     }
 
@@ -200,6 +211,7 @@ public final class FontStyle {
         if (shadowColor == null) throw new NullPointerException("Shadow color cannot be null.");
 
         this.shadowColor = shadowColor;
+        version++;
         return this;
     }
 
@@ -213,6 +225,7 @@ public final class FontStyle {
         if (shadowColor == null) throw new NullPointerException("Shadow offset cannot be null.");
 
         this.shadowOffset = shadowOffset;
+        version++;
         return this;
     }
 
@@ -222,6 +235,7 @@ public final class FontStyle {
 
     public FontStyle setShadowSmoothing(float shadowSmoothing) {
         this.shadowSmoothing = shadowSmoothing;
+        version++;
         return this;
     }
 
@@ -232,6 +246,7 @@ public final class FontStyle {
 
     public FontStyle setInnerShadowColor(@NotNull Color innerShadowColor) {
         this.innerShadowColor = innerShadowColor;
+        version++;
         return this;
     }
 
@@ -241,6 +256,38 @@ public final class FontStyle {
 
     public FontStyle setInnerShadowRange(float innerShadowRange) {
         this.innerShadowRange = innerShadowRange;
+        version++;
+        return this;
+    }
+
+
+    /**
+     * Returns a number that changes every time a property of this style is changed
+     * with a setter or when {@link #invalidate()} is called. Colors and the shadow offset
+     * modified in place don't change the version, so it's only a hint that the style changed.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the shader features needed to draw text with this style, a combination of
+     * {@link MsdfShader#FEATURE_SHADOW} and {@link MsdfShader#FEATURE_INNER_SHADOW}.
+     * Shadows with a transparent color aren't drawn, so their feature isn't needed.
+     */
+    public int getShaderFeatures() {
+        int features = 0;
+        if (shadowColor.a != 0) features |= MsdfShader.FEATURE_SHADOW;
+        if (innerShadowColor.a != 0) features |= MsdfShader.FEATURE_INNER_SHADOW;
+        return features;
+    }
+
+    /**
+     * Mark the style as changed, changing its {@link #getVersion() version}. This can be called after
+     * modifying one of the colors or the shadow offset in place, for code detecting changes with the version.
+     */
+    public FontStyle invalidate() {
+        version++;
         return this;
     }
 
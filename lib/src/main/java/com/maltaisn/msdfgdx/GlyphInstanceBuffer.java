@@ -0,0 +1,212 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * The instance data drawn by {@link MsdfInstancedRenderer}, with one record per glyph instead of the four
+ * vertices of a batch. Each record has {@link #INSTANCE_SIZE} floats: the glyph position and size,
+ * its texture coordinates, its packed tint color and the index of its style in the style table.
+ * The style table holds the style values of each font, style and page combination, uploaded as uniforms.
+ * <p>
+ * The buffer doesn't use OpenGL, so it can be built and checked without a GL context.
+ */
+public final class GlyphInstanceBuffer {
+
+    /**
+     * Number of floats per glyph instance: position and size, texture coordinates, color and style index.
+     */
+    public static final int INSTANCE_SIZE = 4 + 4 + 1 + 1;
+
+    /**
+     * Number of floats per style in the style table.
+     */
+    public static final int STYLE_SIZE = StyleAttributes.UNIFORM_SIZE;
+
+    private final float[] instances;
+    private int size;
+
+    // Style table, and the font, style, version and page of each style to find existing styles.
+    private final float[] styles;
+    private final MsdfFont[] styleFonts;
+    private final FontStyle[] styleStyles;
+    private final int[] styleVersions;
+    private final int[] stylePages;
+    private int styleCount;
+
+
+    /**
+     * Create an empty buffer.
+     *
+     * @param capacity  The maximum number of glyphs.
+     * @param maxStyles The maximum number of styles in the style table.
+     */
+    public GlyphInstanceBuffer(int capacity, int maxStyles) {
+        if (capacity <= 0 || maxStyles <= 0) {
+            throw new IllegalArgumentException("Capacity and style count must be greater than zero.");
+        }
+        instances = new float[capacity * INSTANCE_SIZE];
+        styles = new float[maxStyles * STYLE_SIZE];
+        styleFonts = new MsdfFont[maxStyles];
+        styleStyles = new FontStyle[maxStyles];
+        styleVersions = new int[maxStyles];
+        stylePages = new int[maxStyles];
+    }
+
+
+    /**
+     * Returns the index of the style for text drawn with a font and a style on a page of the font,
+     * adding it to the style table if needed, or -1 if the style table is full.
+     */
+    public int addStyle(@NotNull MsdfFont font, @NotNull FontStyle style, int page) {
+        int version = style.getVersion();
+        for (int i = 0; i < styleCount; i++) {
+            if (styleStyles[i] == style && styleFonts[i] == font
+                    && styleVersions[i] == version && stylePages[i] == page) {
+                return i;
+            }
+        }
+        if (styleCount == styleFonts.length) {
+            return -1;
+        }
+        int index = styleCount;
+        styleFonts[index] = font;
+        styleStyles[index] = style;
+        styleVersions[index] = version;
+        stylePages[index] = page;
+        StyleAttributes.writeUniforms(font, style, page, styles, index * STYLE_SIZE);
+        styleCount++;
+        return index;
+    }
+
+    /**
+     * Add glyph instances from vertices in the format of a {@link BitmapFontCache}, four vertices per glyph.
+     * Glyph quads from a font cache are never rotated, so the first and third vertices give the whole quad.
+     *
+     * @param vertices The glyph vertices, in the format of a {@link com.badlogic.gdx.graphics.g2d.SpriteBatch}.
+     * @param offset   The index of the first float of the first glyph.
+     * @param count    The number of floats, a multiple of {@link Sprite#SPRITE_SIZE}.
+     * @param style    The index of the glyphs style, returned by {@link #addStyle(MsdfFont, FontStyle, int)}.
+     * @return The number of glyphs added, less than the number of glyphs if the buffer is full.
+     */
+    public int add(@NotNull float[] vertices, int offset, int count, int style) {
+        if (style < 0 || style >= styleCount) {
+            throw new IllegalArgumentException("Invalid style index: " + style);
+        }
+        int glyphs = Math.min(count / Sprite.SPRITE_SIZE, getRemaining());
+        float[] instances = this.instances;
+        int idx = size * INSTANCE_SIZE;
+        for (int i = 0; i < glyphs; i++) {
+            float x = vertices[offset];
+            float y = vertices[offset + 1];
+            // Third vertex is the top right corner.
+            int top = offset + 2 * Sprite.VERTEX_SIZE;
+            instances[idx] = x;
+            instances[idx + 1] = y;
+            instances[idx + 2] = vertices[top] - x;
+            instances[idx + 3] = vertices[top + 1] - y;
+            instances[idx + 4] = vertices[offset + 3];
+            instances[idx + 5] = vertices[offset + 4];
+            instances[idx + 6] = vertices[top + 3];
+            instances[idx + 7] = vertices[top + 4];
+            instances[idx + 8] = vertices[offset + 2];
+            instances[idx + 9] = style;
+            idx += INSTANCE_SIZE;
+            offset += Sprite.SPRITE_SIZE;
+        }
+        size += glyphs;
+        return glyphs;
+    }
+
+    /**
+     * Remove all glyphs and styles.
+     */
+    public void clear() {
+        size = 0;
+        for (int i = 0; i < styleCount; i++) {
+            styleFonts[i] = null;
+            styleStyles[i] = null;
+        }
+        styleCount = 0;
+    }
+
+    /**
+     * Returns the instance data, of which the first {@link #getSize()} * {@link #INSTANCE_SIZE} floats are used.
+     */
+    @NotNull
+    public float[] getInstances() {
+        return instances;
+    }
+
+    /**
+     * Returns the number of glyphs in the buffer.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of glyphs in the buffer.
+     */
+    public int getCapacity() {
+        return instances.length / INSTANCE_SIZE;
+    }
+
+    /**
+     * Returns the number of glyphs that can still be added.
+     */
+    public int getRemaining() {
+        return getCapacity() - size;
+    }
+
+    /**
+     * Returns the style table, of which the first {@link #getStyleCount()} * {@link #STYLE_SIZE} floats are used.
+     */
+    @NotNull
+    public float[] getStyles() {
+        return styles;
+    }
+
+    /**
+     * Returns the number of styles in the style table.
+     */
+    public int getStyleCount() {
+        return styleCount;
+    }
+
+    /**
+     * Returns the maximum number of styles in the style table.
+     */
+    public int getMaxStyles() {
+        return styleFonts.length;
+    }
+
+    @Override
+    public String toString() {
+        return "GlyphInstanceBuffer{" +
+                "size=" + size +
+                ", capacity=" + getCapacity() +
+                ", styles=" + styleCount +
+                '}';
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * A least recently used cache of glyph layouts, shared between labels displaying the same text.
+ * Layouts are keyed by font, text, font scale, target width, alignment and wrapping.
+ * The cache size is the total number of glyphs in the cached layouts rather than the number of layouts.
+ * <p>
+ * Layouts returned by the cache are shared and must not be modified.
+ * The cache isn't thread-safe and must only be used from the rendering thread.
+ * <p>
+ * {@link com.maltaisn.msdfgdx.widget.MsdfLabel} uses the cache named "default" in its skin if there's one.
+ */
+public final class GlyphLayoutCache {
+
+    private final LinkedHashMap<Key, GlyphLayout> layouts = new LinkedHashMap<Key, GlyphLayout>(16, 0.75f, true);
+
+    // Key reused for lookups to avoid allocating when the layout is cached.
+    private final Key lookupKey = new Key();
+
+    private int capacity;
+    private int size;
+
+    private int hits;
+    private int misses;
+    private int evictions;
+
+
+    /**
+     * Create a cache.
+     *
+     * @param capacity The maximum total number of glyphs in the cached layouts.
+     */
+    public GlyphLayoutCache(int capacity) {
+        setCapacity(capacity);
+    }
+
+
+    /**
+     * Get the layout of a text, computing it if it isn't in the cache.
+     *
+     * @param font        The font used to layout the text.
+     * @param text        The text to layout.
+     * @param fontScale   The scale of the font data when laying out the text.
+     * @param targetWidth The width used for alignment and wrapping.
+     * @param halign      The horizontal alignment of each line, see {@link Align}.
+     * @param wrap        Whether the text is wrapped to the target width.
+     * @return The layout, which must not be modified.
+     */
+    @NotNull
+    public GlyphLayout get(@NotNull MsdfFont font, @NotNull CharSequence text, float fontScale,
+                           float targetWidth, int halign, boolean wrap) {
+        if (!wrap && (halign & Align.left) != 0) {
+            // The target width has no effect on left aligned text if not wrapping.
+            targetWidth = 0f;
+        }
+
+        GlyphLayout layout = layouts.get(lookupKey.set(font, text, fontScale, targetWidth, halign, wrap));
+        lookupKey.text = null;
+        if (layout != null) {
+            hits++;
+            return layout;
+        }
+        misses++;
+
+        BitmapFont bitmapFont = font.getFont();
+        BitmapFontData data = bitmapFont.getData();
+        float oldScaleX = data.scaleX;
+        float oldScaleY = data.scaleY;
+        data.setScale(fontScale);
+        layout = new GlyphLayout();
+        layout.setText(bitmapFont, text, 0, text.length(), Color.WHITE, targetWidth, halign, wrap, null);
+        data.setScale(oldScaleX, oldScaleY);
+
+        Key key = new Key().set(font, text.toString(), fontScale, targetWidth, halign, wrap);
+        key.glyphCount = countGlyphs(layout);
+        layouts.put(key, layout);
+        size += key.glyphCount;
+        trim();
+
+        return layout;
+    }
+
+    /**
+     * Remove all layouts from the cache. Must be called if a cached font is disposed or its metrics change.
+     */
+    public void clear() {
+        layouts.clear();
+        size = 0;
+    }
+
+    /**
+     * Set the maximum total number of glyphs in the cached layouts.
+     * Least recently used layouts are evicted if the cache is now too large.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than zero.");
+        this.capacity = capacity;
+        trim();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the total number of glyphs in the cached layouts.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of cached layouts.
+     */
+    public int getLayoutCount() {
+        return layouts.size();
+    }
+
+    /**
+     * Returns the number of lookups for which the layout was cached.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups for which the layout had to be computed.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of layouts evicted to respect the capacity.
+     */
+    public int getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Reset the hits, misses and evictions counters.
+     */
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    /**
+     * Evict least recently used layouts until the size is within capacity.
+     * The most recently used layout is never evicted, even if larger than the capacity.
+     */
+    private void trim() {
+        Iterator<Map.Entry<Key, GlyphLayout>> it = layouts.entrySet().iterator();
+        while (size > capacity && layouts.size() > 1 && it.hasNext()) {
+            Key key = it.next().getKey();
+            it.remove();
+            size -= key.glyphCount;
+            evictions++;
+        }
+    }
+
+    private static int countGlyphs(GlyphLayout layout) {
+        int count = 0;
+        Array<GlyphLayout.GlyphRun> runs = layout.runs;
+        for (int i = 0; i < runs.size; i++) {
+            count += runs.get(i).glyphs.size;
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "GlyphLayoutCache{" +
+                "layouts=" + layouts.size() +
+                ", size=" + size +
+                ", capacity=" + capacity +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+
+
+    private static final class Key {
+        MsdfFont font;
+        CharSequence text;
+        float fontScale;
+        float targetWidth;
+        int halign;
+        boolean wrap;
+        int hash;
+
+        int glyphCount;
+
+        Key set(MsdfFont font, CharSequence text, float fontScale, float targetWidth, int halign, boolean wrap) {
+            this.font = font;
+            this.text = text;
+            this.fontScale = fontScale;
+            this.targetWidth = targetWidth;
+            this.halign = halign;
+            this.wrap = wrap;
+
+            // Hash the text content so that any char sequence can be used for lookup.
+            int h = System.identityHashCode(font);
+            for (int i = 0, n = text.length(); i < n; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            h = 31 * h + Float.floatToIntBits(fontScale);
+            h = 31 * h + Float.floatToIntBits(targetWidth);
+            h = 31 * h + halign;
+            hash = 31 * h + (wrap ? 1 : 0);
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            if (hash != key.hash || font != key.font || fontScale != key.fontScale
+                    || targetWidth != key.targetWidth || halign != key.halign || wrap != key.wrap) {
+                return false;
+            }
+            int length = text.length();
+            if (length != key.text.length()) return false;
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) != key.text.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
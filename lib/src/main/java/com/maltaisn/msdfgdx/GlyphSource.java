@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * Provides the glyphs of a {@link DynamicAtlas} when they are first needed.
+ * Glyphs can be rasterized on demand or loaded from a glyph store.
+ * A source is only called from the rendering thread.
+ */
+public interface GlyphSource {
+
+    /**
+     * Load a glyph into an atlas cell. The same glyph may be loaded again after being evicted.
+     *
+     * @param ch    The character of the glyph.
+     * @param glyph The glyph to set the {@code width}, {@code height}, {@code xoffset},
+     *              {@code yoffset} and {@code xadvance} of, with the values and conventions
+     *              of a text font file. The size must not be greater than the cell size.
+     * @param cell  The cleared cell to draw the glyph image to, at the top left. Its format is the
+     *              format of the atlas page, RGBA8888 for MSDF and alpha for SDF. Blending is disabled.
+     * @return Whether the source has a glyph for the character.
+     */
+    boolean loadGlyph(char ch, @NotNull Glyph glyph, @NotNull Pixmap cell);
+
+}
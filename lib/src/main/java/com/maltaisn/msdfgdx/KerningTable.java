@@ -0,0 +1,287 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+
+/**
+ * The kernings of a font in a single open addressing hash table, keyed by the pair of characters.
+ * LibGDX stores kernings in each glyph, in pages of 512 bytes allocated for every range of second
+ * characters used, which takes a lot of memory for fonts with many kerning pairs. This table uses
+ * 5 bytes per slot, and a lookup is a single probe in most cases.
+ * <p>
+ * Kerning amounts are stored as bytes, like in {@link Glyph}.
+ */
+public final class KerningTable {
+
+    // Maximum load factor, the table is grown when exceeded.
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // Keys are the first character in the high bits and the second in the low bits,
+    // zero for an empty slot. The value of the zero key is stored separately.
+    private int[] keys;
+    private byte[] values;
+    private int mask;
+    private int shift;
+    private int threshold;
+    private int size;
+
+    private boolean hasZeroKey;
+    private byte zeroValue;
+
+    // Memory used by the glyph kernings this table was created from, -1 if unknown.
+    private long glyphKerningMemory = -1;
+
+
+    public KerningTable() {
+        this(32);
+    }
+
+    /**
+     * Create a table with an initial capacity in kerning pairs.
+     */
+    public KerningTable(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("Capacity must be positive.");
+        allocate(tableSize(initialCapacity));
+    }
+
+
+    /**
+     * Create a table from the kernings stored in the glyphs of font data.
+     *
+     * @param clear Whether to remove the kernings from the glyphs afterwards to free their memory.
+     */
+    @NotNull
+    public static KerningTable fromGlyphs(@NotNull BitmapFontData data, boolean clear) {
+        KerningTable table = new KerningTable();
+        long memory = 0;
+        for (Glyph[] page : data.glyphs) {
+            if (page == null) continue;
+            for (Glyph glyph : page) {
+                if (glyph == null || glyph.kerning == null) continue;
+                memory += getKerningMemory(glyph);
+                for (int p = 0; p < glyph.kerning.length; p++) {
+                    byte[] kerningPage = glyph.kerning[p];
+                    if (kerningPage == null) continue;
+                    for (int i = 0; i < kerningPage.length; i++) {
+                        if (kerningPage[i] != 0) {
+                            table.put((char) glyph.id, (char) (p * kerningPage.length + i), kerningPage[i]);
+                        }
+                    }
+                }
+                if (clear) {
+                    glyph.kerning = null;
+                }
+            }
+        }
+        table.glyphKerningMemory = memory;
+        return table;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the kernings of a glyph, in bytes, assuming
+     * 16 bytes array headers and 4 bytes references.
+     */
+    private static long getKerningMemory(Glyph glyph) {
+        byte[][] kerning = glyph.kerning;
+        long memory = 16 + 4L * kerning.length;
+        for (byte[] page : kerning) {
+            if (page != null) memory += 16 + page.length;
+        }
+        return memory;
+    }
+
+    /**
+     * Set the kerning between two characters. An amount of zero removes the pair.
+     */
+    public void put(char first, char second, int amount) {
+        int key = first << 16 | second;
+        byte value = (byte) amount;
+        if (key == 0) {
+            if (!hasZeroKey && value != 0) size++;
+            if (hasZeroKey && value == 0) size--;
+            hasZeroKey = value != 0;
+            zeroValue = value;
+            return;
+        }
+        if (value == 0) {
+            remove(key);
+            return;
+        }
+
+        int[] keys = this.keys;
+        int i = place(key);
+        while (keys[i] != 0) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size >= threshold) {
+            resize(keys.length << 1);
+        }
+    }
+
+    /**
+     * Returns the kerning between two characters, or zero if there's none.
+     */
+    public int get(char first, char second) {
+        int key = first << 16 | second;
+        if (key == 0) return zeroValue;
+        int[] keys = this.keys;
+        for (int i = place(key); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) return values[i];
+            if (k == 0) return 0;
+        }
+    }
+
+    private void remove(int key) {
+        int[] keys = this.keys;
+        int i = place(key);
+        while (keys[i] != key) {
+            if (keys[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+
+        // Shift back the following keys of the cluster that would no longer be reachable.
+        int next = (i + 1) & mask;
+        while (keys[next] != 0) {
+            int placement = place(keys[next]);
+            if (((next - placement) & mask) > ((i - placement) & mask)) {
+                keys[i] = keys[next];
+                values[i] = values[next];
+                i = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[i] = 0;
+        values[i] = 0;
+        size--;
+    }
+
+    /**
+     * Remove all kernings.
+     */
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, (byte) 0);
+        hasZeroKey = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the number of kerning pairs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the kerning pairs, as pairs of values: the first character in the high bits
+     * and the second in the low bits of an int, then the amount.
+     */
+    int[] toArray() {
+        int[] pairs = new int[size * 2];
+        int n = 0;
+        if (hasZeroKey) {
+            pairs[n++] = 0;
+            pairs[n++] = zeroValue;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                pairs[n++] = keys[i];
+                pairs[n++] = values[i];
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the table, in bytes.
+     */
+    public long getMemoryUsage() {
+        return 16 + 4L * keys.length + 16 + values.length;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the glyph kernings the table was created from
+     * with {@link #fromGlyphs(BitmapFontData, boolean)}, in bytes, or -1 if not created from glyphs.
+     */
+    public long getGlyphKerningMemory() {
+        return glyphKerningMemory;
+    }
+
+    /**
+     * Returns the slot index for a key, with Fibonacci hashing.
+     */
+    private int place(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private void resize(int tableSize) {
+        int[] oldKeys = keys;
+        byte[] oldValues = values;
+        allocate(tableSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int j = place(key);
+                while (keys[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = key;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new int[tableSize];
+        values = new byte[tableSize];
+        mask = tableSize - 1;
+        shift = Integer.numberOfLeadingZeros(mask);
+        threshold = (int) (tableSize * LOAD_FACTOR);
+    }
+
+    private static int tableSize(int capacity) {
+        int size = Integer.highestOneBit(Math.max((int) Math.ceil(capacity / LOAD_FACTOR), 2) - 1) << 1;
+        if (size < 0) throw new IllegalArgumentException("Capacity is too large: " + capacity);
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "KerningTable{" +
+                "size=" + size +
+                ", memory=" + getMemoryUsage() +
+                (glyphKerningMemory != -1 ? ", glyphKerningMemory=" + glyphKerningMemory : "") +
+                '}';
+    }
+
+}
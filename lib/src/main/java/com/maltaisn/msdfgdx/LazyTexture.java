@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.glutils.MipMapGenerator;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * A font page texture whose image is only decoded and uploaded when the texture is first bound,
+ * or when {@link #loadImage()} is called. The size is read from the PNG header when the texture is
+ * created, so that glyph texture coordinates can be computed without decoding the image.
+ * The image can be released with {@link #unloadImage()}, and is loaded again the next time it's bound.
+ * <p>
+ * The texture is managed, so the image is uploaded again after the OpenGL context is lost, if it was loaded.
+ */
+final class LazyTexture extends Texture {
+
+    // Whether binding the texture loads the image. Off during construction and while the texture
+    // is loaded or reloaded internally, since Texture.load and setFilter bind the texture.
+    private boolean autoLoad;
+
+
+    /**
+     * Create a texture for a PNG image file, without reading the image.
+     *
+     * @param format     The format the image is converted to when loaded.
+     * @param useMipMaps Whether to generate mipmaps when the image is loaded.
+     * @param minFilter  The minification filter.
+     * @param magFilter  The magnification filter.
+     */
+    LazyTexture(FileHandle file, Pixmap.Format format, boolean useMipMaps,
+                TextureFilter minFilter, TextureFilter magFilter) {
+        super(new LazyTextureData(file, format, useMipMaps));
+        setFilter(minFilter, magFilter);
+        autoLoad = true;
+    }
+
+
+    /**
+     * Decode the image and upload it, if not already loaded.
+     */
+    void loadImage() {
+        LazyTextureData data = (LazyTextureData) getTextureData();
+        if (data.loaded) return;
+        data.loaded = true;
+        boolean wasAutoLoad = autoLoad;
+        autoLoad = false;
+        try {
+            load(data);
+        } finally {
+            autoLoad = wasAutoLoad;
+        }
+    }
+
+    /**
+     * Release the image in video memory, if loaded. The texture can still be used, and the image
+     * will be loaded again when the texture is next bound.
+     */
+    void unloadImage() {
+        LazyTextureData data = (LazyTextureData) getTextureData();
+        if (!data.loaded) return;
+        data.loaded = false;
+        // Replace the GL texture by an empty one, the texture handle changes.
+        delete();
+        reload();
+    }
+
+    /**
+     * Create the GL texture again, after the context was lost or to release the image.
+     * The image is only uploaded if it was loaded.
+     */
+    @Override
+    protected void reload() {
+        boolean wasAutoLoad = autoLoad;
+        autoLoad = false;
+        try {
+            // The texture data doesn't upload anything if the image isn't loaded.
+            super.reload();
+        } finally {
+            autoLoad = wasAutoLoad;
+        }
+    }
+
+    boolean isImageLoaded() {
+        return ((LazyTextureData) getTextureData()).loaded;
+    }
+
+    @Override
+    public void setFilter(TextureFilter minFilter, TextureFilter magFilter) {
+        // Changing parameters binds the texture, but doesn't need the image.
+        boolean wasAutoLoad = autoLoad;
+        autoLoad = false;
+        try {
+            super.setFilter(minFilter, magFilter);
+        } finally {
+            autoLoad = wasAutoLoad;
+        }
+    }
+
+    @Override
+    public void setWrap(TextureWrap u, TextureWrap v) {
+        boolean wasAutoLoad = autoLoad;
+        autoLoad = false;
+        try {
+            super.setWrap(u, v);
+        } finally {
+            autoLoad = wasAutoLoad;
+        }
+    }
+
+    @Override
+    public void bind() {
+        if (autoLoad) loadImage();
+        super.bind();
+    }
+
+    @Override
+    public void bind(int unit) {
+        if (autoLoad) loadImage();
+        super.bind(unit);
+    }
+
+    /**
+     * Custom texture data uploading the image only once it's requested.
+     */
+    private static final class LazyTextureData implements TextureData {
+
+        private final FileHandle file;
+        private final Pixmap.Format format;
+        private final boolean useMipMaps;
+        private final int width;
+        private final int height;
+
+        boolean loaded;
+
+        LazyTextureData(FileHandle file, Pixmap.Format format, boolean useMipMaps) {
+            this.file = file;
+            this.format = format;
+            this.useMipMaps = useMipMaps;
+
+            // Read the size in the IHDR chunk, which comes right after the PNG signature.
+            byte[] header = new byte[24];
+            InputStream input = file.read();
+            try {
+                int read = 0;
+                while (read < header.length) {
+                    int n = input.read(header, read, header.length - read);
+                    if (n == -1) break;
+                    read += n;
+                }
+                if (read < header.length || header[1] != 'P' || header[2] != 'N' || header[3] != 'G'
+                        || header[12] != 'I' || header[13] != 'H' || header[14] != 'D' || header[15] != 'R') {
+                    throw new GdxRuntimeException("Lazily loaded font page must be a PNG image: " + file);
+                }
+            } catch (IOException e) {
+                throw new GdxRuntimeException("Error reading font page: " + file, e);
+            } finally {
+                StreamUtils.closeQuietly(input);
+            }
+            width = readInt(header, 16);
+            height = readInt(header, 20);
+        }
+
+        private static int readInt(byte[] bytes, int pos) {
+            return (bytes[pos] & 0xFF) << 24 | (bytes[pos + 1] & 0xFF) << 16
+                    | (bytes[pos + 2] & 0xFF) << 8 | (bytes[pos + 3] & 0xFF);
+        }
+
+        @Override
+        public TextureDataType getType() {
+            return TextureDataType.Custom;
+        }
+
+        @Override
+        public boolean isPrepared() {
+            return true;
+        }
+
+        @Override
+        public void prepare() {
+            // Nothing to prepare, the image is decoded when uploaded.
+        }
+
+        @Override
+        public Pixmap consumePixmap() {
+            throw new GdxRuntimeException("This TextureData implementation does not return a Pixmap");
+        }
+
+        @Override
+        public boolean disposePixmap() {
+            return false;
+        }
+
+        @Override
+        public void consumeCustomData(int target) {
+            if (!loaded) return;
+
+            Pixmap pixmap = new Pixmap(file);
+            if (pixmap.getFormat() != format) {
+                Pixmap converted = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), format);
+                converted.setBlending(Pixmap.Blending.None);
+                converted.drawPixmap(pixmap, 0, 0);
+                pixmap.dispose();
+                pixmap = converted;
+            }
+            if (pixmap.getWidth() != width || pixmap.getHeight() != height) {
+                pixmap.dispose();
+                throw new GdxRuntimeException("Font page size changed since the font was loaded: " + file);
+            }
+
+            Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+            if (useMipMaps) {
+                MipMapGenerator.generateMipMap(target, pixmap, width, height);
+            } else {
+                Gdx.gl.glTexImage2D(target, 0, pixmap.getGLInternalFormat(), width, height, 0,
+                        pixmap.getGLFormat(), pixmap.getGLType(), pixmap.getPixels());
+            }
+            pixmap.dispose();
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public Pixmap.Format getFormat() {
+            return format;
+        }
+
+        @Override
+        public boolean useMipMaps() {
+            return useMipMaps;
+        }
+
+        @Override
+        public boolean isManaged() {
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+
+/**
+ * A file handle reading from the content of another file already read in memory,
+ * so that the file can be parsed more than once without reading it again.
+ * Methods used by font parsing are delegated to the other file, since the file handle
+ * implementation of the GWT backend doesn't support them on other file handles.
+ */
+final class MemoryFileHandle extends FileHandle {
+
+    private final FileHandle file;
+    private final byte[] bytes;
+
+
+    MemoryFileHandle(FileHandle file, byte[] bytes) {
+        // FileHandle.file() isn't supported on GWT, the path is used instead.
+        super(file.path(), file.type());
+        this.file = file;
+        this.bytes = bytes;
+    }
+
+
+    @Override
+    public InputStream read() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public byte[] readBytes() {
+        return bytes;
+    }
+
+    @Override
+    public long length() {
+        return bytes.length;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public FileType type() {
+        return file.type();
+    }
+
+    @Override
+    public String path() {
+        return file.path();
+    }
+
+    @Override
+    public String name() {
+        return file.name();
+    }
+
+    @Override
+    public String extension() {
+        return file.extension();
+    }
+
+    @Override
+    public String nameWithoutExtension() {
+        return file.nameWithoutExtension();
+    }
+
+    @Override
+    public FileHandle parent() {
+        return file.parent();
+    }
+
+    @Override
+    public FileHandle sibling(String name) {
+        return file.sibling(name);
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+}
@@ -0,0 +1,734 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Mesh.VertexDataType;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * A batch that passes the font style as vertex attributes instead of shader uniforms.
+ * Text drawn with different font styles can be rendered in a single draw call,
+ * as long as the font textures are the same. Changing the texture still flushes the batch.
+ * <p>
+ * The font style is set with {@link #setFontStyle(MsdfFont, FontStyle)} and applies
+ * to everything drawn until {@link #clearFontStyle()} is called. Anything drawn without
+ * a font style is drawn like with a {@link SpriteBatch}, so this batch can be used for a
+ * whole stage. {@link com.maltaisn.msdfgdx.widget.MsdfLabel} detects this batch and
+ * uses it instead of switching shaders.
+ * <p>
+ * The batch works like a {@link SpriteBatch} otherwise, with a custom vertex format.
+ * Custom shaders set with {@link #setShader(ShaderProgram)} only need to declare the
+ * attributes they use. Without a custom shader, the batch flushes and changes shader when
+ * the distance field type of the font changes, see {@link DistanceFieldType}.
+ */
+public class MsdfBatch implements Batch {
+
+    /**
+     * Number of floats per vertex: position, color, texture coordinates and style.
+     */
+    public static final int VERTEX_SIZE = 2 + 1 + 2 + StyleAttributes.SIZE;
+
+    /**
+     * Number of floats per sprite.
+     */
+    public static final int SPRITE_SIZE = 4 * VERTEX_SIZE;
+
+    private static final String TEXTURE_SIZE_UNIFORM = "u_textureSize";
+
+    private final Mesh mesh;
+
+    private final float[] vertices;
+    private int idx = 0;
+    private Texture lastTexture = null;
+    private float invTexWidth = 0;
+    private float invTexHeight = 0;
+
+    private boolean drawing = false;
+
+    private final Matrix4 transformMatrix = new Matrix4();
+    private final Matrix4 projectionMatrix = new Matrix4();
+    private final Matrix4 combinedMatrix = new Matrix4();
+
+    private boolean blendingDisabled = false;
+    private int blendSrcFunc = GL20.GL_SRC_ALPHA;
+    private int blendDstFunc = GL20.GL_ONE_MINUS_SRC_ALPHA;
+    private int blendSrcFuncAlpha = GL20.GL_SRC_ALPHA;
+    private int blendDstFuncAlpha = GL20.GL_ONE_MINUS_SRC_ALPHA;
+
+    private final ShaderProgram shader;
+    private ShaderProgram sdfShader = null;
+    private ShaderProgram customShader = null;
+    private final boolean ownsShader;
+    private DistanceFieldType fieldType = DistanceFieldType.MSDF;
+
+    private final Color color = new Color(1, 1, 1, 1);
+    private float colorPacked = Color.WHITE_FLOAT_BITS;
+
+    private final StyleAttributes style = new StyleAttributes();
+
+    // Corners of the last quad computed by computeCorners.
+    private final float[] corners = new float[8];
+
+    /**
+     * Number of render calls since the last {@link #begin()}.
+     */
+    public int renderCalls = 0;
+
+    /**
+     * Number of rendering calls, ever. Will not be reset unless set manually.
+     */
+    public int totalRenderCalls = 0;
+
+    /**
+     * The maximum number of sprites rendered in one batch so far.
+     */
+    public int maxSpritesInBatch = 0;
+
+
+    /**
+     * Create a batch with a size of 1000 and the default shader.
+     */
+    public MsdfBatch() {
+        this(1000, null);
+    }
+
+    /**
+     * Create a batch with the default shader.
+     *
+     * @param size The max number of sprites in a single batch. Max of 8191.
+     */
+    public MsdfBatch(int size) {
+        this(size, null);
+    }
+
+    /**
+     * Create a batch.
+     *
+     * @param size          The max number of sprites in a single batch. Max of 8191.
+     * @param defaultShader The default shader to use. This is not owned by the batch and must be disposed separately.
+     *                      If null, the shader from {@link #createDefaultShader()} is used.
+     *                      Text with {@link DistanceFieldType#SDF} fonts always uses the default SDF shader.
+     */
+    public MsdfBatch(int size, @Nullable ShaderProgram defaultShader) {
+        // 32767 is max vertex index, so 32767 / 4 vertices per sprite = 8191 sprites max.
+        if (size > 8191) throw new IllegalArgumentException("Can't have more than 8191 sprites per batch: " + size);
+
+        VertexDataType vertexDataType = (Gdx.gl30 != null)
+                ? VertexDataType.VertexBufferObjectWithVAO : VertexDataType.VertexArray;
+        mesh = new Mesh(vertexDataType, false, size * 4, size * 6, StyleAttributes.createVertexAttributes());
+
+        projectionMatrix.setToOrtho2D(0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+
+        vertices = new float[size * SPRITE_SIZE];
+
+        int len = size * 6;
+        short[] indices = new short[len];
+        short j = 0;
+        for (int i = 0; i < len; i += 6, j += 4) {
+            indices[i] = j;
+            indices[i + 1] = (short) (j + 1);
+            indices[i + 2] = (short) (j + 2);
+            indices[i + 3] = (short) (j + 2);
+            indices[i + 4] = (short) (j + 3);
+            indices[i + 5] = j;
+        }
+        mesh.setIndices(indices);
+
+        if (defaultShader == null) {
+            shader = createDefaultShader();
+            ownsShader = true;
+        } else {
+            shader = defaultShader;
+            ownsShader = false;
+        }
+    }
+
+    /**
+     * Create the default shader, which is the MSDF font shader with per-vertex style attributes.
+     */
+    @NotNull
+    public static ShaderProgram createDefaultShader() {
+        return createDefaultShader(DistanceFieldType.MSDF);
+    }
+
+    /**
+     * Create the default shader for a distance field type, with per-vertex style attributes.
+     */
+    @NotNull
+    public static ShaderProgram createDefaultShader(@NotNull DistanceFieldType fieldType) {
+        // Styles vary per vertex, so all effects are compiled and skipped per fragment when transparent.
+        String prefix = "#define PER_VERTEX_STYLE\n" + MsdfShader.getPrefix(fieldType, MsdfShader.FEATURES_ALL);
+        ShaderProgram shader = new ShaderProgram(
+                prefix + Gdx.files.classpath("font.vert").readString(),
+                prefix + Gdx.files.classpath("font.frag").readString());
+        if (!shader.isCompiled()) {
+            throw new GdxRuntimeException("Distance field font batch shader compilation failed: " + shader.getLog());
+        }
+        return shader;
+    }
+
+
+    /**
+     * Set the font and style used to draw text until {@link #clearFontStyle()} is called.
+     * The batch doesn't need to be flushed when the style changes.
+     */
+    public void setFontStyle(@NotNull MsdfFont font, @NotNull FontStyle style) {
+        setFontStyle(font, style, 0);
+    }
+
+    /**
+     * Set the font and style used to draw text on a page of the font until {@link #clearFontStyle()} is called.
+     * Pages of fallback fonts may have a different distance range, see {@link MsdfFont#getDistanceRange(int)}.
+     * The batch doesn't need to be flushed when the page changes.
+     */
+    public void setFontStyle(@NotNull MsdfFont font, @NotNull FontStyle style, int page) {
+        this.style.set(font, style, page);
+
+        if (font.getFieldType() != fieldType) {
+            // Fonts with a different distance field type are sampled differently, change the default shader.
+            if (drawing && customShader == null) {
+                flush();
+            }
+            fieldType = font.getFieldType();
+            if (fieldType == DistanceFieldType.SDF && sdfShader == null) {
+                sdfShader = createDefaultShader(DistanceFieldType.SDF);
+            }
+            if (drawing && customShader == null) {
+                getShader().bind();
+                setupMatrices();
+            }
+        }
+    }
+
+    /**
+     * Clear the font style, anything drawn afterwards is drawn as a regular sprite.
+     */
+    public void clearFontStyle() {
+        style.setSprite();
+    }
+
+    @Override
+    public void begin() {
+        if (drawing) throw new IllegalStateException("MsdfBatch.end must be called before begin.");
+        renderCalls = 0;
+
+        Gdx.gl.glDepthMask(false);
+        getShader().bind();
+        setupMatrices();
+
+        drawing = true;
+    }
+
+    @Override
+    public void end() {
+        if (!drawing) throw new IllegalStateException("MsdfBatch.begin must be called before end.");
+        if (idx > 0) flush();
+        lastTexture = null;
+        drawing = false;
+
+        GL20 gl = Gdx.gl;
+        gl.glDepthMask(true);
+        if (isBlendingEnabled()) gl.glDisable(GL20.GL_BLEND);
+    }
+
+    @Override
+    public void setColor(Color tint) {
+        color.set(tint);
+        colorPacked = tint.toFloatBits();
+    }
+
+    @Override
+    public void setColor(float r, float g, float b, float a) {
+        color.set(r, g, b, a);
+        colorPacked = color.toFloatBits();
+    }
+
+    @Override
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public void setPackedColor(float packedColor) {
+        Color.abgr8888ToColor(color, packedColor);
+        colorPacked = packedColor;
+    }
+
+    @Override
+    public float getPackedColor() {
+        return colorPacked;
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float originX, float originY, float width, float height,
+                     float scaleX, float scaleY, float rotation, int srcX, int srcY, int srcWidth, int srcHeight,
+                     boolean flipX, boolean flipY) {
+        prepare(texture);
+
+        float u = srcX * invTexWidth;
+        float v = (srcY + srcHeight) * invTexHeight;
+        float u2 = (srcX + srcWidth) * invTexWidth;
+        float v2 = srcY * invTexHeight;
+        if (flipX) {
+            float tmp = u;
+            u = u2;
+            u2 = tmp;
+        }
+        if (flipY) {
+            float tmp = v;
+            v = v2;
+            v2 = tmp;
+        }
+
+        computeCorners(x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+        float[] c = corners;
+        vertex(c[0], c[1], u, v);
+        vertex(c[2], c[3], u, v2);
+        vertex(c[4], c[5], u2, v2);
+        vertex(c[6], c[7], u2, v);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height, int srcX, int srcY,
+                     int srcWidth, int srcHeight, boolean flipX, boolean flipY) {
+        float u = srcX * invTexWidth(texture);
+        float v = (srcY + srcHeight) * invTexHeight;
+        float u2 = (srcX + srcWidth) * invTexWidth;
+        float v2 = srcY * invTexHeight;
+        if (flipX) {
+            float tmp = u;
+            u = u2;
+            u2 = tmp;
+        }
+        if (flipY) {
+            float tmp = v;
+            v = v2;
+            v2 = tmp;
+        }
+        draw(texture, x, y, width, height, u, v, u2, v2);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) {
+        float u = srcX * invTexWidth(texture);
+        float v = (srcY + srcHeight) * invTexHeight;
+        float u2 = (srcX + srcWidth) * invTexWidth;
+        float v2 = srcY * invTexHeight;
+        draw(texture, x, y, srcWidth, srcHeight, u, v, u2, v2);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height,
+                     float u, float v, float u2, float v2) {
+        prepare(texture);
+
+        float fx2 = x + width;
+        float fy2 = y + height;
+        vertex(x, y, u, v);
+        vertex(x, fy2, u, v2);
+        vertex(fx2, fy2, u2, v2);
+        vertex(fx2, y, u2, v);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.getWidth(), texture.getHeight());
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        draw(texture, x, y, width, height, 0, 1, 1, 0);
+    }
+
+    @Override
+    public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+        if (!drawing) throw new IllegalStateException("MsdfBatch.begin must be called before draw.");
+        if (texture != lastTexture) switchTexture(texture);
+
+        // Sprite vertices are in the SpriteBatch format, style attributes are added to each vertex.
+        float[] vertices = this.vertices;
+        int remaining = (vertices.length - idx) / SPRITE_SIZE;
+        while (count >= Sprite.SPRITE_SIZE) {
+            if (remaining == 0) {
+                flush();
+                remaining = vertices.length / SPRITE_SIZE;
+            }
+            int sprites = Math.min(remaining, count / Sprite.SPRITE_SIZE);
+            for (int i = sprites * 4; i > 0; i--) {
+                System.arraycopy(spriteVertices, offset, vertices, idx, Sprite.VERTEX_SIZE);
+                style.write(vertices, idx + Sprite.VERTEX_SIZE);
+                idx += VERTEX_SIZE;
+                offset += Sprite.VERTEX_SIZE;
+            }
+            count -= sprites * Sprite.SPRITE_SIZE;
+            remaining -= sprites;
+        }
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y) {
+        draw(region, x, y, region.getRegionWidth(), region.getRegionHeight());
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y, float width, float height) {
+        draw(region.getTexture(), x, y, width, height,
+                region.getU(), region.getV2(), region.getU2(), region.getV());
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y, float originX, float originY,
+                     float width, float height, float scaleX, float scaleY, float rotation) {
+        prepare(region.getTexture());
+
+        float u = region.getU();
+        float v = region.getV2();
+        float u2 = region.getU2();
+        float v2 = region.getV();
+
+        computeCorners(x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+        float[] c = corners;
+        vertex(c[0], c[1], u, v);
+        vertex(c[2], c[3], u, v2);
+        vertex(c[4], c[5], u2, v2);
+        vertex(c[6], c[7], u2, v);
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y, float originX, float originY,
+                     float width, float height, float scaleX, float scaleY, float rotation, boolean clockwise) {
+        prepare(region.getTexture());
+
+        float u1, v1, u2, v2, u3, v3, u4, v4;
+        if (clockwise) {
+            u1 = region.getU2();
+            v1 = region.getV2();
+            u2 = region.getU();
+            v2 = region.getV2();
+            u3 = region.getU();
+            v3 = region.getV();
+            u4 = region.getU2();
+            v4 = region.getV();
+        } else {
+            u1 = region.getU();
+            v1 = region.getV();
+            u2 = region.getU2();
+            v2 = region.getV();
+            u3 = region.getU2();
+            v3 = region.getV2();
+            u4 = region.getU();
+            v4 = region.getV2();
+        }
+
+        computeCorners(x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+        float[] c = corners;
+        vertex(c[0], c[1], u1, v1);
+        vertex(c[2], c[3], u2, v2);
+        vertex(c[4], c[5], u3, v3);
+        vertex(c[6], c[7], u4, v4);
+    }
+
+    @Override
+    public void draw(TextureRegion region, float width, float height, Affine2 transform) {
+        prepare(region.getTexture());
+
+        float u = region.getU();
+        float v = region.getV2();
+        float u2 = region.getU2();
+        float v2 = region.getV();
+
+        vertex(transform.m02, transform.m12, u, v);
+        vertex(transform.m01 * height + transform.m02,
+                transform.m11 * height + transform.m12, u, v2);
+        vertex(transform.m00 * width + transform.m01 * height + transform.m02,
+                transform.m10 * width + transform.m11 * height + transform.m12, u2, v2);
+        vertex(transform.m00 * width + transform.m02,
+                transform.m10 * width + transform.m12, u2, v);
+    }
+
+    @Override
+    public void flush() {
+        if (idx == 0) return;
+
+        renderCalls++;
+        totalRenderCalls++;
+        int spritesInBatch = idx / SPRITE_SIZE;
+        if (spritesInBatch > maxSpritesInBatch) maxSpritesInBatch = spritesInBatch;
+        int count = spritesInBatch * 6;
+
+        lastTexture.bind();
+
+        // The texture size is needed to convert the shadow offset to texture coordinates.
+        ShaderProgram shader = getShader();
+        int location = shader.fetchUniformLocation(TEXTURE_SIZE_UNIFORM, false);
+        if (location != -1) {
+            shader.setUniformf(location, lastTexture.getWidth(), lastTexture.getHeight());
+        }
+
+        Mesh mesh = this.mesh;
+        mesh.setVertices(vertices, 0, idx);
+
+        if (blendingDisabled) {
+            Gdx.gl.glDisable(GL20.GL_BLEND);
+        } else {
+            Gdx.gl.glEnable(GL20.GL_BLEND);
+            Gdx.gl.glBlendFuncSeparate(blendSrcFunc, blendDstFunc, blendSrcFuncAlpha, blendDstFuncAlpha);
+        }
+
+        mesh.render(shader, GL20.GL_TRIANGLES, 0, count);
+
+        idx = 0;
+    }
+
+    @Override
+    public void disableBlending() {
+        if (blendingDisabled) return;
+        flush();
+        blendingDisabled = true;
+    }
+
+    @Override
+    public void enableBlending() {
+        if (!blendingDisabled) return;
+        flush();
+        blendingDisabled = false;
+    }
+
+    @Override
+    public void setBlendFunction(int srcFunc, int dstFunc) {
+        setBlendFunctionSeparate(srcFunc, dstFunc, srcFunc, dstFunc);
+    }
+
+    @Override
+    public void setBlendFunctionSeparate(int srcFuncColor, int dstFuncColor, int srcFuncAlpha, int dstFuncAlpha) {
+        if (blendSrcFunc == srcFuncColor && blendDstFunc == dstFuncColor
+                && blendSrcFuncAlpha == srcFuncAlpha && blendDstFuncAlpha == dstFuncAlpha) return;
+        flush();
+        blendSrcFunc = srcFuncColor;
+        blendDstFunc = dstFuncColor;
+        blendSrcFuncAlpha = srcFuncAlpha;
+        blendDstFuncAlpha = dstFuncAlpha;
+    }
+
+    @Override
+    public int getBlendSrcFunc() {
+        return blendSrcFunc;
+    }
+
+    @Override
+    public int getBlendDstFunc() {
+        return blendDstFunc;
+    }
+
+    @Override
+    public int getBlendSrcFuncAlpha() {
+        return blendSrcFuncAlpha;
+    }
+
+    @Override
+    public int getBlendDstFuncAlpha() {
+        return blendDstFuncAlpha;
+    }
+
+    @Override
+    public Matrix4 getProjectionMatrix() {
+        return projectionMatrix;
+    }
+
+    @Override
+    public Matrix4 getTransformMatrix() {
+        return transformMatrix;
+    }
+
+    @Override
+    public void setProjectionMatrix(Matrix4 projection) {
+        if (drawing) flush();
+        projectionMatrix.set(projection);
+        if (drawing) setupMatrices();
+    }
+
+    @Override
+    public void setTransformMatrix(Matrix4 transform) {
+        if (drawing) flush();
+        transformMatrix.set(transform);
+        if (drawing) setupMatrices();
+    }
+
+    @Override
+    public void setShader(ShaderProgram shader) {
+        if (shader == customShader) return;
+        if (drawing) {
+            flush();
+        }
+        customShader = shader;
+        if (drawing) {
+            getShader().bind();
+            setupMatrices();
+        }
+    }
+
+    @Override
+    public ShaderProgram getShader() {
+        if (customShader != null) {
+            return customShader;
+        }
+        return fieldType == DistanceFieldType.SDF ? sdfShader : shader;
+    }
+
+    @Override
+    public boolean isBlendingEnabled() {
+        return !blendingDisabled;
+    }
+
+    @Override
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    @Override
+    public void dispose() {
+        mesh.dispose();
+        if (ownsShader) shader.dispose();
+        if (sdfShader != null) sdfShader.dispose();
+    }
+
+    private void setupMatrices() {
+        combinedMatrix.set(projectionMatrix).mul(transformMatrix);
+        ShaderProgram shader = getShader();
+        shader.setUniformMatrix("u_projTrans", combinedMatrix);
+        shader.setUniformi("u_texture", 0);
+    }
+
+    private void switchTexture(Texture texture) {
+        flush();
+        lastTexture = texture;
+        invTexWidth = 1f / texture.getWidth();
+        invTexHeight = 1f / texture.getHeight();
+    }
+
+    /**
+     * Returns the inverse of the width of a texture, also updating the inverse height.
+     * The values are only computed if the texture isn't the last texture.
+     */
+    private float invTexWidth(Texture texture) {
+        if (texture != lastTexture) {
+            invTexWidth = 1f / texture.getWidth();
+            invTexHeight = 1f / texture.getHeight();
+        }
+        return invTexWidth;
+    }
+
+    /**
+     * Check that the batch can accept a sprite drawn with a texture, flushing if needed.
+     */
+    private void prepare(Texture texture) {
+        if (!drawing) throw new IllegalStateException("MsdfBatch.begin must be called before draw.");
+        if (texture != lastTexture) {
+            switchTexture(texture);
+        } else if (idx == vertices.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Add a vertex with the current color and style.
+     */
+    private void vertex(float x, float y, float u, float v) {
+        float[] vertices = this.vertices;
+        int idx = this.idx;
+        vertices[idx] = x;
+        vertices[idx + 1] = y;
+        vertices[idx + 2] = colorPacked;
+        vertices[idx + 3] = u;
+        vertices[idx + 4] = v;
+        style.write(vertices, idx + 5);
+        this.idx = idx + VERTEX_SIZE;
+    }
+
+    /**
+     * Compute the corners of a scaled and rotated quad, counter clockwise from bottom left.
+     */
+    private void computeCorners(float x, float y, float originX, float originY, float width, float height,
+                                float scaleX, float scaleY, float rotation) {
+        // bottom left and top right corner points relative to origin
+        float worldOriginX = x + originX;
+        float worldOriginY = y + originY;
+        float fx = -originX;
+        float fy = -originY;
+        float fx2 = width - originX;
+        float fy2 = height - originY;
+
+        // scale
+        if (scaleX != 1 || scaleY != 1) {
+            fx *= scaleX;
+            fy *= scaleY;
+            fx2 *= scaleX;
+            fy2 *= scaleY;
+        }
+
+        float x1, y1, x2, y2, x3, y3, x4, y4;
+        if (rotation != 0) {
+            float cos = MathUtils.cosDeg(rotation);
+            float sin = MathUtils.sinDeg(rotation);
+            x1 = cos * fx - sin * fy;
+            y1 = sin * fx + cos * fy;
+            x2 = cos * fx - sin * fy2;
+            y2 = sin * fx + cos * fy2;
+            x3 = cos * fx2 - sin * fy2;
+            y3 = sin * fx2 + cos * fy2;
+            x4 = x1 + (x3 - x2);
+            y4 = y3 - (y2 - y1);
+        } else {
+            x1 = fx;
+            y1 = fy;
+            x2 = fx;
+            y2 = fy2;
+            x3 = fx2;
+            y3 = fy2;
+            x4 = fx2;
+            y4 = fy;
+        }
+
+        float[] c = corners;
+        c[0] = x1 + worldOriginX;
+        c[1] = y1 + worldOriginY;
+        c[2] = x2 + worldOriginX;
+        c[3] = y2 + worldOriginY;
+        c[4] = x3 + worldOriginX;
+        c[5] = y3 + worldOriginY;
+        c[6] = x4 + worldOriginX;
+        c[7] = y4 + worldOriginY;
+    }
+
+}
@@ -16,14 +16,22 @@
 
 package com.maltaisn.msdfgdx;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 
 /**
@@ -32,6 +40,8 @@ import org.jetbrains.annotations.NotNull;
  */
 public final class MsdfFont implements Disposable {
 
+    private static final Array<MsdfFont> EMPTY_FALLBACKS = new Array<MsdfFont>(0);
+
     /**
      * The underlying bitmap font, never null.
      */
@@ -52,40 +62,154 @@ public final class MsdfFont implements Disposable {
      */
     private final float distanceRange;
 
+    /**
+     * The type of distance field in the font pages, which determines how the shader samples them.
+     */
+    @NotNull
+    private final DistanceFieldType fieldType;
+
+    /**
+     * Fonts used for the characters this font has no glyph for, in order, or null if none were added.
+     */
+    @Nullable
+    private Array<MsdfFont> fallbacks;
+
+    /**
+     * The distance range of each page in the units of this font, for pages of fallback fonts,
+     * or null if there are no fallbacks. Pages not in the array have the distance range of this font.
+     */
+    @Nullable
+    private FloatArray pageDistanceRanges;
+
+    /**
+     * The first and last page of each fallback font in the pages of this font, or null if there are no fallbacks.
+     */
+    @Nullable
+    private IntArray fallbackPages;
+
+
+    /**
+     * Create a font from a text or binary font file. The glyph size and distance range are
+     * read from the file, see {@link MsdfFontData}. The font pages are loaded from the files
+     * referenced in the font file.
+     */
+    public MsdfFont(@NotNull FileHandle fontFile) {
+        this(new MsdfFontData(fontFile, false));
+    }
+
+    /**
+     * Create a font from a text or binary font file, like {@link #MsdfFont(FileHandle)}.
+     * If lazy, the font pages are only decoded and uploaded when first drawn, see {@link #loadTextures()}.
+     */
+    public MsdfFont(@NotNull FileHandle fontFile, boolean lazy) {
+        this(new MsdfFontData(fontFile, false), lazy);
+    }
+
+    /**
+     * Create a font from font data, loading the font pages from the files referenced in the data.
+     */
+    public MsdfFont(@NotNull MsdfFontData data) {
+        this(data, false);
+    }
+
+    /**
+     * Create a font from font data, with the font pages from the files referenced in the data.
+     * If lazy, the metrics are available immediately for layout, but the pages are only decoded and
+     * uploaded when first drawn or when {@link #loadTextures()} is called. Lazy pages must be PNG images.
+     */
+    public MsdfFont(@NotNull MsdfFontData data, boolean lazy) {
+        this(new BitmapFont(data, lazy ? getLazyFontRegionsFromFiles(data)
+                        : getFontRegionsFromFiles(data), true),
+                data.getGlyphSize(), data.getDistanceRange(), data.getFieldType());
+        font.setOwnsTexture(true);
+
+        if (glyphSize <= 0f) throw new GdxRuntimeException("Glyph size must be greater than zero.");
+        if (distanceRange <= 0f) throw new GdxRuntimeException("Distance range must be greater than zero.");
+    }
+
+    /**
+     * Create a font from font data and a texture atlas containing its pages, for example an atlas
+     * shared by several fonts and other images so that they can be drawn without changing texture.
+     * See {@link #getFontRegionsFromAtlas(BitmapFontData, TextureAtlas)}. The atlas isn't owned by the font.
+     */
+    public MsdfFont(@NotNull MsdfFontData data, @NotNull TextureAtlas atlas) {
+        this(data, getFontRegionsFromAtlas(data, atlas), data.getGlyphSize(), data.getDistanceRange());
+
+        if (glyphSize <= 0f) throw new GdxRuntimeException("Glyph size must be greater than zero.");
+        if (distanceRange <= 0f) throw new GdxRuntimeException("Distance range must be greater than zero.");
+    }
 
     /**
      * Create a font from a .fnt file and a .png image file with the same name.
+     * If the font has multiple pages, they are loaded from the files referenced in the font file.
      */
     public MsdfFont(@NotNull FileHandle fontFile, float glyphSize, float distanceRange) {
-        this(fontFile, fontFile.sibling(fontFile.nameWithoutExtension() + ".png"),
-                glyphSize, distanceRange);
+        this(new MsdfFontData(fontFile, false), glyphSize, distanceRange);
+    }
+
+    private MsdfFont(MsdfFontData data, float glyphSize, float distanceRange) {
+        this(data, data.imagePaths.length > 1 ? getFontRegionsFromFiles(data)
+                : getFontRegionsFromFile(data.fontFile.sibling(data.fontFile.nameWithoutExtension() + ".png"),
+                data.getFieldType()), glyphSize, distanceRange);
+        font.setOwnsTexture(true);
+    }
+
+    /**
+     * Create a font from a .fnt file or a binary font file, and a texture region for each page.
+     */
+    public MsdfFont(@NotNull FileHandle fontFile, @NotNull Array<TextureRegion> fontRegions,
+                    float glyphSize, float distanceRange) {
+        this(new MsdfFontData(fontFile, false), fontRegions, glyphSize, distanceRange);
+    }
+
+    private MsdfFont(MsdfFontData data, Array<TextureRegion> fontRegions, float glyphSize, float distanceRange) {
+        this(new BitmapFont(data, fontRegions, true), glyphSize, distanceRange, data.getFieldType());
     }
 
     /**
-     * Create a font from a .fnt file and an image file.
+     * Create a font from a .fnt file or a binary font file, and an image file.
      */
     public MsdfFont(@NotNull FileHandle fontFile, @NotNull FileHandle fontRegionFile,
                     float glyphSize, float distanceRange) {
-        this(fontFile, getFontRegionFromFile(fontRegionFile), glyphSize, distanceRange);
+        this(new MsdfFontData(fontFile, false), fontRegionFile, glyphSize, distanceRange);
+    }
+
+    private MsdfFont(MsdfFontData data, FileHandle fontRegionFile, float glyphSize, float distanceRange) {
+        this(data, getFontRegionFromFile(fontRegionFile, data.getFieldType()), glyphSize, distanceRange);
     }
 
     /**
-     * Create a font from a .fnt file and a texture region.
+     * Create a font from a .fnt file or a binary font file, and a texture region.
      */
     public MsdfFont(@NotNull FileHandle fontFile, @NotNull TextureRegion fontRegion,
                     float glyphSize, float distanceRange) {
-        this(new BitmapFont(fontFile, fontRegion), glyphSize, distanceRange);
+        this(new MsdfFontData(fontFile, false), fontRegion, glyphSize, distanceRange);
+    }
+
+    private MsdfFont(MsdfFontData data, TextureRegion fontRegion, float glyphSize, float distanceRange) {
+        this(new BitmapFont(data, fontRegion, true), glyphSize, distanceRange, data.getFieldType());
     }
 
     /**
-     * Create a font from a bitmap font.
+     * Create a font from a bitmap font with a MSDF atlas.
      */
     public MsdfFont(@NotNull BitmapFont font, float glyphSize, float distanceRange) {
+        this(font, glyphSize, distanceRange, DistanceFieldType.MSDF);
+    }
+
+    /**
+     * Create a font from a bitmap font.
+     */
+    public MsdfFont(@NotNull BitmapFont font, float glyphSize, float distanceRange,
+                    @NotNull DistanceFieldType fieldType) {
         //noinspection ConstantConditions
         if (font == null) throw new NullPointerException("Font cannot be null");
+        //noinspection ConstantConditions
+        if (fieldType == null) throw new NullPointerException("Field type cannot be null");
         this.font = font;
         this.glyphSize = glyphSize;
         this.distanceRange = distanceRange;
+        this.fieldType = fieldType;
     }
 
 
@@ -102,13 +226,251 @@ public final class MsdfFont implements Disposable {
         return distanceRange;
     }
 
+    @NotNull
+    public DistanceFieldType getFieldType() {
+        return fieldType;
+    }
+
+    /**
+     * Returns the distance range of a page of this font, in the units of this font. This is the distance
+     * range of the font, except for pages of fallback fonts with a different ratio of distance range to glyph size.
+     * The distance factor of the shader for a page is {@code getDistanceRange(page) * style.getSize() / getGlyphSize()}.
+     */
+    public float getDistanceRange(int page) {
+        if (pageDistanceRanges != null && page < pageDistanceRanges.size) {
+            return pageDistanceRanges.get(page);
+        }
+        return distanceRange;
+    }
+
+    /**
+     * Add a font to the fallback chain, used for the characters that neither this font nor the fallbacks added
+     * before have a glyph for. Glyphs of the fallback are copied to this font when it's added, scaled to the
+     * glyph size of this font and aligned on its baseline, so that characters are resolved in constant time during
+     * layout and text mixing both fonts is laid out as a single text. The pages of the fallback are added to
+     * the pages of this font, and text is drawn page by page like for any font with multiple pages.
+     * <p>
+     * Fallbacks must be added before any label or font cache uses the font, since font caches have a fixed
+     * number of pages. Glyphs the fallback gets afterwards, including from its dynamic atlas, aren't added.
+     * The fallback isn't owned by this font, and must be disposed separately.
+     *
+     * @throws IllegalArgumentException If the fallback has another distance field type, since it would need
+     * another shader, or if it's already in the chain.
+     * @throws GdxRuntimeException If either font wasn't created from {@link MsdfFontData}, or if only one is flipped.
+     */
+    public void addFallback(@NotNull MsdfFont fallback) {
+        //noinspection ConstantConditions
+        if (fallback == null) throw new NullPointerException("Fallback cannot be null");
+        if (fallback == this || fallbacks != null && fallbacks.contains(fallback, true)) {
+            throw new IllegalArgumentException("Font is already in the fallback chain.");
+        }
+        if (fallback.fieldType != fieldType) {
+            throw new IllegalArgumentException("Fallback font must have the same distance field type.");
+        }
+        BitmapFont.BitmapFontData data = font.getData();
+        BitmapFont.BitmapFontData fallbackData = fallback.font.getData();
+        if (!(data instanceof MsdfFontData) || !(fallbackData instanceof MsdfFontData)) {
+            throw new GdxRuntimeException("Fallback fonts require fonts created from MsdfFontData.");
+        }
+        if (data.flipped != fallbackData.flipped) {
+            throw new GdxRuntimeException("Fallback font must be flipped like the font.");
+        }
+
+        if (fallbacks == null) {
+            fallbacks = new Array<MsdfFont>(4);
+            pageDistanceRanges = new FloatArray();
+            fallbackPages = new IntArray();
+        }
+        fallbacks.add(fallback);
+
+        Array<TextureRegion> regions = font.getRegions();
+        int pageOffset = regions.size;
+        regions.addAll(fallback.font.getRegions());
+        while (pageDistanceRanges.size < pageOffset) {
+            pageDistanceRanges.add(distanceRange);
+        }
+        float range = fallback.distanceRange * glyphSize / fallback.glyphSize;
+        for (int i = pageOffset; i < regions.size; i++) {
+            pageDistanceRanges.add(range);
+        }
+        fallbackPages.add(pageOffset, regions.size - 1);
+
+        DynamicAtlas atlas = fallback.getDynamicAtlas();
+        ((MsdfFontData) data).addFallbackGlyphs((MsdfFontData) fallbackData, fallbacks.size,
+                pageOffset, atlas != null ? atlas.getPage() : -1);
+    }
+
+    /**
+     * Returns the fallback fonts in the order they were added. The array must not be modified.
+     */
+    @NotNull
+    public Array<MsdfFont> getFallbacks() {
+        return fallbacks != null ? fallbacks : EMPTY_FALLBACKS;
+    }
+
+    /**
+     * Returns the index of the font drawing a character: 0 for this font, {@code i + 1} for the fallback
+     * at index {@code i} in {@link #getFallbacks()}, or -1 if no font has a glyph for it.
+     */
+    public int getFontIndex(char ch) {
+        BitmapFont.BitmapFontData data = font.getData();
+        if (data instanceof MsdfFontData) {
+            return ((MsdfFontData) data).getFontIndex(ch);
+        }
+        return data.getGlyph(ch) != null ? 0 : -1;
+    }
+
+    /**
+     * Returns the number of pages of the font, including the page of its dynamic atlas
+     * and the pages of its fallback fonts if any. Pages may have different sizes.
+     */
+    public int getPageCount() {
+        return font.getRegions().size;
+    }
+
+    /**
+     * Returns the dynamic atlas of the font, or null if it has none. See {@link DynamicAtlas}.
+     */
+    @Nullable
+    public DynamicAtlas getDynamicAtlas() {
+        BitmapFont.BitmapFontData data = font.getData();
+        return data instanceof MsdfFontData ? ((MsdfFontData) data).dynamicAtlas : null;
+    }
+
+    /**
+     * Decode and upload the pages of a font created lazily, including the pages of lazy fallback fonts,
+     * if not already loaded. This can be called ahead of time, for example during a loading screen,
+     * to avoid the delay when the text is first drawn. Pages that aren't lazy are always loaded.
+     */
+    public void loadTextures() {
+        Array<TextureRegion> regions = font.getRegions();
+        for (int i = 0; i < regions.size; i++) {
+            Texture texture = regions.get(i).getTexture();
+            if (texture instanceof LazyTexture) {
+                ((LazyTexture) texture).loadImage();
+            }
+        }
+    }
+
+    /**
+     * Release the pages of a font created lazily from video memory, including the pages of lazy fallback fonts.
+     * Metrics are kept so that text can still be laid out, and the pages are loaded again when next drawn.
+     * Pages that aren't lazy, like pages from a texture atlas, are kept.
+     */
+    public void unloadTextures() {
+        Array<TextureRegion> regions = font.getRegions();
+        for (int i = 0; i < regions.size; i++) {
+            Texture texture = regions.get(i).getTexture();
+            if (texture instanceof LazyTexture) {
+                ((LazyTexture) texture).unloadImage();
+            }
+        }
+    }
+
+    /**
+     * Returns whether all the pages of the font are in video memory, which is always the case if it wasn't created lazily.
+     */
+    public boolean isTextureLoaded() {
+        Array<TextureRegion> regions = font.getRegions();
+        for (int i = 0; i < regions.size; i++) {
+            Texture texture = regions.get(i).getTexture();
+            if (texture instanceof LazyTexture && !((LazyTexture) texture).isImageLoaded()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void dispose() {
+        if (fallbackPages != null) {
+            // Pages of the fallbacks are owned by them.
+            Array<TextureRegion> regions = font.getRegions();
+            for (int i = fallbackPages.size - 2; i >= 0; i -= 2) {
+                regions.removeRange(fallbackPages.get(i), fallbackPages.get(i + 1));
+            }
+            fallbackPages = null;
+        }
         font.dispose();
+        DynamicAtlas atlas = getDynamicAtlas();
+        if (atlas != null) {
+            atlas.dispose();
+        }
+    }
+
+    /**
+     * Returns the regions of the pages of a font in a texture atlas. Each page is found by the name
+     * of its file without extension, which is the region name given by the TexturePacker.
+     *
+     * @throws GdxRuntimeException If a page isn't in the atlas.
+     */
+    @NotNull
+    public static Array<TextureRegion> getFontRegionsFromAtlas(@NotNull BitmapFontData data,
+                                                               @NotNull TextureAtlas atlas) {
+        Array<TextureRegion> regions = new Array<TextureRegion>(data.imagePaths.length);
+        for (String path : data.imagePaths) {
+            String name = getPageName(path);
+            TextureAtlas.AtlasRegion region = atlas.findRegion(name);
+            if (region == null) {
+                throw new GdxRuntimeException("Could not find font region " + name + " in atlas.");
+            }
+            regions.add(region);
+        }
+        return regions;
+    }
+
+    /**
+     * Returns the name of a page file without directories and extension.
+     */
+    private static String getPageName(String path) {
+        int start = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1;
+        int end = path.lastIndexOf('.');
+        return path.substring(start, end > start ? end : path.length());
+    }
+
+    private static Array<TextureRegion> getFontRegionsFromFiles(MsdfFontData data) {
+        Array<TextureRegion> regions = new Array<TextureRegion>(data.imagePaths.length);
+        for (String path : data.imagePaths) {
+            regions.add(getFontRegionFromFile(Gdx.files.getFileHandle(path, data.fontFile.type()),
+                    data.getFieldType()));
+        }
+        return regions;
+    }
+
+    /**
+     * Returns the regions of the pages of a font, with textures only loaded when first bound.
+     * The textures have the same format and filters as textures loaded from files.
+     */
+    static Array<TextureRegion> getLazyFontRegionsFromFiles(FileHandle[] files, DistanceFieldType fieldType,
+                                                            boolean genMipMaps, Texture.TextureFilter minFilter,
+                                                            Texture.TextureFilter magFilter) {
+        Pixmap.Format format = fieldType == DistanceFieldType.SDF ? Pixmap.Format.Alpha : Pixmap.Format.RGBA8888;
+        Array<TextureRegion> regions = new Array<TextureRegion>(files.length);
+        for (FileHandle file : files) {
+            regions.add(new TextureRegion(new LazyTexture(file, format, genMipMaps, minFilter, magFilter)));
+        }
+        return regions;
+    }
+
+    private static Array<TextureRegion> getLazyFontRegionsFromFiles(MsdfFontData data) {
+        FileHandle[] files = new FileHandle[data.imagePaths.length];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = Gdx.files.getFileHandle(data.imagePaths[i], data.fontFile.type());
+        }
+        return getLazyFontRegionsFromFiles(files, data.getFieldType(), true,
+                Texture.TextureFilter.MipMapLinearNearest, Texture.TextureFilter.Linear);
+    }
+
+    private static Array<TextureRegion> getFontRegionsFromFile(FileHandle file, DistanceFieldType fieldType) {
+        Array<TextureRegion> regions = new Array<TextureRegion>(1);
+        regions.add(getFontRegionFromFile(file, fieldType));
+        return regions;
     }
 
-    private static TextureRegion getFontRegionFromFile(FileHandle file) {
-        Texture texture = new Texture(file, Pixmap.Format.RGBA8888, true);
+    private static TextureRegion getFontRegionFromFile(FileHandle file, DistanceFieldType fieldType) {
+        // SDF only needs the alpha channel. Single channel images are already loaded in that format.
+        Pixmap.Format format = fieldType == DistanceFieldType.SDF ? Pixmap.Format.Alpha : Pixmap.Format.RGBA8888;
+        Texture texture = new Texture(file, format, true);
         texture.setFilter(Texture.TextureFilter.MipMapLinearNearest, Texture.TextureFilter.Linear);
         return new TextureRegion(texture);
     }
@@ -119,6 +481,7 @@ public final class MsdfFont implements Disposable {
                 "font=" + font +
                 ", glyphSize=" + glyphSize +
                 ", distanceRange=" + distanceRange +
+                ", fieldType=" + fieldType +
                 '}';
     }
 
@@ -0,0 +1,478 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout.GlyphRun;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+
+/**
+ * Bitmap font data with the values needed to render distance field text.
+ * The data can be loaded from a text {@code .fnt} file or from a binary
+ * font file with the {@code .msdfbin} extension, see {@link BinaryFontFormat}.
+ * <p>
+ * In a text file, the glyph size is read from the {@code size} attribute of the info tag and the
+ * distance range is read from the {@code distanceRange} attribute of the common tag. Both are zero
+ * if not defined in the file. The distance field type is read from the {@code fieldType} attribute
+ * of the common tag, and is MSDF if not defined.
+ */
+public class MsdfFontData extends BitmapFontData {
+
+    // Same paging as BitmapFontData glyphs.
+    private static final int LOG2_PAGE_SIZE = 9;
+    private static final int PAGE_SIZE = 1 << LOG2_PAGE_SIZE;
+    private static final int PAGES = 0x10000 / PAGE_SIZE;
+
+    float glyphSize;
+    float distanceRange;
+    @NotNull DistanceFieldType fieldType = DistanceFieldType.MSDF;
+    int pageWidth;
+    int pageHeight;
+
+    @Nullable
+    DynamicAtlas dynamicAtlas;
+
+    @Nullable
+    private KerningTable kerningTable;
+
+    // Glyphs of fallback fonts for characters this font has no glyph for, paged like the glyphs.
+    // Glyphs are converted to the metrics of this font when the fallback is added, see addFallbackGlyphs.
+    @Nullable
+    private FallbackGlyph[][] fallbackGlyphs;
+
+
+    /**
+     * Create empty font data, to be populated manually.
+     */
+    public MsdfFontData() {
+        // Default constructor
+    }
+
+    /**
+     * Load font data from a text or binary font file.
+     */
+    public MsdfFontData(@NotNull FileHandle fontFile, boolean flip) {
+        this.fontFile = fontFile;
+        this.flipped = flip;
+        load(fontFile, flip);
+    }
+
+    /**
+     * Load font data from the content of a text or binary font file already in memory.
+     * The file is only used for its extension and to resolve the paths of the font pages.
+     */
+    public MsdfFontData(@NotNull FileHandle fontFile, @NotNull byte[] content, boolean flip) {
+        this.fontFile = fontFile;
+        this.flipped = flip;
+        load(new MemoryFileHandle(fontFile, content), flip);
+        this.fontFile = fontFile;
+    }
+
+    @Override
+    public void load(FileHandle fontFile, boolean flip) {
+        kerningTable = null;
+        fallbackGlyphs = null;
+        if (BinaryFontFormat.EXTENSION.equals(fontFile.extension())) {
+            BinaryFontFormat.read(this, fontFile, flip);
+            return;
+        }
+
+        // Read the file once, then parse it for the bitmap font data and for the distance field values.
+        byte[] bytes = fontFile.readBytes();
+        super.load(new MemoryFileHandle(fontFile, bytes), flip);
+        this.fontFile = fontFile;
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(bytes)), 512);
+        try {
+            String infoLine = reader.readLine();
+            glyphSize = parseIntAttribute(infoLine, "size");
+
+            String commonLine = reader.readLine();
+            parseCommonLine(this, commonLine);
+
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error loading font file: " + fontFile, e);
+        } finally {
+            StreamUtils.closeQuietly(reader);
+        }
+    }
+
+    @Override
+    public Glyph getGlyph(char ch) {
+        Glyph glyph = super.getGlyph(ch);
+        if (dynamicAtlas != null && (glyph == null || glyph.page == dynamicAtlas.getPage())) {
+            glyph = dynamicAtlas.getGlyph(ch, glyph);
+        }
+        if (glyph == null && fallbackGlyphs != null) {
+            return getFallbackGlyph(ch);
+        }
+        return glyph;
+    }
+
+    @Nullable
+    private FallbackGlyph getFallbackGlyph(char ch) {
+        FallbackGlyph[] page = fallbackGlyphs[ch >>> LOG2_PAGE_SIZE];
+        return page != null ? page[ch & PAGE_SIZE - 1] : null;
+    }
+
+    /**
+     * Returns the glyph for a character from this font or from a fallback, without adding it to the dynamic atlas.
+     */
+    @Nullable
+    private Glyph getLoadedGlyph(char ch) {
+        Glyph glyph = super.getGlyph(ch);
+        return glyph == null && fallbackGlyphs != null ? getFallbackGlyph(ch) : glyph;
+    }
+
+    /**
+     * Returns the index of the font the glyph for a character comes from in the fallback chain,
+     * 0 for this font, or -1 if no font has a glyph for it.
+     */
+    int getFontIndex(char ch) {
+        Glyph glyph = getGlyph(ch);
+        if (glyph == null) return -1;
+        return glyph instanceof FallbackGlyph ? ((FallbackGlyph) glyph).fontIndex : 0;
+    }
+
+    /**
+     * Add the glyphs of a fallback font for the characters that neither this font nor previous fallbacks
+     * have a glyph for. The dynamic atlas of this font, if any, still has priority over fallbacks.
+     * Glyphs are copied with their metrics scaled to the glyph size of this font and aligned on its baseline,
+     * and kernings are kept for pairs of characters that both come from the fallback.
+     *
+     * @param fallback   The fallback font data.
+     * @param fontIndex  The index of the fallback in the chain, starting at 1.
+     * @param pageOffset The index of the first page of the fallback in the regions of this font.
+     * @param skipPage   A page of the fallback whose glyphs aren't copied, like its dynamic atlas page, or -1.
+     */
+    void addFallbackGlyphs(@NotNull MsdfFontData fallback, int fontIndex, int pageOffset, int skipPage) {
+        if (fallbackGlyphs == null) {
+            fallbackGlyphs = new FallbackGlyph[PAGES][];
+        }
+        float scale = glyphSize / fallback.glyphSize;
+        float baseline = getBaseline(this);
+        float fallbackBaseline = getBaseline(fallback);
+        float direction = flipped ? -1f : 1f;
+
+        for (Glyph[] page : fallback.glyphs) {
+            if (page == null) continue;
+            for (Glyph src : page) {
+                if (src == null || src.page == skipPage || getLoadedGlyph((char) src.id) != null) continue;
+
+                FallbackGlyph glyph = new FallbackGlyph(fontIndex);
+                glyph.id = src.id;
+                glyph.srcX = src.srcX;
+                glyph.srcY = src.srcY;
+                glyph.width = Math.round(src.width * scale);
+                glyph.height = Math.round(src.height * scale);
+                glyph.u = src.u;
+                glyph.v = src.v;
+                glyph.u2 = src.u2;
+                glyph.v2 = src.v2;
+                glyph.xoffset = Math.round(src.xoffset * scale);
+                glyph.yoffset = Math.round((src.yoffset + direction * fallbackBaseline) * scale - direction * baseline);
+                glyph.xadvance = Math.round(src.xadvance * scale);
+                glyph.fixedWidth = src.fixedWidth;
+                glyph.page = pageOffset + src.page;
+
+                FallbackGlyph[] dstPage = fallbackGlyphs[src.id >>> LOG2_PAGE_SIZE];
+                if (dstPage == null) {
+                    dstPage = new FallbackGlyph[PAGE_SIZE];
+                    fallbackGlyphs[src.id >>> LOG2_PAGE_SIZE] = dstPage;
+                }
+                dstPage[src.id & PAGE_SIZE - 1] = glyph;
+            }
+        }
+
+        // Kernings, only between glyphs both taken from the fallback.
+        KerningTable kernings = fallback.kerningTable != null
+                ? fallback.kerningTable : KerningTable.fromGlyphs(fallback, false);
+        int[] pairs = kernings.toArray();
+        for (int i = 0; i < pairs.length; i += 2) {
+            char first = (char) (pairs[i] >>> 16);
+            char second = (char) pairs[i];
+            Glyph glyph = getLoadedGlyph(first);
+            Glyph secondGlyph = getLoadedGlyph(second);
+            if (glyph instanceof FallbackGlyph && ((FallbackGlyph) glyph).fontIndex == fontIndex
+                    && secondGlyph instanceof FallbackGlyph && ((FallbackGlyph) secondGlyph).fontIndex == fontIndex) {
+                glyph.setKerning(second, Math.round(pairs[i + 1] * scale));
+            }
+        }
+    }
+
+    /**
+     * Returns the distance from the top of a line to the baseline, in font units.
+     */
+    private static float getBaseline(MsdfFontData data) {
+        return (data.flipped ? -data.ascent : data.ascent) + data.capHeight;
+    }
+
+    /**
+     * Move the kernings from the glyphs to a {@link KerningTable}, which uses less memory for fonts with
+     * many kerning pairs. Layout then gets kernings from the table. Kernings set on glyphs afterwards are ignored.
+     *
+     * @return The kerning table, which can be used to compare the memory used by both representations.
+     */
+    @NotNull
+    public KerningTable compactKernings() {
+        if (kerningTable == null) {
+            kerningTable = KerningTable.fromGlyphs(this, true);
+        }
+        return kerningTable;
+    }
+
+    /**
+     * Returns the kerning table if the kernings were compacted, or null if they are stored in the glyphs.
+     */
+    @Nullable
+    public KerningTable getKerningTable() {
+        return kerningTable;
+    }
+
+    /**
+     * Returns the kerning between two glyphs, from the kerning table if there's one.
+     */
+    public int getKerning(@NotNull Glyph first, char second) {
+        // Kernings of fallback glyphs are always stored in the glyphs.
+        return kerningTable != null && !(first instanceof FallbackGlyph)
+                ? kerningTable.get((char) first.id, second) : first.getKerning(second);
+    }
+
+    @Override
+    public void getGlyphs(GlyphRun run, CharSequence str, int start, int end, Glyph lastGlyph) {
+        if (kerningTable == null) {
+            super.getGlyphs(run, str, start, end, lastGlyph);
+            return;
+        }
+
+        // Same as BitmapFontData.getGlyphs(), except that kernings are obtained from the table.
+        int max = end - start;
+        if (max == 0) return;
+        boolean markupEnabled = this.markupEnabled;
+        float scaleX = this.scaleX;
+        Array<Glyph> glyphs = run.glyphs;
+        FloatArray xAdvances = run.xAdvances;
+
+        glyphs.ensureCapacity(max);
+        xAdvances.ensureCapacity(max + 1);
+
+        do {
+            char ch = str.charAt(start++);
+            if (ch == '\r') continue;
+            Glyph glyph = getGlyph(ch);
+            if (glyph == null) {
+                if (missingGlyph == null) continue;
+                glyph = missingGlyph;
+            }
+
+            glyphs.add(glyph);
+
+            if (lastGlyph == null) {
+                // First glyph on line, adjust the position so it isn't drawn left of 0.
+                xAdvances.add(glyph.fixedWidth ? 0 : -glyph.xoffset * scaleX - padLeft);
+            } else {
+                xAdvances.add((lastGlyph.xadvance + getKerning(lastGlyph, ch)) * scaleX);
+            }
+            lastGlyph = glyph;
+
+            // "[[" is an escaped left square bracket, skip second character.
+            if (markupEnabled && ch == '[' && start < end && str.charAt(start) == '[') start++;
+        } while (start < end);
+        if (lastGlyph != null) {
+            float lastGlyphWidth = lastGlyph.fixedWidth ? lastGlyph.xadvance * scaleX
+                    : (lastGlyph.width + lastGlyph.xoffset) * scaleX - padRight;
+            xAdvances.add(lastGlyphWidth);
+        }
+    }
+
+    private static void parseCommonLine(MsdfFontData data, String commonLine) {
+        data.distanceRange = parseIntAttribute(commonLine, "distanceRange");
+        data.fieldType = DistanceFieldType.fromValue(parseStringAttribute(commonLine, "fieldType"));
+        data.pageWidth = parseIntAttribute(commonLine, "scaleW");
+        data.pageHeight = parseIntAttribute(commonLine, "scaleH");
+    }
+
+    /**
+     * Read the header of a text or binary font file, without parsing the glyphs. The returned data only
+     * has the glyph size, the distance range, the field type, the page size and the page paths set.
+     */
+    @NotNull
+    static MsdfFontData readHeader(@NotNull FileHandle fontFile) {
+        if (BinaryFontFormat.EXTENSION.equals(fontFile.extension())) {
+            return BinaryFontFormat.readHeader(fontFile);
+        }
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(fontFile.read()), 512);
+        try {
+            MsdfFontData data = new MsdfFontData();
+            data.fontFile = fontFile;
+
+            String infoLine = reader.readLine();
+            if (infoLine == null) throw new GdxRuntimeException("File is empty.");
+            data.glyphSize = parseIntAttribute(infoLine, "size");
+
+            String commonLine = reader.readLine();
+            if (commonLine == null) throw new GdxRuntimeException("Missing common header.");
+            parseCommonLine(data, commonLine);
+
+            int pageCount = parseIntAttribute(commonLine, "pages");
+            data.imagePaths = new String[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                String pageLine = reader.readLine();
+                if (pageLine == null) throw new GdxRuntimeException("Missing additional page definitions.");
+                int id = parseIntAttribute(pageLine, "id");
+                if (id < 0 || id >= pageCount) throw new GdxRuntimeException("Invalid page id: " + id);
+                String fileName = parseStringAttribute(pageLine, "file");
+                if (fileName == null) throw new GdxRuntimeException("Missing: file");
+                data.imagePaths[id] = fontFile.parent().child(fileName).path().replaceAll("\\\\", "/");
+            }
+            return data;
+
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Error loading font file: " + fontFile, e);
+        } catch (GdxRuntimeException e) {
+            throw new GdxRuntimeException("Error loading font file: " + fontFile, e);
+        } finally {
+            StreamUtils.closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Returns the value of an integer attribute in a line of a text font file, or zero if not defined.
+     */
+    static int parseIntAttribute(String line, String name) {
+        int start = line.indexOf(' ' + name + '=');
+        if (start == -1) {
+            return 0;
+        }
+        start += name.length() + 2;
+        int end = line.indexOf(' ', start);
+        if (end == -1) end = line.length();
+        return Integer.parseInt(line.substring(start, end));
+    }
+
+    /**
+     * Returns the value of a string attribute in a line of a text font file,
+     * without the quotes if any, or null if not defined.
+     */
+    static String parseStringAttribute(String line, String name) {
+        int start = line.indexOf(' ' + name + '=');
+        if (start == -1) {
+            return null;
+        }
+        start += name.length() + 2;
+        int end;
+        if (start < line.length() && line.charAt(start) == '"') {
+            start++;
+            end = line.indexOf('"', start);
+        } else {
+            end = line.indexOf(' ', start);
+        }
+        if (end == -1) end = line.length();
+        return line.substring(start, end);
+    }
+
+    /**
+     * See {@link MsdfFont#getGlyphSize()}. Zero if not defined in the font file.
+     */
+    public float getGlyphSize() {
+        return glyphSize;
+    }
+
+    public void setGlyphSize(float glyphSize) {
+        this.glyphSize = glyphSize;
+    }
+
+    /**
+     * See {@link MsdfFont#getDistanceRange()}. Zero if not defined in the font file.
+     */
+    public float getDistanceRange() {
+        return distanceRange;
+    }
+
+    public void setDistanceRange(float distanceRange) {
+        this.distanceRange = distanceRange;
+    }
+
+    /**
+     * See {@link MsdfFont#getFieldType()}.
+     */
+    @NotNull
+    public DistanceFieldType getFieldType() {
+        return fieldType;
+    }
+
+    public void setFieldType(@NotNull DistanceFieldType fieldType) {
+        //noinspection ConstantConditions
+        if (fieldType == null) throw new NullPointerException("Field type cannot be null");
+        this.fieldType = fieldType;
+    }
+
+    /**
+     * Returns the width of the font pages in pixels, or zero if not defined in the font file.
+     */
+    public int getPageWidth() {
+        return pageWidth;
+    }
+
+    /**
+     * Returns the height of the font pages in pixels, or zero if not defined in the font file.
+     */
+    public int getPageHeight() {
+        return pageHeight;
+    }
+
+    public void setPageSize(int width, int height) {
+        this.pageWidth = width;
+        this.pageHeight = height;
+    }
+
+    /**
+     * Returns the dynamic atlas glyphs are added to when first needed, or null if there's none.
+     */
+    @Nullable
+    public DynamicAtlas getDynamicAtlas() {
+        return dynamicAtlas;
+    }
+
+    /**
+     * A glyph copied from a fallback font, see {@link MsdfFont#addFallback(MsdfFont)}.
+     */
+    static final class FallbackGlyph extends Glyph {
+        final int fontIndex;
+
+        FallbackGlyph(int fontIndex) {
+            this.fontIndex = fontIndex;
+        }
+    }
+
+}
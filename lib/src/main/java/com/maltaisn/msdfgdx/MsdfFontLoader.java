@@ -24,6 +24,7 @@ import com.badlogic.gdx.assets.loaders.BitmapFontLoader;
 import com.badlogic.gdx.assets.loaders.FileHandleResolver;
 import com.badlogic.gdx.assets.loaders.TextureLoader;
 import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
@@ -32,6 +33,7 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.StreamUtils;
 
 import java.io.BufferedReader;
@@ -46,10 +48,17 @@ import java.io.InputStreamReader;
  * It would have been impossible to just make an asset dependency on a BitmapFont without
  * copying it all because both assets have the same name and one would overwrite the other
  * in the asset manager...
+ * <p>
+ * Fonts can be loaded from text {@code .fnt} files or from binary {@code .msdfbin} files, see {@link BinaryFontFormat}.
  */
 public class MsdfFontLoader extends AsynchronousAssetLoader<MsdfFont, MsdfFontLoader.MsdfFontParameter> {
 
-    private BitmapFontData data;
+    /**
+     * Font data parsed in {@link #loadAsync} for each font being loaded, by file name.
+     * The loader may be used to load several fonts at once from different threads,
+     * so no loading state is kept outside of this map, and access to it is synchronized.
+     */
+    private final ObjectMap<String, LoadedFont> loadedFonts = new ObjectMap<String, LoadedFont>();
 
 
     public MsdfFontLoader(FileHandleResolver resolver) {
@@ -61,22 +70,24 @@ public class MsdfFontLoader extends AsynchronousAssetLoader<MsdfFont, MsdfFontLo
     public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, MsdfFontParameter parameter) {
         Array<AssetDescriptor> deps = new Array<AssetDescriptor>();
         if (parameter != null && parameter.bitmapFontData != null) {
-            data = parameter.bitmapFontData;
             return deps;
         }
 
-        data = new BitmapFontData(file, parameter != null && parameter.flip);
         if (parameter != null && parameter.atlasName != null) {
             deps.add(new AssetDescriptor<TextureAtlas>(parameter.atlasName, TextureAtlas.class));
-        } else {
-            for (int i = 0; i < data.getImagePaths().length; i++) {
-                String path = data.getImagePath(i);
+        } else if (parameter == null || !parameter.lazy) {
+            // Only the header is needed here, the font is parsed in loadAsync.
+            if (parameter == null) {
+                parameter = new MsdfFontParameter();
+            }
+            MsdfFontData header = MsdfFontData.readHeader(file);
+            DistanceFieldType fieldType = parameter.fieldType != null ? parameter.fieldType : header.getFieldType();
+            for (String path : header.getImagePaths()) {
                 FileHandle resolved = resolve(path);
 
                 TextureLoader.TextureParameter textureParams = new TextureLoader.TextureParameter();
-
-                if (parameter == null) {
-                    parameter = new MsdfFontParameter();
+                if (fieldType == DistanceFieldType.SDF) {
+                    textureParams.format = Pixmap.Format.Alpha;
                 }
                 textureParams.genMipMaps = parameter.genMipMaps;
                 textureParams.minFilter = parameter.minFilter;
@@ -92,22 +103,92 @@ public class MsdfFontLoader extends AsynchronousAssetLoader<MsdfFont, MsdfFontLo
 
     @Override
     public void loadAsync(AssetManager manager, String fileName, FileHandle file, MsdfFontParameter parameter) {
-        // Nothing to do.
+        long startTime = MsdfStats.getActive() != null ? System.nanoTime() : 0;
+        if (parameter == null) {
+            parameter = new MsdfFontParameter();
+        }
+
+        // Parse font file, getting distance range and glyph size from it or from parameter.
+        BitmapFontData data;
+        float glyphSize = parameter.glyphSize;
+        float distanceRange = parameter.distanceRange;
+        DistanceFieldType fieldType = parameter.fieldType;
+        if (parameter.bitmapFontData instanceof MsdfFontData || parameter.bitmapFontData == null) {
+            MsdfFontData msdfData = parameter.bitmapFontData != null
+                    ? (MsdfFontData) parameter.bitmapFontData : new MsdfFontData(file, parameter.flip);
+            if (glyphSize == 0f) glyphSize = msdfData.getGlyphSize();
+            if (distanceRange == 0f) distanceRange = msdfData.getDistanceRange();
+            if (fieldType == null) fieldType = msdfData.getFieldType();
+            if (parameter.compactKernings) msdfData.compactKernings();
+            data = msdfData;
+
+        } else {
+            data = parameter.bitmapFontData;
+            if (glyphSize == 0f || distanceRange == 0f || fieldType == null) {
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(file.read()), 512);
+                try {
+                    String infoLine = reader.readLine();
+                    if (glyphSize == 0f) glyphSize = MsdfFontData.parseIntAttribute(infoLine, "size");
+
+                    String commonLine = reader.readLine();
+                    if (distanceRange == 0f) distanceRange = MsdfFontData.parseIntAttribute(commonLine, "distanceRange");
+                    if (fieldType == null) fieldType = DistanceFieldType.fromValue(
+                            MsdfFontData.parseStringAttribute(commonLine, "fieldType"));
+
+                } catch (IOException e) {
+                    throw new GdxRuntimeException("Error loading font file: " + file, e);
+                } finally {
+                    StreamUtils.closeQuietly(reader);
+                }
+            }
+        }
+
+        if (glyphSize <= 0f) throw new GdxRuntimeException("Required font parameter 'size' not specified "
+                + "in loader parameter or font file, or not greater than zero.");
+        if (distanceRange <= 0f) throw new GdxRuntimeException("Required font parameter 'distanceRange' not specified "
+                + "in loader parameter or font file, or not greater than zero.");
+
+        synchronized (loadedFonts) {
+            loadedFonts.put(fileName, new LoadedFont(data, glyphSize, distanceRange, fieldType,
+                    startTime != 0 ? System.nanoTime() - startTime : 0));
+        }
     }
 
     @Override
     public MsdfFont loadSync(AssetManager manager, String fileName, FileHandle file, MsdfFontParameter parameter) {
+        MsdfStats stats = MsdfStats.getActive();
+        long startTime = stats != null ? System.nanoTime() : 0;
+        LoadedFont loaded;
+        synchronized (loadedFonts) {
+            loaded = loadedFonts.remove(fileName);
+        }
+        if (loaded == null) {
+            throw new GdxRuntimeException("Font " + fileName + " wasn't parsed before being loaded.");
+        }
+        BitmapFontData data = loaded.data;
+
         // Create bitmap font
         BitmapFont bitmapFont;
         if (parameter != null && parameter.atlasName != null) {
+            // Each page is a region of the atlas, which may be shared with other fonts.
             TextureAtlas atlas = manager.get(parameter.atlasName, TextureAtlas.class);
-            String name = file.sibling(data.imagePaths[0]).nameWithoutExtension();
-            TextureAtlas.AtlasRegion region = atlas.findRegion(name);
+            try {
+                bitmapFont = new BitmapFont(data, MsdfFont.getFontRegionsFromAtlas(data, atlas), true);
+            } catch (GdxRuntimeException e) {
+                throw new GdxRuntimeException("Error loading font " + fileName
+                        + " from atlas " + parameter.atlasName, e);
+            }
 
-            if (region == null)
-                throw new GdxRuntimeException("Could not find font region "
-                        + name + " in atlas " + parameter.atlasName);
-            bitmapFont = new BitmapFont(file, region);
+        } else if (parameter != null && parameter.lazy) {
+            // Pages are owned by the font since they aren't loaded by the asset manager.
+            String[] paths = data.getImagePaths();
+            FileHandle[] files = new FileHandle[paths.length];
+            for (int i = 0; i < paths.length; i++) {
+                files[i] = resolve(paths[i]);
+            }
+            bitmapFont = new BitmapFont(data, MsdfFont.getLazyFontRegionsFromFiles(files, loaded.fieldType,
+                    parameter.genMipMaps, parameter.minFilter, parameter.magFilter), true);
+            bitmapFont.setOwnsTexture(true);
 
         } else {
             int n = data.getImagePaths().length;
@@ -118,44 +199,44 @@ public class MsdfFontLoader extends AsynchronousAssetLoader<MsdfFont, MsdfFontLo
             bitmapFont = new BitmapFont(data, regs, true);
         }
 
-        // Get distance range and glyph size from .fnt file or from parameter.
-        if (parameter == null) {
-            parameter = new MsdfFontParameter();
-        }
-        float glyphSize = parameter.glyphSize;
-        float distanceRange = parameter.distanceRange;
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(file.read()), 512);
-        try {
-            String infoLine = reader.readLine();
-            if (glyphSize == 0f) glyphSize = parseBMFontIntAttribute(infoLine, "size");
-
-            String commonLine = reader.readLine();
-            if (distanceRange == 0f) distanceRange = parseBMFontIntAttribute(commonLine, "distanceRange");
-
-        } catch (IOException e) {
-            throw new GdxRuntimeException("Error loading font file: " + file, e);
-        } finally {
-            StreamUtils.closeQuietly(reader);
+        MsdfFont font = new MsdfFont(bitmapFont, loaded.glyphSize, loaded.distanceRange, loaded.fieldType);
+        if (stats != null) {
+            long textureBytes = 0;
+            Array<TextureRegion> regions = bitmapFont.getRegions();
+            for (int i = 0; i < regions.size; i++) {
+                if (i == 0 || regions.get(i).getTexture() != regions.get(i - 1).getTexture()) {
+                    textureBytes += MsdfStats.getTextureBytes(regions.get(i).getTexture());
+                }
+            }
+            stats.addFontLoad(fileName, loaded.parseTime, System.nanoTime() - startTime, textureBytes);
         }
-
-        if (glyphSize <= 0f) throw new GdxRuntimeException("Glyph size must be greater than zero.");
-        if (distanceRange <= 0f) throw new GdxRuntimeException("Distance range must be greater than zero.");
-
-        return new MsdfFont(bitmapFont, glyphSize, distanceRange);
+        return font;
     }
 
-    private int parseBMFontIntAttribute(String line, String name) {
-        int start = line.indexOf(name + '=');
-        if (start == -1) {
-            throw new GdxRuntimeException("Required font parameter '" + name
-                    + "' not specified in loader parameter or font file.");
+    @Override
+    public void unloadAsync(AssetManager manager, String fileName, FileHandle file, MsdfFontParameter parameter) {
+        // Loading failed or was cancelled after parsing, discard the parsed data.
+        synchronized (loadedFonts) {
+            loadedFonts.remove(fileName);
         }
-        start += name.length() + 1;
-        int end = line.indexOf(' ', start);
-        if (end == -1) end = line.length();
-        return Integer.parseInt(line.substring(start, end));
     }
 
+    private static final class LoadedFont {
+        final BitmapFontData data;
+        final float glyphSize;
+        final float distanceRange;
+        final DistanceFieldType fieldType;
+        final long parseTime;
+
+        LoadedFont(BitmapFontData data, float glyphSize, float distanceRange,
+                   DistanceFieldType fieldType, long parseTime) {
+            this.data = data;
+            this.glyphSize = glyphSize;
+            this.distanceRange = distanceRange;
+            this.fieldType = fieldType;
+            this.parseTime = parseTime;
+        }
+    }
 
     public static class MsdfFontParameter extends AssetLoaderParameters<MsdfFont> {
         /**
@@ -189,6 +270,8 @@ public class MsdfFontLoader extends AsynchronousAssetLoader<MsdfFont, MsdfFontLo
 
         /**
          * The name of the {@link TextureAtlas} to load the {@link BitmapFont} itself from.
+         * Each page is found by the name of its file without extension, and the atlas can be shared
+         * by several fonts, see {@link MsdfFont#getFontRegionsFromAtlas(BitmapFontData, TextureAtlas)}.
          * Optional; if {@code null}, will look for a separate image
          */
         public String atlasName = null;
@@ -207,6 +290,27 @@ public class MsdfFontLoader extends AsynchronousAssetLoader<MsdfFont, MsdfFontLo
          */
         public float distanceRange = 0f;
 
+        /**
+         * See {@link MsdfFont#getFieldType()}.
+         * Field type may be defined in the {@code .fnt} file with the {@code fieldType} attribute in common tag,
+         * and is {@link DistanceFieldType#MSDF} if not. Set a value to override the value defined in the file.
+         * SDF font pages are loaded as {@link Pixmap.Format#Alpha} textures.
+         */
+        public DistanceFieldType fieldType = null;
+
+        /**
+         * Whether to move the kernings to a {@link KerningTable}, see {@link MsdfFontData#compactKernings()}.
+         * Only used if the font data is {@link MsdfFontData}. Defaults to {@code false}.
+         */
+        public boolean compactKernings = false;
+
+        /**
+         * Whether to decode and upload the font pages only when the font is first drawn, see
+         * {@link MsdfFont#loadTextures()}. The pages are then owned by the font instead of being
+         * texture assets. Not used if the font is loaded from an atlas. Defaults to {@code false}.
+         */
+        public boolean lazy = false;
+
 
         public MsdfFontParameter() {
             // Default constructor.
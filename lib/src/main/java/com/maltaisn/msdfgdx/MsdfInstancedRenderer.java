@@ -0,0 +1,285 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Mesh.VertexDataType;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A renderer drawing text with instanced rendering on GL30, where each glyph is a single
+ * {@link GlyphInstanceBuffer instance record} of 10 floats instead of the 4 vertices of a batch.
+ * The style of each glyph is an index in a table of styles uploaded as uniforms, so text with
+ * different styles is drawn in a single draw call, as long as the font textures are the same.
+ * <p>
+ * On GL20, instancing isn't available and the renderer draws with a {@link MsdfBatch} instead,
+ * so it can be used unconditionally. {@link #isInstanced()} tells which path is used.
+ * <p>
+ * Text is drawn from laid out {@link BitmapFontCache}, for example the cache of a label, between
+ * {@link #begin(Matrix4)} and {@link #end()}. The renderer must only be used from the rendering thread.
+ */
+public final class MsdfInstancedRenderer implements Disposable {
+
+    /**
+     * Maximum number of styles in a single draw call, limited by the vertex shader uniforms.
+     */
+    public static final int MAX_STYLES = 32;
+
+    private static final String TEXTURE_SIZE_UNIFORM = "u_textureSize";
+    private static final String STYLES_UNIFORM = "u_styles";
+
+    @NotNull
+    private final GlyphInstanceBuffer buffer;
+
+    // Unit quad mesh with the instance data, or null when drawing with the fallback batch.
+    private final Mesh mesh;
+    private final MsdfBatch batch;
+
+    private final ShaderProgram[] shaders = new ShaderProgram[DistanceFieldType.values().length];
+    private final Matrix4 projectionTransform = new Matrix4();
+
+    private Texture lastTexture;
+    private DistanceFieldType fieldType = DistanceFieldType.MSDF;
+    private boolean drawing;
+
+    /**
+     * Number of render calls since the last {@link #begin(Matrix4)}.
+     */
+    public int renderCalls = 0;
+
+
+    /**
+     * Create a renderer drawing up to 4000 glyphs per draw call.
+     */
+    public MsdfInstancedRenderer() {
+        this(4000);
+    }
+
+    /**
+     * Create a renderer.
+     *
+     * @param size The max number of glyphs in a single draw call.
+     */
+    public MsdfInstancedRenderer(int size) {
+        buffer = new GlyphInstanceBuffer(size, MAX_STYLES);
+        if (!isSupported()) {
+            mesh = null;
+            batch = new MsdfBatch(Math.min(size, 8191));
+            return;
+        }
+        batch = null;
+
+        mesh = new Mesh(VertexDataType.VertexBufferObjectWithVAO, true, 4, 6,
+                new VertexAttribute(VertexAttributes.Usage.Generic, 2, "a_corner"));
+        mesh.setVertices(new float[]{0, 0, 0, 1, 1, 1, 1, 0});
+        mesh.setIndices(new short[]{0, 1, 2, 2, 3, 0});
+        mesh.enableInstancedRendering(false, size,
+                new VertexAttribute(VertexAttributes.Usage.Generic, 4, "a_rect"),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 4, "a_texRect"),
+                new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 1, "a_style"));
+    }
+
+    /**
+     * Returns whether instanced rendering is available, which requires GL30.
+     */
+    public static boolean isSupported() {
+        return Gdx.gl30 != null;
+    }
+
+    /**
+     * Create the instanced shader for a distance field type. The fragment shader is the
+     * {@link MsdfBatch} shader, with the style values passed from the style table.
+     */
+    @NotNull
+    public static ShaderProgram createShader(@NotNull DistanceFieldType fieldType) {
+        String prefix = "#define PER_VERTEX_STYLE\n#define MAX_STYLES " + MAX_STYLES + "\n"
+                + MsdfShader.getPrefix(fieldType, MsdfShader.FEATURES_ALL);
+        ShaderProgram shader = new ShaderProgram(
+                prefix + Gdx.files.classpath("font-instanced.vert").readString(),
+                prefix + Gdx.files.classpath("font.frag").readString());
+        if (!shader.isCompiled()) {
+            throw new GdxRuntimeException("Distance field font instanced shader compilation failed: " + shader.getLog());
+        }
+        return shader;
+    }
+
+
+    /**
+     * Start drawing text with a combined projection and transform matrix.
+     */
+    public void begin(@NotNull Matrix4 projectionTransform) {
+        if (drawing) throw new IllegalStateException("MsdfInstancedRenderer.end must be called before begin.");
+        drawing = true;
+        renderCalls = 0;
+        this.projectionTransform.set(projectionTransform);
+
+        if (batch != null) {
+            batch.setProjectionMatrix(projectionTransform);
+            batch.begin();
+            return;
+        }
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    /**
+     * Draw the text of a font cache with a font and a style. The position and tint of the cache are used.
+     * The font cache must have been created from the font.
+     */
+    public void draw(@NotNull MsdfFont font, @NotNull FontStyle style, @NotNull BitmapFontCache cache) {
+        if (!drawing) throw new IllegalStateException("MsdfInstancedRenderer.begin must be called before draw.");
+
+        Array<TextureRegion> regions = cache.getFont().getRegions();
+        int glyphs = 0;
+        for (int page = 0; page < regions.size; page++) {
+            int count = cache.getVertexCount(page);
+            if (count == 0) continue;
+            glyphs += count / Sprite.SPRITE_SIZE;
+            Texture texture = regions.get(page).getTexture();
+            float[] vertices = cache.getVertices(page);
+
+            if (batch != null) {
+                batch.setFontStyle(font, style, page);
+                batch.draw(texture, vertices, 0, count);
+                continue;
+            }
+
+            if (texture != lastTexture || font.getFieldType() != fieldType) {
+                flush();
+                lastTexture = texture;
+                fieldType = font.getFieldType();
+            }
+            int styleIndex = buffer.addStyle(font, style, page);
+            if (styleIndex == -1) {
+                // Style table is full.
+                flush();
+                styleIndex = buffer.addStyle(font, style, page);
+            }
+            int offset = 0;
+            while (true) {
+                offset += buffer.add(vertices, offset, count - offset, styleIndex) * Sprite.SPRITE_SIZE;
+                if (offset == count) break;
+                // Instance buffer is full.
+                flush();
+                styleIndex = buffer.addStyle(font, style, page);
+            }
+        }
+        if (batch != null) {
+            batch.clearFontStyle();
+        }
+
+        MsdfStats stats = MsdfStats.getActive();
+        if (stats != null) stats.addGlyphs(glyphs);
+    }
+
+    /**
+     * Draw the glyphs added since the last flush.
+     */
+    public void flush() {
+        if (batch != null) {
+            batch.flush();
+            return;
+        }
+        if (buffer.getSize() == 0) {
+            buffer.clear();
+            return;
+        }
+        renderCalls++;
+
+        ShaderProgram shader = getShader(fieldType);
+        shader.bind();
+        shader.setUniformMatrix("u_projTrans", projectionTransform);
+        shader.setUniformi("u_texture", 0);
+        int location = shader.fetchUniformLocation(TEXTURE_SIZE_UNIFORM, false);
+        if (location != -1) {
+            shader.setUniformf(location, lastTexture.getWidth(), lastTexture.getHeight());
+        }
+        shader.setUniform4fv(STYLES_UNIFORM, buffer.getStyles(), 0,
+                buffer.getStyleCount() * GlyphInstanceBuffer.STYLE_SIZE);
+        lastTexture.bind(0);
+
+        mesh.setInstanceData(buffer.getInstances(), 0, buffer.getSize() * GlyphInstanceBuffer.INSTANCE_SIZE);
+        mesh.render(shader, GL20.GL_TRIANGLES, 0, 6);
+        buffer.clear();
+    }
+
+    /**
+     * Draw the remaining glyphs and stop drawing.
+     */
+    public void end() {
+        if (!drawing) throw new IllegalStateException("MsdfInstancedRenderer.begin must be called before end.");
+        drawing = false;
+        if (batch != null) {
+            batch.end();
+            renderCalls = batch.renderCalls;
+            return;
+        }
+        flush();
+        lastTexture = null;
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    /**
+     * Returns whether glyphs are drawn with instanced rendering, or with a {@link MsdfBatch} on GL20.
+     */
+    public boolean isInstanced() {
+        return mesh != null;
+    }
+
+    public boolean isDrawing() {
+        return drawing;
+    }
+
+    @NotNull
+    private ShaderProgram getShader(DistanceFieldType fieldType) {
+        ShaderProgram shader = shaders[fieldType.ordinal()];
+        if (shader == null) {
+            shader = createShader(fieldType);
+            shaders[fieldType.ordinal()] = shader;
+        }
+        return shader;
+    }
+
+    @Override
+    public void dispose() {
+        if (mesh != null) mesh.dispose();
+        if (batch != null) batch.dispose();
+        for (int i = 0; i < shaders.length; i++) {
+            if (shaders[i] != null) {
+                shaders[i].dispose();
+                shaders[i] = null;
+            }
+        }
+    }
+
+}
@@ -18,10 +18,14 @@ package com.maltaisn.msdfgdx;
 
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
+import org.jetbrains.annotations.NotNull;
+
 
 /**
  * The shader used to render the text to the sprite batch.
@@ -29,6 +33,15 @@ import com.badlogic.gdx.utils.GdxRuntimeException;
  * The shadow uses the values encoded in the alpha channel (SDF).
  * Since a standard SDF font also encodes values in the RGB channels,
  * this shader can also be used to render standard SDF fonts.
+ * <p>
+ * Fonts with a single channel atlas ({@link DistanceFieldType#SDF}) need the SDF variant of the shader,
+ * which uses the alpha channel for both the glyph and the shadow. The variant for a font is obtained
+ * with {@link #getVariant(DistanceFieldType)}, it's compiled when first needed and owned by this shader.
+ * <p>
+ * The shadow and the inner shadow each cost extra work per fragment, the shadow needing a second
+ * texture sample. Variants without these effects are obtained with {@link #getVariant(DistanceFieldType, int)}
+ * and {@link #getVariant(MsdfFont, FontStyle)} selects the variant with only the effects a style uses.
+ * Shaders created with a constructor have all the effects.
  *
  * References:
  * <ul>
@@ -36,36 +49,365 @@ import com.badlogic.gdx.utils.GdxRuntimeException;
  * <li>https://github.com/Chlumsky/msdfgen/issues/36</li>
  * <li>http://inter-illusion.com/assets/I2SmartEdgeManual/SmartEdge.html?WhatSDFFormattouse.html</li>
  * </ul>
+ *
+ * The shader keeps a snapshot of the last uniform values set by {@link #updateForFont(MsdfFont, FontStyle)}
+ * so that only the uniforms that changed are uploaded. If other code changes the uniforms of this
+ * program, {@link #invalidateState()} must be called.
  */
 public class MsdfShader extends ShaderProgram {
 
+    /**
+     * Feature flag for the variant drawing the outer shadow.
+     */
+    public static final int FEATURE_SHADOW = 1;
+
+    /**
+     * Feature flag for the variant drawing the inner shadow.
+     */
+    public static final int FEATURE_INNER_SHADOW = 2;
+
+    /**
+     * Feature flags for the variant drawing all effects.
+     */
+    public static final int FEATURES_ALL = FEATURE_SHADOW | FEATURE_INNER_SHADOW;
+
+    @NotNull
+    private final DistanceFieldType fieldType;
+    private final int features;
+
+    // Shader the variants are obtained from, which owns them, and variants by field type ordinal and features.
+    private final MsdfShader root;
+    private final MsdfShader[] variants;
+
+    // Snapshot of the last values uploaded with updateForFont.
+    private boolean stateValid;
+
+    private float textureWidth;
+    private float textureHeight;
+    private float distanceFactor;
+    private final Color color = new Color();
+    private float fontWeight;
+    private float shadowClipped;
+    private final Color shadowColor = new Color();
+    private final Vector2 shadowOffset = new Vector2();
+    private float shadowSmoothing;
+    private final Color innerShadowColor = new Color();
+    private float innerShadowRange;
+
+    // Number of uniforms uploaded since last recorded in the stats.
+    private int uploads;
+
+
     public MsdfShader() {
-        super(Gdx.files.classpath("font.vert"), Gdx.files.classpath("font.frag"));
+        this(DistanceFieldType.MSDF);
+    }
+
+    /**
+     * Create a shader for fonts with a distance field type.
+     */
+    public MsdfShader(@NotNull DistanceFieldType fieldType) {
+        this(fieldType, FEATURES_ALL, null);
+    }
+
+    private MsdfShader(DistanceFieldType fieldType, int features, MsdfShader root) {
+        super(getPrefix(fieldType, features) + Gdx.files.classpath("font.vert").readString(),
+                getPrefix(fieldType, features) + Gdx.files.classpath("font.frag").readString());
 
         if (!isCompiled()) {
             throw new GdxRuntimeException("Distance field font shader compilation failed: " + getLog());
         }
+
+        this.fieldType = fieldType;
+        this.features = features;
+        this.root = root != null ? root : this;
+        this.variants = root != null ? root.variants
+                : new MsdfShader[DistanceFieldType.values().length * (FEATURES_ALL + 1)];
+        variants[getVariantIndex(fieldType, features)] = this;
+    }
+
+    /**
+     * Returns the defines prepended to the shader sources for a variant.
+     */
+    static String getPrefix(DistanceFieldType fieldType, int features) {
+        String prefix = fieldType == DistanceFieldType.SDF ? "#define SDF\n" : "";
+        if ((features & FEATURE_SHADOW) != 0) prefix += "#define SHADOW\n";
+        if ((features & FEATURE_INNER_SHADOW) != 0) prefix += "#define INNER_SHADOW\n";
+        return prefix;
+    }
+
+    private static int getVariantIndex(DistanceFieldType fieldType, int features) {
+        return fieldType.ordinal() * (FEATURES_ALL + 1) + features;
     }
 
+    /**
+     * Returns the variant of this shader for a distance field type with all effects,
+     * compiling it if not done already. The variants are disposed with the shader they were obtained from.
+     */
+    @NotNull
+    public MsdfShader getVariant(@NotNull DistanceFieldType fieldType) {
+        return getVariant(fieldType, FEATURES_ALL);
+    }
+
+    /**
+     * Returns the variant of this shader for a distance field type and a combination of feature flags,
+     * compiling it if not done already. The variants are disposed with the shader they were obtained from.
+     */
+    @NotNull
+    public MsdfShader getVariant(@NotNull DistanceFieldType fieldType, int features) {
+        if ((features & ~FEATURES_ALL) != 0) throw new IllegalArgumentException("Invalid features: " + features);
+        MsdfShader variant = variants[getVariantIndex(fieldType, features)];
+        if (variant == null) {
+            variant = new MsdfShader(fieldType, features, root);
+        }
+        return variant;
+    }
+
+    /**
+     * Returns the variant of this shader needed to draw a font with all effects,
+     * see {@link #getVariant(DistanceFieldType)}.
+     */
+    @NotNull
+    public MsdfShader getVariant(@NotNull MsdfFont font) {
+        return getVariant(font.getFieldType());
+    }
+
+    /**
+     * Returns the variant of this shader with only the effects needed to draw a font with a style,
+     * see {@link FontStyle#getShaderFeatures()}.
+     */
+    @NotNull
+    public MsdfShader getVariant(@NotNull MsdfFont font, @NotNull FontStyle style) {
+        return getVariant(font.getFieldType(), style.getShaderFeatures());
+    }
+
+    @NotNull
+    public DistanceFieldType getFieldType() {
+        return fieldType;
+    }
+
+    /**
+     * Returns the feature flags of this variant, see {@link #FEATURE_SHADOW} and {@link #FEATURE_INNER_SHADOW}.
+     */
+    public int getFeatures() {
+        return features;
+    }
+
+    /**
+     * Set the uniforms needed to draw text with a font and a style.
+     * The shader must be bound. Uniforms that haven't changed since the last call aren't uploaded again.
+     */
     public void updateForFont(MsdfFont font, FontStyle style) {
+        if (isApplied(font, style)) {
+            return;
+        }
+        boolean force = !stateValid;
+
+        // Uniforms of effects not in this variant are optimized out by the compiler and can't be set.
+        boolean hasShadow = (features & FEATURE_SHADOW) != 0;
+        boolean hasInnerShadow = (features & FEATURE_INNER_SHADOW) != 0;
+
         // Texture size is available from the shader with textureSize(u_texture, 0), however it
         // doesn't work with OpenGL ES 2.0 and there doesn't seem be any built-in alternative...
-        TextureRegion region = font.getFont().getRegion();
-        setUniformf("u_textureSize", region.getRegionWidth(), region.getRegionHeight());
+        // The size of the first page is used, see updateForTexture for fonts with multiple pages.
+        Texture texture = font.getFont().getRegion().getTexture();
+        if (hasShadow && (force || !isTextureApplied(texture))) {
+            setUniformf("u_textureSize", texture.getWidth(), texture.getHeight());
+            uploads++;
+            textureWidth = texture.getWidth();
+            textureHeight = texture.getHeight();
+        }
 
         // https://github.com/Chlumsky/msdfgen/issues/36#issuecomment-429240110
-        setUniformf("distanceFactor", font.getDistanceRange() * style.getSize() / font.getGlyphSize());
+        float factor = font.getDistanceRange() * style.getSize() / font.getGlyphSize();
+        if (force || factor != distanceFactor) {
+            setUniformf("distanceFactor", factor);
+            uploads++;
+            distanceFactor = factor;
+        }
+
+        if (force || !colorEquals(style.getColor(), color)) {
+            setUniformf("color", style.getColor());
+            uploads++;
+            color.set(style.getColor());
+        }
+        if (force || style.getWeight() != fontWeight) {
+            setUniformf("fontWeight", style.getWeight());
+            uploads++;
+            fontWeight = style.getWeight();
+        }
+
+        if (hasShadow) {
+            updateShadow(style, force);
+        }
+        if (hasInnerShadow) {
+            updateInnerShadow(style, force);
+        }
+
+        recordUploads();
+        stateValid = true;
+    }
+
+    private void updateShadow(FontStyle style, boolean force) {
+        float clipped = style.isShadowClipped() ? 1f : 0f;
+        if (force || clipped != shadowClipped) {
+            setUniformf("shadowClipped", clipped);
+            uploads++;
+            shadowClipped = clipped;
+        }
+        if (force || !colorEquals(style.getShadowColor(), shadowColor)) {
+            setUniformf("shadowColor", style.getShadowColor());
+            uploads++;
+            shadowColor.set(style.getShadowColor());
+        }
+        if (force || !style.getShadowOffset().equals(shadowOffset)) {
+            setUniformf("shadowOffset", style.getShadowOffset());
+            uploads++;
+            shadowOffset.set(style.getShadowOffset());
+        }
+        if (force || style.getShadowSmoothing() != shadowSmoothing) {
+            setUniformf("shadowSmoothing", style.getShadowSmoothing());
+            uploads++;
+            shadowSmoothing = style.getShadowSmoothing();
+        }
+    }
+
+    private void updateInnerShadow(FontStyle style, boolean force) {
+        if (force || !colorEquals(style.getInnerShadowColor(), innerShadowColor)) {
+            setUniformf("innerShadowColor", style.getInnerShadowColor());
+            uploads++;
+            innerShadowColor.set(style.getInnerShadowColor());
+        }
+        if (force || style.getInnerShadowRange() != innerShadowRange) {
+            setUniformf("innerShadowRange", style.getInnerShadowRange());
+            uploads++;
+            innerShadowRange = style.getInnerShadowRange();
+        }
+    }
 
-        setUniformf("color", style.getColor());
-        setUniformf("fontWeight", style.getWeight());
+    /**
+     * Returns whether the uniforms last set have the values needed to draw text with a font and a style.
+     * In that case, {@link #updateForFont(MsdfFont, FontStyle)} does nothing. Values are compared rather
+     * than the style version, so that colors and offsets modified in place are detected.
+     * Another font with the same distance factor and page size, like a font of another size sharing an
+     * atlas page with the last font, doesn't need the batch to be flushed.
+     */
+    public boolean isApplied(MsdfFont font, FontStyle style) {
+        return isStyleApplied(style)
+                && font.getDistanceRange() * style.getSize() / font.getGlyphSize() == distanceFactor
+                && isTextureApplied(font.getFont().getRegion().getTexture());
+    }
 
-        setUniformf("shadowClipped", style.isShadowClipped() ? 1f : 0f);
-        setUniformf("shadowColor", style.getShadowColor());
-        setUniformf("shadowOffset", style.getShadowOffset());
-        setUniformf("shadowSmoothing", style.getShadowSmoothing());
+    /**
+     * Returns whether the uniforms last set have the values of a style, other than the distance factor
+     * and texture size which depend on the font page. When drawing a page other than the first,
+     * {@link #updateForFont(MsdfFont, FontStyle)} is only needed if this returns false, followed by
+     * {@link #updateForPage(MsdfFont, FontStyle, int)} if {@link #isPageApplied} returns false.
+     */
+    public boolean isStyleApplied(@NotNull FontStyle style) {
+        if (!stateValid
+                || !colorEquals(style.getColor(), color)
+                || style.getWeight() != fontWeight) {
+            return false;
+        }
+        if ((features & FEATURE_SHADOW) != 0 && ((style.isShadowClipped() ? 1f : 0f) != shadowClipped
+                || !colorEquals(style.getShadowColor(), shadowColor)
+                || !style.getShadowOffset().equals(shadowOffset)
+                || style.getShadowSmoothing() != shadowSmoothing)) {
+            return false;
+        }
+        return (features & FEATURE_INNER_SHADOW) == 0 || colorEquals(style.getInnerShadowColor(), innerShadowColor)
+                && style.getInnerShadowRange() == innerShadowRange;
+    }
+
+    /**
+     * Set the texture size uniform for a font page, for fonts whose pages don't all have the same size.
+     * The shader must be bound, and the batch must be flushed before if {@link #isTextureApplied(Texture)}
+     * returns false, since text drawn with the previous page uses the previous size.
+     */
+    public void updateForTexture(@NotNull Texture texture) {
+        if ((features & FEATURE_SHADOW) != 0 && !isTextureApplied(texture)) {
+            setUniformf("u_textureSize", texture.getWidth(), texture.getHeight());
+            uploads++;
+            textureWidth = texture.getWidth();
+            textureHeight = texture.getHeight();
+            recordUploads();
+        }
+    }
+
+    /**
+     * Returns whether the uniforms set for a font and a style with {@link #updateForFont(MsdfFont, FontStyle)}
+     * are also correct for a page of the font, which may have another size or, for pages of fallback fonts,
+     * another distance range. If not, the batch must be flushed before calling {@link #updateForPage}.
+     */
+    public boolean isPageApplied(@NotNull MsdfFont font, @NotNull FontStyle style, int page) {
+        return isTextureApplied(font.getFont().getRegions().get(page).getTexture())
+                && font.getDistanceRange(page) * style.getSize() / font.getGlyphSize() == distanceFactor;
+    }
+
+    /**
+     * Set the texture size and distance factor uniforms for a page of a font, after the uniforms were set
+     * for the font and style with {@link #updateForFont(MsdfFont, FontStyle)}. The shader must be bound.
+     */
+    public void updateForPage(@NotNull MsdfFont font, @NotNull FontStyle style, int page) {
+        updateForTexture(font.getFont().getRegions().get(page).getTexture());
+        float factor = font.getDistanceRange(page) * style.getSize() / font.getGlyphSize();
+        if (factor != distanceFactor) {
+            setUniformf("distanceFactor", factor);
+            uploads++;
+            distanceFactor = factor;
+            recordUploads();
+        }
+    }
+
+    /**
+     * Add the uniforms uploaded since the last call to the active stats, if any.
+     */
+    private void recordUploads() {
+        MsdfStats stats = MsdfStats.getActive();
+        if (stats != null) {
+            stats.addUniformUploads(uploads);
+        }
+        uploads = 0;
+    }
+
+    /**
+     * Returns whether the texture size uniform is the size of a texture.
+     * Always true for variants without the shadow, which don't need the texture size.
+     */
+    public boolean isTextureApplied(@NotNull Texture texture) {
+        if ((features & FEATURE_SHADOW) == 0) return true;
+        return stateValid && texture.getWidth() == textureWidth && texture.getHeight() == textureHeight;
+    }
+
+    /**
+     * Forget the last uniform values set, so that all uniforms are uploaded on the next call to
+     * {@link #updateForFont(MsdfFont, FontStyle)}. This must be called if other code sets the
+     * uniforms of this program, or if the OpenGL context was lost.
+     */
+    public void invalidateState() {
+        stateValid = false;
+    }
+
+    /**
+     * Dispose this shader. If this shader isn't a variant obtained from another shader,
+     * the variants obtained from it are also disposed.
+     */
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (root == this) {
+            for (int i = 0; i < variants.length; i++) {
+                MsdfShader variant = variants[i];
+                variants[i] = null;
+                if (variant != null && variant != this) {
+                    variant.dispose();
+                }
+            }
+        }
+    }
 
-        setUniformf("innerShadowColor", style.getInnerShadowColor());
-        setUniformf("innerShadowRange", style.getInnerShadowRange());
+    private static boolean colorEquals(Color a, Color b) {
+        return a.r == b.r && a.g == b.g && a.b == b.b && a.a == b.a;
     }
 
 }
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * Statistics on text rendering, updated by {@link com.maltaisn.msdfgdx.widget.MsdfLabel},
+ * {@link com.maltaisn.msdfgdx.widget.MsdfTextArea}, {@link MsdfShader} and {@link MsdfFontLoader}
+ * while stats are {@link #setActive(MsdfStats) active}. Nothing is recorded by default, and when no stats
+ * are active, recording costs a static field read. Frame counters are for the last frame ended with
+ * {@link #endFrame()}, which should be called once per frame, after drawing.
+ * <pre>{@code
+ * MsdfStats stats = new MsdfStats();
+ * MsdfStats.setActive(stats);
+ * // In render(), after drawing:
+ * stats.endFrame();
+ * Gdx.app.log("Stats", stats.toString());
+ * }</pre>
+ * Frame counters must only be updated from the rendering thread. Font loads can be recorded from any thread.
+ */
+public final class MsdfStats {
+
+    @Nullable
+    private static MsdfStats active;
+
+    // Counters of the current frame.
+    private int shaderSwitches;
+    private int uniformUploads;
+    private int glyphs;
+    private int layouts;
+    private long layoutTime;
+
+    // Counters of the last frame.
+    private int lastShaderSwitches;
+    private int lastUniformUploads;
+    private int lastGlyphs;
+    private int lastLayouts;
+    private long lastLayoutTime;
+
+    private int frames;
+
+    private final Array<FontLoad> fontLoads = new Array<FontLoad>();
+
+
+    /**
+     * Set the stats updated by the library, or null to stop recording, the default.
+     */
+    public static void setActive(@Nullable MsdfStats stats) {
+        active = stats;
+    }
+
+    /**
+     * Returns the stats updated by the library, or null if not recording.
+     */
+    @Nullable
+    public static MsdfStats getActive() {
+        return active;
+    }
+
+
+    /**
+     * Record a batch shader change, which flushes the batch.
+     */
+    public void addShaderSwitch() {
+        shaderSwitches++;
+    }
+
+    /**
+     * Record uniforms uploaded to the shader.
+     */
+    public void addUniformUploads(int count) {
+        uniformUploads += count;
+    }
+
+    /**
+     * Record glyphs submitted to a batch.
+     */
+    public void addGlyphs(int count) {
+        glyphs += count;
+    }
+
+    /**
+     * Record a text layout and the time it took, in nanoseconds.
+     */
+    public void addLayout(long time) {
+        layouts++;
+        layoutTime += time;
+    }
+
+    /**
+     * Record the load of a font.
+     *
+     * @param fileName     The font file name.
+     * @param parseTime    The time spent parsing the font file, in nanoseconds.
+     * @param createTime   The time spent creating the font on the rendering thread, in nanoseconds.
+     * @param textureBytes The memory used by the base level of the page textures, in bytes.
+     */
+    public void addFontLoad(@NotNull String fileName, long parseTime, long createTime, long textureBytes) {
+        synchronized (fontLoads) {
+            fontLoads.add(new FontLoad(fileName, parseTime, createTime, textureBytes));
+        }
+    }
+
+    /**
+     * End the current frame. Frame counters then return the values of the frame, and are reset for the next one.
+     */
+    public void endFrame() {
+        lastShaderSwitches = shaderSwitches;
+        lastUniformUploads = uniformUploads;
+        lastGlyphs = glyphs;
+        lastLayouts = layouts;
+        lastLayoutTime = layoutTime;
+        shaderSwitches = 0;
+        uniformUploads = 0;
+        glyphs = 0;
+        layouts = 0;
+        layoutTime = 0;
+        frames++;
+    }
+
+    /**
+     * Returns the number of batch shader changes in the last frame. Each one flushes the batch if
+     * something was drawn with the previous shader.
+     */
+    public int getShaderSwitches() {
+        return lastShaderSwitches;
+    }
+
+    /**
+     * Returns the number of uniforms uploaded by {@link MsdfShader} in the last frame.
+     */
+    public int getUniformUploads() {
+        return lastUniformUploads;
+    }
+
+    /**
+     * Returns the number of glyphs submitted to a batch in the last frame.
+     */
+    public int getGlyphs() {
+        return lastGlyphs;
+    }
+
+    /**
+     * Returns the number of text layouts in the last frame.
+     */
+    public int getLayouts() {
+        return lastLayouts;
+    }
+
+    /**
+     * Returns the time spent laying out text in the last frame, in nanoseconds.
+     */
+    public long getLayoutTime() {
+        return lastLayoutTime;
+    }
+
+    /**
+     * Returns the number of frames ended since the stats were created or reset.
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns a copy of the font loads recorded.
+     */
+    @NotNull
+    public Array<FontLoad> getFontLoads() {
+        synchronized (fontLoads) {
+            return new Array<FontLoad>(fontLoads);
+        }
+    }
+
+    /**
+     * Reset all counters and font loads.
+     */
+    public void reset() {
+        shaderSwitches = 0;
+        uniformUploads = 0;
+        glyphs = 0;
+        layouts = 0;
+        layoutTime = 0;
+        endFrame();
+        frames = 0;
+        synchronized (fontLoads) {
+            fontLoads.clear();
+        }
+    }
+
+    /**
+     * Returns the memory used by the base level of a texture, in bytes.
+     */
+    static long getTextureBytes(@NotNull Texture texture) {
+        Pixmap.Format format = texture.getTextureData().getFormat();
+        int bytesPerPixel;
+        switch (format) {
+            case Alpha:
+            case Intensity:
+                bytesPerPixel = 1;
+                break;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:
+                bytesPerPixel = 2;
+                break;
+            case RGB888:
+                bytesPerPixel = 3;
+                break;
+            default:
+                bytesPerPixel = 4;
+                break;
+        }
+        return (long) texture.getWidth() * texture.getHeight() * bytesPerPixel;
+    }
+
+    @Override
+    public String toString() {
+        return "MsdfStats{" +
+                "shaderSwitches=" + lastShaderSwitches +
+                ", uniformUploads=" + lastUniformUploads +
+                ", glyphs=" + lastGlyphs +
+                ", layouts=" + lastLayouts +
+                ", layoutTime=" + lastLayoutTime / 1000 + " us" +
+                '}';
+    }
+
+
+    /**
+     * The load of a font by {@link MsdfFontLoader}.
+     */
+    public static final class FontLoad {
+        @NotNull
+        private final String fileName;
+        private final long parseTime;
+        private final long createTime;
+        private final long textureBytes;
+
+        FontLoad(@NotNull String fileName, long parseTime, long createTime, long textureBytes) {
+            this.fileName = fileName;
+            this.parseTime = parseTime;
+            this.createTime = createTime;
+            this.textureBytes = textureBytes;
+        }
+
+        @NotNull
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * Returns the time spent parsing the font file, in nanoseconds.
+         */
+        public long getParseTime() {
+            return parseTime;
+        }
+
+        /**
+         * Returns the time spent creating the font on the rendering thread, in nanoseconds.
+         * Page textures are loaded separately by the asset manager.
+         */
+        public long getCreateTime() {
+            return createTime;
+        }
+
+        /**
+         * Returns the memory used by the base level of the page textures, in bytes.
+         */
+        public long getTextureBytes() {
+            return textureBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "FontLoad{" +
+                    "fileName='" + fileName + '\'' +
+                    ", parseTime=" + parseTime / 1000 + " us" +
+                    ", createTime=" + createTime / 1000 + " us" +
+                    ", textureBytes=" + textureBytes +
+                    '}';
+        }
+    }
+
+}
@@ -0,0 +1,639 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A cache of static text, built into one mesh per font page and drawn with one draw call per page.
+ * Text that doesn't change after layout, like a settings page or credits, can be added to the cache
+ * instead of using labels, which go through a {@link BitmapFontCache} and the batch every frame.
+ * <p>
+ * Each text entry has its own font, style and position, and is identified by the id returned when it's
+ * added. When an entry changes, only the pages it's on are updated. If its number of glyphs on each page
+ * is unchanged, only its vertices are uploaded again, otherwise the vertices of the page are rebuilt.
+ * Entries are also updated when their style changes, including colors and the shadow offset modified
+ * in place, or when glyphs are evicted from the {@link DynamicAtlas} of their font.
+ * <p>
+ * Text is drawn with the shader of {@link MsdfBatch}, with the style passed per vertex.
+ * The cache must only be used from the rendering thread.
+ */
+public final class MsdfTextCache implements Disposable {
+
+    // Maximum number of glyphs per mesh, limited by the short indices.
+    private static final int MAX_QUADS = 8191;
+    private static final int QUAD_SIZE = 4 * MsdfBatch.VERTEX_SIZE;
+
+    // Number of floats per vertex of a BitmapFontCache: position, color and texture coordinates.
+    private static final int CACHE_VERTEX_SIZE = 5;
+
+    private final IntMap<Entry> entries = new IntMap<Entry>();
+    private final Array<Page> pages = new Array<Page>();
+    private int nextId;
+
+    // Font caches used to layout the entries, by font.
+    private final ObjectMap<MsdfFont, BitmapFontCache> fontCaches = new ObjectMap<MsdfFont, BitmapFontCache>();
+    private final StyleAttributes styleAttributes = new StyleAttributes();
+
+    private final ShaderProgram[] shaders = new ShaderProgram[DistanceFieldType.values().length];
+    private final Matrix4 combinedMatrix = new Matrix4();
+    private short[] indices = new short[0];
+
+    private int rebuilds;
+    private int partialUpdates;
+
+
+    /**
+     * Add a line of text to the cache.
+     *
+     * @param x The x position of the left of the text.
+     * @param y The y position of the top of the text, like with {@link com.badlogic.gdx.graphics.g2d.BitmapFont}.
+     * @return The id of the entry.
+     */
+    public int add(@NotNull MsdfFont font, @NotNull FontStyle style, @NotNull CharSequence text, float x, float y) {
+        return add(font, style, text, x, y, 0f, Align.left, false);
+    }
+
+    /**
+     * Add text to the cache.
+     *
+     * @param x           The x position of the left of the text.
+     * @param y           The y position of the top of the text.
+     * @param targetWidth The width used for alignment and wrapping.
+     * @param halign      The horizontal alignment of each line, see {@link Align}.
+     * @param wrap        Whether the text is wrapped to the target width.
+     * @return The id of the entry.
+     */
+    public int add(@NotNull MsdfFont font, @NotNull FontStyle style, @NotNull CharSequence text,
+                   float x, float y, float targetWidth, int halign, boolean wrap) {
+        //noinspection ConstantConditions
+        if (font == null) throw new NullPointerException("Font cannot be null");
+        //noinspection ConstantConditions
+        if (style == null) throw new NullPointerException("Style cannot be null");
+
+        Entry entry = new Entry();
+        entry.font = font;
+        entry.style = style;
+        entry.text = text.toString();
+        entry.x = x;
+        entry.y = y;
+        entry.targetWidth = targetWidth;
+        entry.halign = halign;
+        entry.wrap = wrap;
+        entry.dirty = true;
+
+        int id = nextId++;
+        entries.put(id, entry);
+        return id;
+    }
+
+    /**
+     * Change the text of an entry.
+     */
+    public void setText(int id, @NotNull CharSequence text) {
+        Entry entry = getEntry(id);
+        if (!entry.textEquals(text)) {
+            entry.text = text.toString();
+            entry.dirty = true;
+        }
+    }
+
+    /**
+     * Change the position of an entry.
+     */
+    public void setPosition(int id, float x, float y) {
+        Entry entry = getEntry(id);
+        if (x != entry.x || y != entry.y) {
+            entry.x = x;
+            entry.y = y;
+            entry.dirty = true;
+        }
+    }
+
+    /**
+     * Change the style of an entry. Changes made to the style itself are detected automatically.
+     */
+    public void setStyle(int id, @NotNull FontStyle style) {
+        //noinspection ConstantConditions
+        if (style == null) throw new NullPointerException("Style cannot be null");
+        Entry entry = getEntry(id);
+        if (style != entry.style) {
+            entry.style = style;
+            entry.dirty = true;
+        }
+    }
+
+    /**
+     * Remove an entry from the cache.
+     */
+    public void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) throw new GdxRuntimeException("No entry with id " + id);
+        for (int i = 0; i < entry.pages.size; i++) {
+            Page page = entry.pages.get(i);
+            page.entries.removeValue(entry, true);
+            page.rebuild = true;
+        }
+    }
+
+    /**
+     * Remove all entries from the cache.
+     */
+    public void clear() {
+        entries.clear();
+        for (Page page : pages) {
+            page.dispose();
+        }
+        pages.clear();
+    }
+
+    /**
+     * Lay out all entries again on the next draw. This must be called if the metrics of a font changed.
+     */
+    public void invalidate() {
+        for (Entry entry : entries.values()) {
+            entry.dirty = true;
+        }
+    }
+
+    /**
+     * Returns the width of the text of an entry, laying it out if needed.
+     */
+    public float getWidth(int id) {
+        Entry entry = getEntry(id);
+        if (entry.dirty) update();
+        return entry.width;
+    }
+
+    /**
+     * Returns the height of the text of an entry, laying it out if needed.
+     */
+    public float getHeight(int id) {
+        Entry entry = getEntry(id);
+        if (entry.dirty) update();
+        return entry.height;
+    }
+
+    private Entry getEntry(int id) {
+        Entry entry = entries.get(id);
+        if (entry == null) throw new GdxRuntimeException("No entry with id " + id);
+        return entry;
+    }
+
+    /**
+     * Draw the cached text with the projection and transform matrices of a batch.
+     * If the batch is drawing, it's ended before and begun again after.
+     */
+    public void draw(@NotNull Batch batch) {
+        boolean drawing = batch.isDrawing();
+        if (drawing) batch.end();
+        combinedMatrix.set(batch.getProjectionMatrix()).mul(batch.getTransformMatrix());
+        draw(combinedMatrix);
+        if (drawing) batch.begin();
+    }
+
+    /**
+     * Draw the cached text with a combined projection and transform matrix.
+     * Entries that changed are updated before.
+     */
+    public void draw(@NotNull Matrix4 projectionTransform) {
+        update();
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        ShaderProgram shader = null;
+        for (Page page : pages) {
+            if (page.size == 0) continue;
+
+            ShaderProgram pageShader = getShader(page.fieldType);
+            if (pageShader != shader) {
+                shader = pageShader;
+                shader.bind();
+                shader.setUniformMatrix("u_projTrans", projectionTransform);
+                shader.setUniformi("u_texture", 0);
+            }
+            page.texture.bind(0);
+            int location = shader.fetchUniformLocation("u_textureSize", false);
+            if (location != -1) {
+                shader.setUniformf(location, page.texture.getWidth(), page.texture.getHeight());
+            }
+
+            int quads = page.size / QUAD_SIZE;
+            for (int i = 0; i < page.meshes.size; i++) {
+                int count = Math.min(quads - i * MAX_QUADS, MAX_QUADS);
+                page.meshes.get(i).render(shader, GL20.GL_TRIANGLES, 0, count * 6);
+            }
+        }
+
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+    }
+
+    /**
+     * Update the vertices of the entries that changed, then upload the vertices that changed.
+     */
+    private void update() {
+        for (Entry entry : entries.values()) {
+            DynamicAtlas atlas = entry.font.getDynamicAtlas();
+            if (entry.dirty || entry.isStyleChanged()
+                    || atlas != null && atlas.getVersion() != entry.atlasVersion) {
+                updateEntry(entry);
+            }
+        }
+
+        for (int i = pages.size - 1; i >= 0; i--) {
+            Page page = pages.get(i);
+            if (page.rebuild) {
+                if (page.entries.size == 0) {
+                    page.dispose();
+                    pages.removeIndex(i);
+                    continue;
+                }
+                rebuildPage(page);
+            } else if (page.dirtyEnd != -1) {
+                uploadRange(page, page.dirtyStart, page.dirtyEnd);
+                partialUpdates++;
+            }
+            page.dirtyStart = Integer.MAX_VALUE;
+            page.dirtyEnd = -1;
+        }
+    }
+
+    private void updateEntry(Entry entry) {
+        MsdfFont font = entry.font;
+        FontStyle style = entry.style;
+        entry.dirty = false;
+        entry.saveStyle();
+
+        // Lay out the text like a label does, with the scale of the style.
+        BitmapFontCache cache = fontCaches.get(font);
+        if (cache == null) {
+            cache = font.getFont().newFontCache();
+            fontCaches.put(font, cache);
+        }
+        BitmapFontData data = font.getFont().getData();
+        float oldScaleX = data.scaleX;
+        float oldScaleY = data.scaleY;
+        data.setScale(style.getSize() / font.getGlyphSize());
+        GlyphLayout layout = cache.setText(entry.text, entry.x, entry.y,
+                entry.targetWidth, entry.halign, entry.wrap);
+        data.setScale(oldScaleX, oldScaleY);
+        entry.width = layout.width;
+        entry.height = layout.height;
+
+        DynamicAtlas atlas = font.getDynamicAtlas();
+        if (atlas != null) {
+            entry.atlasVersion = atlas.getVersion();
+        }
+
+        // Pages the entry is no longer on are rebuilt without it.
+        Array<TextureRegion> regions = font.getFont().getRegions();
+        for (int i = entry.pages.size - 1; i >= 0; i--) {
+            Page page = entry.pages.get(i);
+            int fontPage = indexOfTexture(regions, page.texture);
+            if (fontPage == -1 || cache.getVertexCount(fontPage) == 0) {
+                page.entries.removeValue(entry, true);
+                page.rebuild = true;
+                entry.removePage(i);
+            }
+        }
+
+        // Convert the vertices of each page to the cache vertex format, adding the style.
+        for (int i = 0; i < regions.size; i++) {
+            int count = cache.getVertexCount(i);
+            if (count == 0) continue;
+            styleAttributes.set(font, style, i);
+
+            Texture texture = regions.get(i).getTexture();
+            Page page = getPage(texture, font.getFieldType());
+            int size = count / CACHE_VERTEX_SIZE * MsdfBatch.VERTEX_SIZE;
+            int index = entry.pages.indexOf(page, true);
+            float[] vertices;
+            if (index == -1) {
+                vertices = new float[size];
+                entry.pages.add(page);
+                entry.vertices.add(vertices);
+                entry.offsets.add(0);
+                page.entries.add(entry);
+                page.rebuild = true;
+            } else {
+                vertices = entry.vertices.get(index);
+                if (vertices.length != size) {
+                    vertices = new float[size];
+                    entry.vertices.set(index, vertices);
+                    page.rebuild = true;
+                }
+            }
+            convertVertices(cache.getVertices(i), count, vertices);
+
+            if (!page.rebuild) {
+                // Same number of glyphs, update the vertices in place.
+                int offset = entry.offsets.get(index);
+                System.arraycopy(vertices, 0, page.vertices, offset, size);
+                page.dirtyStart = Math.min(page.dirtyStart, offset);
+                page.dirtyEnd = Math.max(page.dirtyEnd, offset + size);
+            }
+        }
+    }
+
+    private void convertVertices(float[] src, int count, float[] dst) {
+        for (int s = 0, d = 0; s < count; s += CACHE_VERTEX_SIZE, d += MsdfBatch.VERTEX_SIZE) {
+            System.arraycopy(src, s, dst, d, CACHE_VERTEX_SIZE);
+            styleAttributes.write(dst, d + CACHE_VERTEX_SIZE);
+        }
+    }
+
+    /**
+     * Concatenate the vertices of the entries on a page and upload them all.
+     */
+    private void rebuildPage(Page page) {
+        int size = 0;
+        for (int i = 0; i < page.entries.size; i++) {
+            Entry entry = page.entries.get(i);
+            size += entry.vertices.get(entry.pages.indexOf(page, true)).length;
+        }
+        if (page.vertices.length < size) {
+            page.vertices = new float[size];
+        }
+
+        int offset = 0;
+        for (int i = 0; i < page.entries.size; i++) {
+            Entry entry = page.entries.get(i);
+            int index = entry.pages.indexOf(page, true);
+            float[] vertices = entry.vertices.get(index);
+            System.arraycopy(vertices, 0, page.vertices, offset, vertices.length);
+            entry.offsets.set(index, offset);
+            offset += vertices.length;
+        }
+        page.size = size;
+        page.rebuild = false;
+
+        // Create the meshes needed for the number of glyphs, each holding at most MAX_QUADS glyphs.
+        int quads = size / QUAD_SIZE;
+        int meshCount = (quads + MAX_QUADS - 1) / MAX_QUADS;
+        while (page.meshes.size > meshCount) {
+            page.meshes.pop().dispose();
+        }
+        for (int i = 0; i < meshCount; i++) {
+            int meshQuads = Math.min(quads - i * MAX_QUADS, MAX_QUADS);
+            Mesh mesh = i < page.meshes.size ? page.meshes.get(i) : null;
+            if (mesh == null || mesh.getMaxVertices() < meshQuads * 4) {
+                // Leave room for more glyphs to avoid creating a mesh every time text is added.
+                int capacity = Math.min(MathUtils.nextPowerOfTwo(meshQuads), MAX_QUADS);
+                if (mesh != null) mesh.dispose();
+                mesh = createMesh(capacity);
+                if (i < page.meshes.size) {
+                    page.meshes.set(i, mesh);
+                } else {
+                    page.meshes.add(mesh);
+                }
+            }
+        }
+        uploadRange(page, 0, size);
+        rebuilds++;
+    }
+
+    /**
+     * Upload a range of the vertices of a page to the meshes holding them.
+     */
+    private void uploadRange(Page page, int start, int end) {
+        int meshSize = MAX_QUADS * QUAD_SIZE;
+        for (int i = start / meshSize; i < page.meshes.size && i * meshSize < end; i++) {
+            int meshStart = Math.max(start, i * meshSize);
+            int meshEnd = Math.min(end, Math.min(page.size, (i + 1) * meshSize));
+            page.meshes.get(i).updateVertices(meshStart - i * meshSize, page.vertices,
+                    meshStart, meshEnd - meshStart);
+        }
+    }
+
+    private Mesh createMesh(int quads) {
+        Mesh mesh = new Mesh(true, quads * 4, quads * 6, StyleAttributes.createVertexAttributes());
+        if (indices.length < quads * 6) {
+            indices = new short[quads * 6];
+            short j = 0;
+            for (int i = 0; i < indices.length; i += 6, j += 4) {
+                indices[i] = j;
+                indices[i + 1] = (short) (j + 1);
+                indices[i + 2] = (short) (j + 2);
+                indices[i + 3] = (short) (j + 2);
+                indices[i + 4] = (short) (j + 3);
+                indices[i + 5] = j;
+            }
+        }
+        mesh.setIndices(indices, 0, quads * 6);
+        // Vertices must be allocated for updateVertices to work on a new mesh.
+        mesh.setVertices(new float[quads * QUAD_SIZE]);
+        return mesh;
+    }
+
+    private Page getPage(Texture texture, DistanceFieldType fieldType) {
+        for (Page page : pages) {
+            if (page.texture == texture) return page;
+        }
+        Page page = new Page();
+        page.texture = texture;
+        page.fieldType = fieldType;
+        pages.add(page);
+        return page;
+    }
+
+    private ShaderProgram getShader(DistanceFieldType fieldType) {
+        ShaderProgram shader = shaders[fieldType.ordinal()];
+        if (shader == null) {
+            shader = MsdfBatch.createDefaultShader(fieldType);
+            shaders[fieldType.ordinal()] = shader;
+        }
+        return shader;
+    }
+
+    private static int indexOfTexture(Array<TextureRegion> regions, Texture texture) {
+        for (int i = 0; i < regions.size; i++) {
+            if (regions.get(i).getTexture() == texture) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of entries in the cache.
+     */
+    public int getEntryCount() {
+        return entries.size;
+    }
+
+    /**
+     * Returns the number of glyphs in the cache, as of the last draw.
+     */
+    public int getGlyphCount() {
+        int size = 0;
+        for (Page page : pages) {
+            size += page.size;
+        }
+        return size / QUAD_SIZE;
+    }
+
+    /**
+     * Returns the number of times the vertices of a page were rebuilt and uploaded entirely.
+     */
+    public int getRebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * Returns the number of times only the vertices of the entries that changed on a page were uploaded.
+     */
+    public int getPartialUpdates() {
+        return partialUpdates;
+    }
+
+    /**
+     * Reset the rebuilds and partial updates counters.
+     */
+    public void resetStats() {
+        rebuilds = 0;
+        partialUpdates = 0;
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+        for (int i = 0; i < shaders.length; i++) {
+            if (shaders[i] != null) {
+                shaders[i].dispose();
+                shaders[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MsdfTextCache{" +
+                "entries=" + entries.size +
+                ", pages=" + pages.size +
+                ", rebuilds=" + rebuilds +
+                ", partialUpdates=" + partialUpdates +
+                '}';
+    }
+
+
+    private static final class Entry {
+        MsdfFont font;
+        FontStyle style;
+        String text;
+        float x;
+        float y;
+        float targetWidth;
+        int halign;
+        boolean wrap;
+
+        boolean dirty;
+        int atlasVersion;
+        float width;
+        float height;
+
+        // Style version and values that can be modified in place when the entry was last updated.
+        int styleVersion;
+        float color;
+        float shadowColor;
+        float innerShadowColor;
+        float shadowOffsetX;
+        float shadowOffsetY;
+
+        // Pages the entry has glyphs on, with its vertices and their offset in the page vertices.
+        final Array<Page> pages = new Array<Page>(1);
+        final Array<float[]> vertices = new Array<float[]>(1);
+        final IntArray offsets = new IntArray(1);
+
+        void saveStyle() {
+            styleVersion = style.getVersion();
+            color = style.getColor().toFloatBits();
+            shadowColor = style.getShadowColor().toFloatBits();
+            innerShadowColor = style.getInnerShadowColor().toFloatBits();
+            shadowOffsetX = style.getShadowOffset().x;
+            shadowOffsetY = style.getShadowOffset().y;
+        }
+
+        boolean isStyleChanged() {
+            return style.getVersion() != styleVersion
+                    || color != style.getColor().toFloatBits()
+                    || shadowColor != style.getShadowColor().toFloatBits()
+                    || innerShadowColor != style.getInnerShadowColor().toFloatBits()
+                    || shadowOffsetX != style.getShadowOffset().x
+                    || shadowOffsetY != style.getShadowOffset().y;
+        }
+
+        void removePage(int index) {
+            pages.removeIndex(index);
+            vertices.removeIndex(index);
+            offsets.removeIndex(index);
+        }
+
+        boolean textEquals(CharSequence other) {
+            int length = text.length();
+            if (length != other.length()) return false;
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) != other.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Page implements Disposable {
+        Texture texture;
+        DistanceFieldType fieldType;
+        final Array<Entry> entries = new Array<Entry>();
+
+        // Vertices of all entries on the page, the first size floats are used.
+        float[] vertices = new float[0];
+        int size;
+        final Array<Mesh> meshes = new Array<Mesh>(1);
+
+        // Whether the vertices must be rebuilt, or else the range of floats to upload again.
+        boolean rebuild;
+        int dirtyStart = Integer.MAX_VALUE;
+        int dirtyEnd = -1;
+
+        @Override
+        public void dispose() {
+            for (Mesh mesh : meshes) {
+                mesh.dispose();
+            }
+            meshes.clear();
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * Text with spans drawn with a different style than the rest of the text, displayed by
+ * {@link com.maltaisn.msdfgdx.widget.MsdfRichLabel}. A span can change the style, the color or both.
+ * Only the properties that don't affect layout are used from a span style: color, weight and shadows.
+ * The font and size are always those of the label, so the text is laid out as a single paragraph.
+ * <p>
+ * Rich text is immutable, create it with a {@link Builder} or parse it with a {@link RichTextParser}.
+ */
+public final class RichText {
+
+    @NotNull
+    private final String text;
+
+    // Spans, sorted and not overlapping.
+    private final int[] starts;
+    private final int[] ends;
+    private final FontStyle[] styles;
+    private final Color[] colors;
+
+
+    private RichText(Builder builder) {
+        text = builder.text.toString();
+        int count = builder.starts.size;
+        starts = builder.starts.toArray();
+        ends = builder.ends.toArray();
+        styles = new FontStyle[count];
+        colors = new Color[count];
+        for (int i = 0; i < count; i++) {
+            styles[i] = builder.styles.get(i);
+            colors[i] = builder.colors.get(i);
+        }
+    }
+
+
+    /**
+     * Returns the text without markup.
+     */
+    @NotNull
+    public String getText() {
+        return text;
+    }
+
+    public int getSpanCount() {
+        return starts.length;
+    }
+
+    /**
+     * Returns the index of the first character of a span.
+     */
+    public int getSpanStart(int span) {
+        return starts[span];
+    }
+
+    /**
+     * Returns the index after the last character of a span.
+     */
+    public int getSpanEnd(int span) {
+        return ends[span];
+    }
+
+    /**
+     * Returns the style of a span, or null if the span uses the label style with another color.
+     */
+    @Nullable
+    public FontStyle getSpanStyle(int span) {
+        return styles[span];
+    }
+
+    /**
+     * Returns the color of a span, or null if the span uses the color of its style.
+     */
+    @Nullable
+    public Color getSpanColor(int span) {
+        return colors[span];
+    }
+
+    /**
+     * Returns the index of the span containing a character, or -1 if the character isn't in a span.
+     */
+    public int getSpanAt(int index) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (index < starts[mid]) {
+                high = mid - 1;
+            } else if (index >= ends[mid]) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "RichText{" +
+                "text='" + text + '\'' +
+                ", spans=" + starts.length +
+                '}';
+    }
+
+
+    /**
+     * Builder for rich text, appending text segments one after the other.
+     */
+    public static final class Builder {
+
+        private final StringBuilder text = new StringBuilder();
+        private final IntArray starts = new IntArray();
+        private final IntArray ends = new IntArray();
+        private final Array<FontStyle> styles = new Array<FontStyle>();
+        private final Array<Color> colors = new Array<Color>();
+
+
+        /**
+         * Append text drawn with the label style.
+         */
+        @NotNull
+        public Builder append(@NotNull CharSequence text) {
+            return append(text, null, null);
+        }
+
+        /**
+         * Append text drawn with a style.
+         */
+        @NotNull
+        public Builder append(@NotNull CharSequence text, @NotNull FontStyle style) {
+            return append(text, style, null);
+        }
+
+        /**
+         * Append text drawn with the label style in another color.
+         */
+        @NotNull
+        public Builder append(@NotNull CharSequence text, @NotNull Color color) {
+            return append(text, null, color);
+        }
+
+        /**
+         * Append text drawn with a style and a color.
+         *
+         * @param style The style of the text, or null for the label style.
+         * @param color The color of the text, or null for the color of the style.
+         */
+        @NotNull
+        public Builder append(@NotNull CharSequence text, @Nullable FontStyle style, @Nullable Color color) {
+            int start = this.text.length();
+            this.text.append(text);
+            int end = this.text.length();
+            if (start == end || style == null && color == null) {
+                return this;
+            }
+
+            int last = starts.size - 1;
+            if (last >= 0 && ends.get(last) == start && styles.get(last) == style
+                    && (color == null ? colors.get(last) == null : color.equals(colors.get(last)))) {
+                // Same style as the previous span, extend it.
+                ends.set(last, end);
+            } else {
+                starts.add(start);
+                ends.add(end);
+                styles.add(style);
+                colors.add(color != null ? new Color(color) : null);
+            }
+            return this;
+        }
+
+        /**
+         * Returns the length of the text appended so far.
+         */
+        public int length() {
+            return text.length();
+        }
+
+        @NotNull
+        public RichText build() {
+            return new RichText(this);
+        }
+
+    }
+
+}
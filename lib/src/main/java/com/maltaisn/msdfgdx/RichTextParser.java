@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Colors;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Array;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+
+/**
+ * Parses markup into {@link RichText}, caching the result so that labels showing the same
+ * markup don't parse it again. The markup uses tags in square brackets:
+ * <ul>
+ * <li>{@code [name]} starts text drawn with the {@link FontStyle} named {@code name} in the skin,
+ * or with the color named {@code name} in {@link Colors} if there's no such style.</li>
+ * <li>{@code [#RRGGBB]} or {@code [#RRGGBBAA]} starts text drawn with the current style in another color.</li>
+ * <li>{@code []} ends the text started by the last tag.</li>
+ * <li>{@code [[} is an escaped left square bracket.</li>
+ * </ul>
+ * Tags that aren't recognized are kept in the text. For example, {@code "Press [bold]Start[] or [#ff0000]Quit[]"}.
+ * <p>
+ * Parsed rich text is cached in least recently used order. Styles are obtained from the skin when parsing,
+ * so the cache must be cleared if the styles in the skin are replaced. The parser isn't thread-safe.
+ * {@link com.maltaisn.msdfgdx.widget.MsdfRichLabel} uses the parser named "default" in its skin if there's one.
+ */
+public final class RichTextParser {
+
+    @NotNull
+    private final Skin skin;
+
+    private final LinkedHashMap<String, RichText> cache = new LinkedHashMap<String, RichText>(16, 0.75f, true);
+    private int capacity;
+
+    private int hits;
+    private int misses;
+
+    // Stacks of styles and colors of the open tags, reused between calls.
+    private final Array<FontStyle> styleStack = new Array<FontStyle>();
+    private final Array<Color> colorStack = new Array<Color>();
+    private final StringBuilder segment = new StringBuilder();
+
+
+    /**
+     * Create a parser.
+     *
+     * @param skin     The skin named styles are obtained from.
+     * @param capacity The maximum number of parsed texts cached.
+     */
+    public RichTextParser(@NotNull Skin skin, int capacity) {
+        //noinspection ConstantConditions
+        if (skin == null) throw new NullPointerException("Skin cannot be null");
+        this.skin = skin;
+        setCapacity(capacity);
+    }
+
+
+    /**
+     * Parse markup, or return the rich text already parsed for the same markup.
+     */
+    @NotNull
+    public RichText parse(@NotNull String markup) {
+        RichText text = cache.get(markup);
+        if (text != null) {
+            hits++;
+            return text;
+        }
+        misses++;
+
+        text = parseUncached(markup);
+        cache.put(markup, text);
+        trim();
+        return text;
+    }
+
+    private RichText parseUncached(String markup) {
+        RichText.Builder builder = new RichText.Builder();
+        styleStack.clear();
+        colorStack.clear();
+        segment.setLength(0);
+
+        FontStyle style = null;
+        Color color = null;
+        int length = markup.length();
+        for (int i = 0; i < length; i++) {
+            char ch = markup.charAt(i);
+            if (ch != '[' || i + 1 == length) {
+                segment.append(ch);
+                continue;
+            }
+            if (markup.charAt(i + 1) == '[') {
+                segment.append('[');
+                i++;
+                continue;
+            }
+
+            int end = markup.indexOf(']', i + 1);
+            if (end == -1) {
+                segment.append(ch);
+                continue;
+            }
+
+            FontStyle newStyle = style;
+            Color newColor = null;
+            boolean pop = end == i + 1;
+            boolean valid;
+            if (pop) {
+                // Nothing to end if no tag is open.
+                valid = styleStack.size > 0;
+            } else {
+                String tag = markup.substring(i + 1, end);
+                FontStyle namedStyle = null;
+                if (tag.charAt(0) == '#') {
+                    newColor = parseHexColor(tag);
+                } else {
+                    namedStyle = skin.optional(tag, FontStyle.class);
+                    if (namedStyle != null) {
+                        newStyle = namedStyle;
+                    } else {
+                        newColor = Colors.get(tag);
+                    }
+                }
+                valid = namedStyle != null || newColor != null;
+            }
+            if (!valid) {
+                // Unknown tag, keep it in the text.
+                segment.append(ch);
+                continue;
+            }
+
+            // The tag is valid, append the text before it with the current style.
+            if (segment.length() > 0) {
+                builder.append(segment, style, color);
+                segment.setLength(0);
+            }
+            if (pop) {
+                style = styleStack.pop();
+                color = colorStack.pop();
+            } else {
+                styleStack.add(style);
+                colorStack.add(color);
+                // A named style uses its own color, a color tag keeps the current style.
+                style = newStyle;
+                color = newColor;
+            }
+            i = end;
+        }
+        if (segment.length() > 0) {
+            builder.append(segment, style, color);
+        }
+        return builder.build();
+    }
+
+    @Nullable
+    private static Color parseHexColor(String tag) {
+        int digits = tag.length() - 1;
+        if (digits != 6 && digits != 8) return null;
+        long value = 0;
+        for (int i = 1; i <= digits; i++) {
+            int digit = Character.digit(tag.charAt(i), 16);
+            if (digit == -1) return null;
+            value = value << 4 | digit;
+        }
+        if (digits == 6) {
+            value = value << 8 | 0xFF;
+        }
+        return new Color((int) value);
+    }
+
+    /**
+     * Remove all parsed texts from the cache. Must be called if styles in the skin are replaced.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Set the maximum number of parsed texts cached.
+     * Least recently used texts are evicted if the cache is now too large.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than zero.");
+        this.capacity = capacity;
+        trim();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of parsed texts in the cache.
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of calls for which the text was cached.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls for which the text had to be parsed.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Reset the hits and misses counters.
+     */
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+    }
+
+    private void trim() {
+        Iterator<String> it = cache.keySet().iterator();
+        while (cache.size() > capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.utils.StringBuilder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * A text transform substituting lowercase latin letters with their small capital
+ * equivalent from the Unicode IPA and phonetic extensions blocks, for example 'a' with 'ᴀ'.
+ * Other characters, and letters for which the font has no small capital glyph,
+ * are converted to uppercase instead.
+ */
+public final class SmallCapsTransform implements TextTransform {
+
+    /**
+     * Small capital letters from 'a' to 'z'. There's no small capital 'x', a lowercase 'x' is used instead.
+     */
+    private static final String SMALL_CAPS = "\u1D00\u0299\u1D04\u1D05\u1D07\uA730\u0262\u029C\u026A"
+            + "\u1D0A\u1D0B\u029F\u1D0D\u0274\u1D0F\u1D18\uA7AF\u0280\uA731\u1D1B\u1D1C\u1D20\u1D21"
+            + "x\u028F\u1D22";
+
+    private final TextTransform upperCase;
+
+    /**
+     * Substitution for each letter from 'a' to 'z', or zero to use the uppercase transform.
+     */
+    private final char[] table = new char[26];
+
+    private final Range range = new Range();
+
+
+    /**
+     * Create a small caps transform using the default locale for uppercasing.
+     *
+     * @param font The font used to display the text. Letters are only substituted if the font
+     *             has a glyph for the small capital. If null, all letters are substituted.
+     */
+    public SmallCapsTransform(@Nullable BitmapFont font) {
+        this(font, UpperCaseTransform.getDefault());
+    }
+
+    /**
+     * Create a small caps transform.
+     *
+     * @param font      The font used to display the text. Letters are only substituted if the font
+     *                  has a glyph for the small capital. If null, all letters are substituted.
+     * @param upperCase The transform used for characters that aren't substituted.
+     */
+    public SmallCapsTransform(@Nullable BitmapFont font, @NotNull TextTransform upperCase) {
+        this.upperCase = upperCase;
+        for (int i = 0; i < table.length; i++) {
+            char c = SMALL_CAPS.charAt(i);
+            if (font == null || font.getData().hasGlyph(c)) {
+                table[i] = c;
+            }
+        }
+    }
+
+    @Override
+    public void transform(@NotNull CharSequence text, @NotNull StringBuilder out) {
+        int start = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z' && table[c - 'a'] != 0) {
+                // Uppercase the characters since last substitution, then substitute.
+                if (start < i) {
+                    upperCase.transform(range.set(text, start, i), out);
+                }
+                out.append(table[c - 'a']);
+                start = i + 1;
+            }
+        }
+        if (start == 0) {
+            upperCase.transform(text, out);
+        } else if (start < text.length()) {
+            upperCase.transform(range.set(text, start, text.length()), out);
+        }
+        range.set(null, 0, 0);
+    }
+
+
+    /**
+     * A reusable view on a range of a char sequence, to avoid allocating with {@link CharSequence#subSequence(int, int)}.
+     */
+    private static final class Range implements CharSequence {
+        private CharSequence text;
+        private int start;
+        private int end;
+
+        Range set(CharSequence text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return text.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(this.start + start, this.start + end);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return text.subSequence(start, end).toString();
+        }
+    }
+
+}
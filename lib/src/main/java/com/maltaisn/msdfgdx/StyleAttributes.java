@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+
+
+/**
+ * The style values of a font style, packed in the format of the per-vertex style
+ * attributes used by {@link MsdfBatch}. The default state is the sprite state,
+ * for which the shader draws the texture as is.
+ */
+final class StyleAttributes {
+
+    /**
+     * Number of floats taken by the style attributes in a vertex.
+     */
+    static final int SIZE = 10;
+
+    /**
+     * Number of floats taken by the style values when passed as uniforms, five vec4.
+     */
+    static final int UNIFORM_SIZE = 20;
+
+    private final float[] values = new float[SIZE];
+
+    private MsdfFont lastFont;
+    private FontStyle lastStyle;
+    private int lastStyleVersion;
+    private int lastPage;
+
+
+    StyleAttributes() {
+        setSprite();
+    }
+
+
+    /**
+     * Set the style values for text drawn with a font and a style.
+     */
+    void set(MsdfFont font, FontStyle style) {
+        set(font, style, 0);
+    }
+
+    /**
+     * Set the style values for text drawn with a font and a style on a page of the font.
+     * Only the distance factor depends on the page, see {@link MsdfFont#getDistanceRange(int)}.
+     */
+    void set(MsdfFont font, FontStyle style, int page) {
+        if (font == lastFont && style == lastStyle && style.getVersion() == lastStyleVersion
+                && !isChangedInPlace(style)) {
+            if (page != lastPage) {
+                values[3] = font.getDistanceRange(page) * style.getSize() / font.getGlyphSize();
+                lastPage = page;
+            }
+            return;
+        }
+        lastFont = font;
+        lastStyle = style;
+        lastStyleVersion = style.getVersion();
+        lastPage = page;
+
+        float[] values = this.values;
+        values[0] = style.getColor().toFloatBits();
+        values[1] = style.getShadowColor().toFloatBits();
+        values[2] = style.getInnerShadowColor().toFloatBits();
+        values[3] = font.getDistanceRange(page) * style.getSize() / font.getGlyphSize();
+        values[4] = style.getWeight();
+        values[5] = style.isShadowClipped() ? 1f : 0f;
+        values[6] = style.getInnerShadowRange();
+        values[7] = style.getShadowOffset().x;
+        values[8] = style.getShadowOffset().y;
+        values[9] = style.getShadowSmoothing();
+    }
+
+    /**
+     * Returns whether the colors or the shadow offset of the last style were modified in place,
+     * which doesn't change the style version.
+     */
+    private boolean isChangedInPlace(FontStyle style) {
+        float[] values = this.values;
+        return values[0] != style.getColor().toFloatBits()
+                || values[1] != style.getShadowColor().toFloatBits()
+                || values[2] != style.getInnerShadowColor().toFloatBits()
+                || values[7] != style.getShadowOffset().x
+                || values[8] != style.getShadowOffset().y;
+    }
+
+    /**
+     * Set the style values for drawing sprites, indicated by a distance factor of zero.
+     */
+    void setSprite() {
+        lastFont = null;
+        lastStyle = null;
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = 0f;
+        }
+    }
+
+    /**
+     * Write the style values to a vertices array at an index.
+     */
+    void write(float[] vertices, int idx) {
+        System.arraycopy(values, 0, vertices, idx, SIZE);
+    }
+
+    /**
+     * Write the style values for text drawn with a font and a style on a page of the font
+     * as {@link #UNIFORM_SIZE} floats, in the format of the style table of {@link MsdfInstancedRenderer}:
+     * font color, shadow color, inner shadow color, font parameters and shadow parameters, as vec4.
+     */
+    static void writeUniforms(MsdfFont font, FontStyle style, int page, float[] values, int idx) {
+        writeColor(style.getColor(), values, idx);
+        writeColor(style.getShadowColor(), values, idx + 4);
+        writeColor(style.getInnerShadowColor(), values, idx + 8);
+        values[idx + 12] = font.getDistanceRange(page) * style.getSize() / font.getGlyphSize();
+        values[idx + 13] = style.getWeight();
+        values[idx + 14] = style.isShadowClipped() ? 1f : 0f;
+        values[idx + 15] = style.getInnerShadowRange();
+        values[idx + 16] = style.getShadowOffset().x;
+        values[idx + 17] = style.getShadowOffset().y;
+        values[idx + 18] = style.getShadowSmoothing();
+        values[idx + 19] = 0f;
+    }
+
+    private static void writeColor(Color color, float[] values, int idx) {
+        values[idx] = color.r;
+        values[idx + 1] = color.g;
+        values[idx + 2] = color.b;
+        values[idx + 3] = color.a;
+    }
+
+    /**
+     * Create the vertex attributes of a vertex with style, including the position,
+     * color and texture coordinates attributes of a {@link com.badlogic.gdx.graphics.g2d.SpriteBatch} vertex.
+     */
+    static VertexAttribute[] createVertexAttributes() {
+        return new VertexAttribute[]{
+                new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE),
+                new VertexAttribute(VertexAttributes.Usage.TextureCoordinates, 2, ShaderProgram.TEXCOORD_ATTRIBUTE + "0"),
+                new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, "a_fontColor"),
+                new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, "a_shadowColor"),
+                new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, "a_innerShadowColor"),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 4, "a_fontParams"),
+                new VertexAttribute(VertexAttributes.Usage.Generic, 3, "a_shadowParams"),
+        };
+    }
+
+}
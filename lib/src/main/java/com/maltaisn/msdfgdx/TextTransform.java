@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.utils.StringBuilder;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * A transformation applied to text before it's displayed, for example to uppercase it.
+ * Implementations should append to the output without allocating, since text may be
+ * transformed every frame.
+ *
+ * @see UpperCaseTransform
+ * @see SmallCapsTransform
+ */
+public interface TextTransform {
+
+    /**
+     * Transform text and append the result to a string builder.
+     *
+     * @param text The text to transform.
+     * @param out  The string builder to append the transformed text to.
+     */
+    void transform(@NotNull CharSequence text, @NotNull StringBuilder out);
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.utils.StringBuilder;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+
+/**
+ * A text transform converting text to uppercase according to the rules of a locale.
+ * The uppercase mapping of characters up to the Armenian block is precomputed, so that
+ * the locale rules are applied without allocating. Other characters are converted with
+ * {@link Character#toUpperCase(char)}.
+ */
+public final class UpperCaseTransform implements TextTransform {
+
+    /**
+     * Characters below this value are mapped using the table.
+     * This covers Latin, Greek, Cyrillic and Armenian.
+     */
+    private static final int TABLE_SIZE = 0x590;
+
+    private static UpperCaseTransform defaultTransform;
+
+    private final Locale locale;
+
+    /**
+     * Uppercase mapping of each character. The mapping is zero for characters
+     * which are mapped to multiple characters, like 'ß' mapped to "SS".
+     */
+    private final char[] table = new char[TABLE_SIZE];
+
+    /**
+     * Uppercase mapping of characters mapped to multiple characters, indexed by character.
+     */
+    private final String[] expansions = new String[TABLE_SIZE];
+
+
+    public UpperCaseTransform(@NotNull Locale locale) {
+        this.locale = locale;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            String upper = String.valueOf((char) i).toUpperCase(locale);
+            if (upper.length() == 1) {
+                table[i] = upper.charAt(0);
+            } else {
+                expansions[i] = upper;
+            }
+        }
+    }
+
+    /**
+     * Returns a transform for the default locale. The transform is cached
+     * and only recreated if the default locale changes.
+     */
+    @NotNull
+    public static UpperCaseTransform getDefault() {
+        Locale locale = Locale.getDefault();
+        if (defaultTransform == null || !defaultTransform.locale.equals(locale)) {
+            defaultTransform = new UpperCaseTransform(locale);
+        }
+        return defaultTransform;
+    }
+
+    @NotNull
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public void transform(@NotNull CharSequence text, @NotNull StringBuilder out) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < TABLE_SIZE) {
+                char upper = table[c];
+                if (upper == 0 && c != 0) {
+                    out.append(expansions[c]);
+                } else {
+                    out.append(upper);
+                }
+            } else {
+                out.append(Character.toUpperCase(c));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UpperCaseTransform{locale=" + locale + '}';
+    }
+
+}
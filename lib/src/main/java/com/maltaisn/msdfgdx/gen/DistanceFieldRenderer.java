@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+import com.badlogic.gdx.utils.Array;
+import com.maltaisn.msdfgdx.DistanceFieldType;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Renders the distance field of a glyph shape into the pixels of a font page.
+ * For MSDF, the multi-channel distance field is written to the RGB channels and the true
+ * distance field to the alpha channel (MSDFA). For SDF, only the true distance field is written.
+ * <p>
+ * The MSDF is computed like msdfgen does, with pseudo-distances to the edges of each channel.
+ * The sign of each pixel is then corrected against the non-zero fill rule of the shape,
+ * which also handles overlapping contours and fonts with reversed contours.
+ * Finally, clashing pixels which would create artifacts between channels are replaced by their median.
+ */
+final class DistanceFieldRenderer {
+
+    /**
+     * Default angle threshold in radians under which two edges form a corner, from msdfgen.
+     */
+    static final double ANGLE_THRESHOLD = 3.0;
+
+    /**
+     * Default threshold in pixels of the difference between neighbouring pixels to be considered a clash.
+     */
+    private static final double EDGE_THRESHOLD = 1.001;
+
+    private final SignedDistance distance = new SignedDistance();
+    private final SignedDistance red = new SignedDistance();
+    private final SignedDistance green = new SignedDistance();
+    private final SignedDistance blue = new SignedDistance();
+
+
+    /**
+     * Render the distance field of a shape.
+     *
+     * @param shape     The shape, which must have its edges colored for MSDF.
+     * @param fieldType The type of distance field.
+     * @param scale     The scale from font units to pixels.
+     * @param range     The distance range in pixels.
+     * @param left      The x position in pixels of the left of the glyph box, relative to the glyph origin.
+     * @param top       The y position in pixels of the top of the glyph box, relative to the baseline, y up.
+     * @param width     The width of the glyph box in pixels.
+     * @param height    The height of the glyph box in pixels.
+     * @param pixels    The pixels of the page, in RGBA8888 format for MSDF and alpha format for SDF.
+     * @param pageWidth The width of the page in pixels.
+     * @param x         The x position of the glyph box in the page.
+     * @param y         The y position of the glyph box in the page, from the top.
+     */
+    void render(Shape shape, DistanceFieldType fieldType, double scale, double range,
+                int left, int top, int width, int height,
+                ByteBuffer pixels, int pageWidth, int x, int y) {
+        if (fieldType == DistanceFieldType.SDF) {
+            renderSdf(shape, scale, range, left, top, width, height, pixels, pageWidth, x, y);
+        } else {
+            renderMsdf(shape, scale, range, left, top, width, height, pixels, pageWidth, x, y);
+        }
+    }
+
+    private void renderSdf(Shape shape, double scale, double range, int left, int top,
+                           int width, int height, ByteBuffer pixels, int pageWidth, int x, int y) {
+        for (int py = 0; py < height; py++) {
+            double sy = (top - py - 0.5) / scale;
+            for (int px = 0; px < width; px++) {
+                double sx = (left + px + 0.5) / scale;
+                float value = trueDistance(shape, sx, sy, scale, range);
+                pixels.put((y + py) * pageWidth + x + px, toByte(value));
+            }
+        }
+    }
+
+    private void renderMsdf(Shape shape, double scale, double range, int left, int top,
+                            int width, int height, ByteBuffer pixels, int pageWidth, int x, int y) {
+        float[] output = new float[width * height * 4];
+        for (int py = 0; py < height; py++) {
+            double sy = (top - py - 0.5) / scale;
+            for (int px = 0; px < width; px++) {
+                double sx = (left + px + 0.5) / scale;
+                int i = (py * width + px) * 4;
+                multiDistance(shape, sx, sy, scale, range, output, i);
+                output[i + 3] = trueDistance(shape, sx, sy, scale, range);
+
+                // Correct the sign of the pixel with the fill rule, and use the same sign for the true distance.
+                float r = output[i];
+                float g = output[i + 1];
+                float b = output[i + 2];
+                float median = median(r, g, b);
+                boolean inside = output[i + 3] > 0.5f;
+                if (median != 0.5f && median > 0.5f != inside) {
+                    output[i] = 1 - r;
+                    output[i + 1] = 1 - g;
+                    output[i + 2] = 1 - b;
+                }
+            }
+        }
+
+        correctErrors(output, width, height, (float) (EDGE_THRESHOLD / range));
+
+        for (int py = 0; py < height; py++) {
+            int pos = ((y + py) * pageWidth + x) * 4;
+            int i = py * width * 4;
+            for (int px = 0; px < width * 4; px++) {
+                pixels.put(pos + px, toByte(output[i + px]));
+            }
+        }
+    }
+
+    /**
+     * Compute the true signed distance at a point, normalized with the range, with the sign of the fill rule.
+     */
+    private float trueDistance(Shape shape, double x, double y, double scale, double range) {
+        double minDistance = Double.MAX_VALUE;
+        for (Array<EdgeSegment> contour : shape.contours) {
+            for (EdgeSegment edge : contour) {
+                edge.signedDistance(x, y, distance);
+                minDistance = Math.min(minDistance, Math.abs(distance.distance));
+            }
+        }
+        if (shape.winding(x, y) == 0) {
+            minDistance = -minDistance;
+        }
+        return (float) (minDistance * scale / range + 0.5);
+    }
+
+    /**
+     * Compute the pseudo-distance to the nearest edge of each channel, normalized with the range.
+     */
+    private void multiDistance(Shape shape, double x, double y, double scale, double range,
+                               float[] output, int index) {
+        red.reset();
+        green.reset();
+        blue.reset();
+        EdgeSegment redEdge = null;
+        EdgeSegment greenEdge = null;
+        EdgeSegment blueEdge = null;
+        for (Array<EdgeSegment> contour : shape.contours) {
+            for (EdgeSegment edge : contour) {
+                edge.signedDistance(x, y, distance);
+                if ((edge.color & EdgeSegment.RED) != 0 && distance.lessThan(red)) {
+                    red.set(distance);
+                    redEdge = edge;
+                }
+                if ((edge.color & EdgeSegment.GREEN) != 0 && distance.lessThan(green)) {
+                    green.set(distance);
+                    greenEdge = edge;
+                }
+                if ((edge.color & EdgeSegment.BLUE) != 0 && distance.lessThan(blue)) {
+                    blue.set(distance);
+                    blueEdge = edge;
+                }
+            }
+        }
+        if (redEdge != null) redEdge.distanceToPseudoDistance(red, x, y);
+        if (greenEdge != null) greenEdge.distanceToPseudoDistance(green, x, y);
+        if (blueEdge != null) blueEdge.distanceToPseudoDistance(blue, x, y);
+        output[index] = (float) (red.distance * scale / range + 0.5);
+        output[index + 1] = (float) (green.distance * scale / range + 0.5);
+        output[index + 2] = (float) (blue.distance * scale / range + 0.5);
+    }
+
+    /**
+     * Replace the channels of clashing pixels by their median, as in msdfgen's legacy error correction.
+     */
+    private static void correctErrors(float[] output, int width, int height, float threshold) {
+        boolean[] clashes = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = (y * width + x) * 4;
+                clashes[y * width + x] = x > 0 && pixelClash(output, i, i - 4, threshold)
+                        || x < width - 1 && pixelClash(output, i, i + 4, threshold)
+                        || y > 0 && pixelClash(output, i, i - width * 4, threshold)
+                        || y < height - 1 && pixelClash(output, i, i + width * 4, threshold);
+            }
+        }
+        for (int i = 0; i < clashes.length; i++) {
+            if (clashes[i]) {
+                float median = median(output[i * 4], output[i * 4 + 1], output[i * 4 + 2]);
+                output[i * 4] = median;
+                output[i * 4 + 1] = median;
+                output[i * 4 + 2] = median;
+            }
+        }
+    }
+
+    private static boolean pixelClash(float[] p, int a, int b, float threshold) {
+        // Only consider pairs where both pixels are inside or both are outside.
+        boolean aIn = count(p, a) >= 2;
+        boolean bIn = count(p, b) >= 2;
+        if (aIn != bIn) return false;
+
+        // A change of 0 to 1 or 2 to 3 channels inside isn't a clash, only 1 to 1 or 2 to 2.
+        if (allSame(p, a) || allSame(p, b)) return false;
+
+        // Find the two channels that change, and the remaining one.
+        int ca;
+        int cb;
+        int cc;
+        if (flips(p, a, b, 0)) {
+            ca = 0;
+            if (flips(p, a, b, 1)) {
+                cb = 1;
+                cc = 2;
+            } else if (flips(p, a, b, 2)) {
+                cb = 2;
+                cc = 1;
+            } else {
+                return false;
+            }
+        } else if (flips(p, a, b, 1) && flips(p, a, b, 2)) {
+            ca = 1;
+            cb = 2;
+            cc = 0;
+        } else {
+            return false;
+        }
+
+        // Only flag the pixel farther from the edge, if the channels are really discontinuous.
+        return Math.abs(p[a + ca] - p[b + ca]) >= threshold
+                && Math.abs(p[a + cb] - p[b + cb]) >= threshold
+                && Math.abs(p[a + cc] - 0.5f) >= Math.abs(p[b + cc] - 0.5f);
+    }
+
+    private static int count(float[] p, int i) {
+        return (p[i] > 0.5f ? 1 : 0) + (p[i + 1] > 0.5f ? 1 : 0) + (p[i + 2] > 0.5f ? 1 : 0);
+    }
+
+    private static boolean allSame(float[] p, int i) {
+        return p[i] > 0.5f && p[i + 1] > 0.5f && p[i + 2] > 0.5f
+                || p[i] < 0.5f && p[i + 1] < 0.5f && p[i + 2] < 0.5f;
+    }
+
+    private static boolean flips(float[] p, int a, int b, int c) {
+        return (p[a + c] > 0.5f) != (p[b + c] > 0.5f) && (p[a + c] < 0.5f) != (p[b + c] < 0.5f);
+    }
+
+    private static float median(float r, float g, float b) {
+        return Math.max(Math.min(r, g), Math.min(Math.max(r, g), b));
+    }
+
+    private static byte toByte(float value) {
+        int v = Math.round(value * 255f);
+        return (byte) (v < 0 ? 0 : v > 255 ? 255 : v);
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+
+/**
+ * A segment of a shape contour, going from a start point to an end point.
+ * Each segment has a color, the set of channels of the MSDF in which it's used.
+ * Coordinates are in font units with the y axis pointing up.
+ */
+abstract class EdgeSegment {
+
+    static final int BLACK = 0;
+    static final int RED = 1;
+    static final int GREEN = 2;
+    static final int YELLOW = 3;
+    static final int BLUE = 4;
+    static final int MAGENTA = 5;
+    static final int CYAN = 6;
+    static final int WHITE = 7;
+
+    int color = WHITE;
+
+    double x0;
+    double y0;
+    double x1;
+    double y1;
+
+
+    EdgeSegment(double x0, double y0, double x1, double y1) {
+        this.x0 = x0;
+        this.y0 = y0;
+        this.x1 = x1;
+        this.y1 = y1;
+    }
+
+    /**
+     * Returns the x coordinate of the point at parameter {@code t}, from 0 to 1.
+     */
+    abstract double pointX(double t);
+
+    abstract double pointY(double t);
+
+    /**
+     * Returns the x component of the direction of the segment at parameter {@code t}, not normalized.
+     */
+    abstract double directionX(double t);
+
+    abstract double directionY(double t);
+
+    /**
+     * Compute the signed distance from a point to the segment, setting the nearest point parameter.
+     */
+    abstract void signedDistance(double x, double y, SignedDistance result);
+
+    /**
+     * Extend a bounding box {@code [minX, minY, maxX, maxY]} to contain the segment.
+     */
+    abstract void extendBounds(double[] bounds);
+
+    /**
+     * Find the intersections of the segment with the horizontal line at {@code y}, to the right of {@code x}.
+     *
+     * @return The sum of the directions of the intersections, +1 going up and -1 going down.
+     */
+    abstract int crossings(double x, double y);
+
+    /**
+     * Returns twice the signed area between the segment and the origin, positive if counter-clockwise.
+     */
+    abstract double area();
+
+    /**
+     * Reverse the direction of the segment.
+     */
+    abstract void reverse();
+
+    /**
+     * Split the segment in three parts of equal parameter range, putting them in {@code parts} at {@code index}.
+     */
+    abstract void splitInThirds(EdgeSegment[] parts, int index);
+
+    /**
+     * Converts a distance to an endpoint of the segment to a pseudo-distance, the distance to the
+     * line extending the segment past the endpoint, if the nearest point is past that endpoint.
+     */
+    void distanceToPseudoDistance(SignedDistance distance, double x, double y) {
+        if (distance.param < 0) {
+            double dx = directionX(0);
+            double dy = directionY(0);
+            double length = Math.sqrt(dx * dx + dy * dy);
+            if (length == 0) return;
+            dx /= length;
+            dy /= length;
+            double aqx = x - x0;
+            double aqy = y - y0;
+            double ts = aqx * dx + aqy * dy;
+            if (ts < 0) {
+                double pseudoDistance = aqx * dy - aqy * dx;
+                if (Math.abs(pseudoDistance) <= Math.abs(distance.distance)) {
+                    distance.distance = pseudoDistance;
+                    distance.dot = 0;
+                }
+            }
+        } else if (distance.param > 1) {
+            double dx = directionX(1);
+            double dy = directionY(1);
+            double length = Math.sqrt(dx * dx + dy * dy);
+            if (length == 0) return;
+            dx /= length;
+            dy /= length;
+            double bqx = x - x1;
+            double bqy = y - y1;
+            double ts = bqx * dx + bqy * dy;
+            if (ts > 0) {
+                double pseudoDistance = bqx * dy - bqy * dx;
+                if (Math.abs(pseudoDistance) <= Math.abs(distance.distance)) {
+                    distance.distance = pseudoDistance;
+                    distance.dot = 0;
+                }
+            }
+        }
+    }
+
+    static double nonZeroSign(double value) {
+        return value > 0 ? 1 : -1;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+
+/**
+ * Solvers for quadratic and cubic equations, as used by msdfgen.
+ */
+final class EquationSolver {
+
+    private EquationSolver() {
+        // No instances
+    }
+
+    /**
+     * Solve {@code ax² + bx + c = 0}, putting the real roots in {@code x}.
+     *
+     * @return The number of roots, or -1 if there are infinitely many.
+     */
+    static int solveQuadratic(double[] x, double a, double b, double c) {
+        if (a == 0 || Math.abs(b) > 1e12 * Math.abs(a)) {
+            // Linear equation, or too close to being one for numerical stability.
+            if (b == 0) {
+                return c == 0 ? -1 : 0;
+            }
+            x[0] = -c / b;
+            return 1;
+        }
+        double discriminant = b * b - 4 * a * c;
+        if (discriminant > 0) {
+            discriminant = Math.sqrt(discriminant);
+            x[0] = (-b + discriminant) / (2 * a);
+            x[1] = (-b - discriminant) / (2 * a);
+            return 2;
+        } else if (discriminant == 0) {
+            x[0] = -b / (2 * a);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Solve {@code ax³ + bx² + cx + d = 0}, putting the real roots in {@code x}.
+     *
+     * @return The number of roots, or -1 if there are infinitely many.
+     */
+    static int solveCubic(double[] x, double a, double b, double c, double d) {
+        if (a != 0) {
+            double bn = b / a;
+            // Above this ratio, the numerical error is larger than if a was treated as zero.
+            if (Math.abs(bn) < 1e6) {
+                return solveCubicNormed(x, bn, c / a, d / a);
+            }
+        }
+        return solveQuadratic(x, b, c, d);
+    }
+
+    private static int solveCubicNormed(double[] x, double a, double b, double c) {
+        double a2 = a * a;
+        double q = (a2 - 3 * b) / 9;
+        double r = (a * (2 * a2 - 9 * b) + 27 * c) / 54;
+        double r2 = r * r;
+        double q3 = q * q * q;
+        a /= 3;
+        if (r2 < q3) {
+            double t = r / Math.sqrt(q3);
+            if (t < -1) t = -1;
+            if (t > 1) t = 1;
+            t = Math.acos(t);
+            q = -2 * Math.sqrt(q);
+            x[0] = q * Math.cos(t / 3) - a;
+            x[1] = q * Math.cos((t + 2 * Math.PI) / 3) - a;
+            x[2] = q * Math.cos((t - 2 * Math.PI) / 3) - a;
+            return 3;
+        } else {
+            double u = (r < 0 ? 1 : -1) * Math.pow(Math.abs(r) + Math.sqrt(r2 - q3), 1.0 / 3);
+            double v = u == 0 ? 0 : q / u;
+            x[0] = u + v - a;
+            if (u == v || Math.abs(u - v) < 1e-12 * Math.abs(u + v)) {
+                x[1] = -0.5 * (u + v) - a;
+                return 2;
+            }
+            return 1;
+        }
+    }
+
+}
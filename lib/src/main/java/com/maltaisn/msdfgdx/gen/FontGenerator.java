@@ -0,0 +1,417 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.Sort;
+import com.maltaisn.msdfgdx.DistanceFieldType;
+import com.maltaisn.msdfgdx.GlyphSource;
+import com.maltaisn.msdfgdx.MsdfFont;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Generates distance field font pages and font data from a TrueType font at runtime, as an alternative
+ * to generating them offline. The result can be used directly to create a {@link MsdfFont},
+ * or written to files to be loaded later, for example at build time or on first launch.
+ * <p>
+ * Glyphs are generated in parallel on a {@link ForkJoinPool}, which requires Android API 21. Generation doesn't
+ * need an OpenGL context, only the native libraries for {@link Pixmap}, so it can be used on a headless backend.
+ * <pre>{@code
+ * GeneratedFont generated = new FontGenerator(new TrueTypeFont(Gdx.files.internal("roboto.ttf")))
+ *         .setGlyphSize(32)
+ *         .setDistanceRange(4)
+ *         .generate("roboto");
+ * MsdfFont font = generated.createFont();
+ * generated.dispose();
+ * }</pre>
+ * This package isn't available on GWT.
+ */
+public final class FontGenerator {
+
+    /**
+     * The printable ASCII characters, the default charset.
+     */
+    public static final String ASCII_CHARSET;
+
+    static {
+        StringBuilder sb = new StringBuilder();
+        for (char c = 32; c < 127; c++) {
+            sb.append(c);
+        }
+        ASCII_CHARSET = sb.toString();
+    }
+
+    // Pool used by generators without a pool set, created when first needed.
+    @Nullable
+    private static ForkJoinPool defaultPool;
+
+    @NotNull
+    private final TrueTypeFont font;
+
+    @NotNull
+    private String charset = ASCII_CHARSET;
+    private int glyphSize = 32;
+    private int distanceRange = 4;
+    private int padding = -1;
+    private int spacing = 1;
+    @NotNull
+    private DistanceFieldType fieldType = DistanceFieldType.MSDF;
+    private int pageWidth = 512;
+    private int pageHeight = 512;
+    @Nullable
+    private ForkJoinPool pool;
+
+
+    public FontGenerator(@NotNull TrueTypeFont font) {
+        //noinspection ConstantConditions
+        if (font == null) throw new NullPointerException("Font cannot be null");
+        this.font = font;
+    }
+
+
+    /**
+     * Generate the font pages and data.
+     *
+     * @param name The name of the font, used as face name in the font data.
+     */
+    @NotNull
+    public GeneratedFont generate(@NotNull String name) {
+        double scale = getScale();
+
+        // Find the glyph of each character, and the size of its box.
+        Array<GlyphEntry> entries = new Array<GlyphEntry>();
+        IntMap<IntSet> glyphChars = new IntMap<IntSet>();
+        IntSet added = new IntSet();
+        for (int i = 0; i < charset.length(); i++) {
+            char c = charset.charAt(i);
+            if (Character.isSurrogate(c) || !added.add(c)) continue;
+            GlyphEntry entry = measureGlyph(c);
+            if (entry == null) continue;
+            entries.add(entry);
+
+            IntSet chars = glyphChars.get(entry.glyphIndex);
+            if (chars == null) {
+                chars = new IntSet();
+                glyphChars.put(entry.glyphIndex, chars);
+            }
+            chars.add(c);
+        }
+
+        // Pack the glyph boxes, tallest first.
+        Array<GlyphEntry> sorted = new Array<GlyphEntry>(entries);
+        Sort.instance().sort(sorted, HEIGHT_COMPARATOR);
+        ShelfPacker packer = new ShelfPacker(pageWidth, pageHeight, spacing);
+        int[] position = new int[3];
+        Array<GlyphEntry> rendered = new Array<GlyphEntry>();
+        for (GlyphEntry entry : sorted) {
+            if (entry.width == 0 || entry.height == 0) continue;
+            packer.pack(entry.width, entry.height, position);
+            entry.x = position[0];
+            entry.y = position[1];
+            entry.page = position[2];
+            rendered.add(entry);
+        }
+
+        // Render the glyphs in parallel, directly in the pages.
+        Pixmap.Format format = fieldType == DistanceFieldType.SDF ? Pixmap.Format.Alpha : Pixmap.Format.RGBA8888;
+        Array<Pixmap> pages = new Array<Pixmap>();
+        ByteBuffer[] pixels = new ByteBuffer[packer.getPageCount()];
+        for (int i = 0; i < packer.getPageCount(); i++) {
+            Pixmap page = new Pixmap(pageWidth, pageHeight, format);
+            pages.add(page);
+            pixels[i] = page.getPixels();
+        }
+        ForkJoinPool pool = this.pool != null ? this.pool : getDefaultPool();
+        pool.invoke(new RenderTask(this, rendered, 0, rendered.size, pixels));
+
+        // Kernings between the generated characters, as triplets of first, second and amount.
+        IntArray kernings = new IntArray();
+        if (font.hasKerning()) {
+            for (IntIntMap.Entry kerning : font.getKernings()) {
+                IntSet firsts = glyphChars.get(kerning.key >>> 16);
+                IntSet seconds = glyphChars.get(kerning.key & 0xFFFF);
+                int amount = (int) Math.round(kerning.value * scale);
+                if (firsts == null || seconds == null || amount == 0) continue;
+                amount = Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, amount));
+                IntSet.IntSetIterator it = firsts.iterator();
+                while (it.hasNext) {
+                    int first = it.next();
+                    IntSet.IntSetIterator it2 = seconds.iterator();
+                    while (it2.hasNext) {
+                        kernings.add(first, it2.next(), amount);
+                    }
+                }
+            }
+        }
+
+        int base = getBase();
+        int lineHeight = (int) Math.round((font.getAscender() - font.getDescender() + font.getLineGap()) * scale);
+        int[][] glyphs = new int[entries.size][];
+        for (int i = 0; i < entries.size; i++) {
+            GlyphEntry entry = entries.get(i);
+            glyphs[i] = new int[]{entry.id, entry.x, entry.y, entry.width, entry.height,
+                    entry.left, entry.getYOffset(base), entry.xadvance, entry.page};
+        }
+        return new GeneratedFont(name, glyphSize, distanceRange, fieldType, lineHeight, base,
+                pageWidth, pageHeight, pages, glyphs, kernings.toArray());
+    }
+
+    /**
+     * Create a glyph source generating glyphs with the settings of this generator, to generate
+     * glyphs on demand in a {@link com.maltaisn.msdfgdx.DynamicAtlas}. The font the atlas is added to
+     * should be generated with the same settings, and the settings must not change afterwards.
+     * Unlike {@link #generate(String)}, glyphs are generated on the rendering thread when needed.
+     */
+    @NotNull
+    public GlyphSource createGlyphSource() {
+        return new GeneratorGlyphSource(this);
+    }
+
+    double getScale() {
+        return (double) glyphSize / font.getUnitsPerEm();
+    }
+
+    int getBase() {
+        return (int) Math.round(font.getAscender() * getScale());
+    }
+
+    /**
+     * Find the glyph of a character and the size of its box, or return null if the font has no glyph for it.
+     */
+    @Nullable
+    GlyphEntry measureGlyph(char c) {
+        int glyphIndex = font.getGlyphIndex(c);
+        if (glyphIndex == 0) return null;
+
+        double scale = getScale();
+        int padding = this.padding >= 0 ? this.padding : (distanceRange + 1) / 2;
+        GlyphEntry entry = new GlyphEntry();
+        entry.id = c;
+        entry.glyphIndex = glyphIndex;
+        entry.xadvance = (int) Math.round(font.getAdvanceWidth(glyphIndex) * scale);
+        Shape shape = font.getShape(glyphIndex);
+        if (!shape.isEmpty()) {
+            entry.shape = shape;
+            double[] bounds = shape.getBounds();
+            entry.left = (int) Math.floor(bounds[0] * scale) - padding;
+            entry.bottom = (int) Math.floor(bounds[1] * scale) - padding;
+            entry.width = (int) Math.ceil(bounds[2] * scale) + padding - entry.left;
+            entry.height = (int) Math.ceil(bounds[3] * scale) + padding - entry.bottom;
+        }
+        return entry;
+    }
+
+    /**
+     * Render the shape of a glyph at its position in a page. The shape is released once rendered.
+     */
+    void renderGlyph(DistanceFieldRenderer renderer, GlyphEntry entry, ByteBuffer pixels, int pageWidth) {
+        Shape shape = entry.shape;
+        entry.shape = null;
+        shape.normalizeOrientation();
+        if (fieldType == DistanceFieldType.MSDF) {
+            shape.colorEdges(DistanceFieldRenderer.ANGLE_THRESHOLD);
+        }
+        renderer.render(shape, fieldType, getScale(), distanceRange,
+                entry.left, entry.bottom + entry.height, entry.width, entry.height,
+                pixels, pageWidth, entry.x, entry.y);
+    }
+
+    /**
+     * Set the characters to generate. Characters the font has no glyph for are skipped,
+     * as are characters outside of the basic multilingual plane. Default is {@link #ASCII_CHARSET}.
+     */
+    @NotNull
+    public FontGenerator setCharset(@NotNull String charset) {
+        //noinspection ConstantConditions
+        if (charset == null) throw new NullPointerException("Charset cannot be null");
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Set the size of the em square in pixels in the font pages, see {@link MsdfFont#getGlyphSize()}. Default is 32.
+     */
+    @NotNull
+    public FontGenerator setGlyphSize(int glyphSize) {
+        if (glyphSize <= 0) throw new IllegalArgumentException("Glyph size must be greater than zero.");
+        this.glyphSize = glyphSize;
+        return this;
+    }
+
+    /**
+     * Set the distance range in pixels, see {@link MsdfFont#getDistanceRange()}. Default is 4.
+     */
+    @NotNull
+    public FontGenerator setDistanceRange(int distanceRange) {
+        if (distanceRange <= 0) throw new IllegalArgumentException("Distance range must be greater than zero.");
+        this.distanceRange = distanceRange;
+        return this;
+    }
+
+    /**
+     * Set the padding in pixels around each glyph, or -1 to use half the distance range, the default.
+     * A larger padding leaves more room for shadows with a large offset.
+     */
+    @NotNull
+    public FontGenerator setPadding(int padding) {
+        this.padding = padding;
+        return this;
+    }
+
+    /**
+     * Set the spacing in pixels between glyphs in the pages. Default is 1.
+     */
+    @NotNull
+    public FontGenerator setSpacing(int spacing) {
+        if (spacing < 0) throw new IllegalArgumentException("Spacing cannot be negative.");
+        this.spacing = spacing;
+        return this;
+    }
+
+    /**
+     * Set the type of distance field generated. SDF pages use the alpha format. Default is MSDF.
+     */
+    @NotNull
+    public FontGenerator setFieldType(@NotNull DistanceFieldType fieldType) {
+        //noinspection ConstantConditions
+        if (fieldType == null) throw new NullPointerException("Field type cannot be null");
+        this.fieldType = fieldType;
+        return this;
+    }
+
+    /**
+     * Set the size of the pages in pixels. More pages are created if the glyphs don't fit in one. Default is 512x512.
+     */
+    @NotNull
+    public FontGenerator setPageSize(int width, int height) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Page size must be greater than zero.");
+        this.pageWidth = width;
+        this.pageHeight = height;
+        return this;
+    }
+
+    @NotNull
+    private static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) {
+            defaultPool = new ForkJoinPool();
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Set the pool used to generate glyphs in parallel, or null to use a pool shared by all generators,
+     * the default, created when first needed with one thread per processor. Its threads are daemon threads,
+     * which are stopped when idle. {@link ForkJoinPool#commonPool()} isn't used since it requires Android API 24.
+     */
+    @NotNull
+    public FontGenerator setPool(@Nullable ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    @NotNull
+    public TrueTypeFont getFont() {
+        return font;
+    }
+
+
+    private static final Comparator<GlyphEntry> HEIGHT_COMPARATOR = new Comparator<GlyphEntry>() {
+        @Override
+        public int compare(GlyphEntry e1, GlyphEntry e2) {
+            return e2.height - e1.height;
+        }
+    };
+
+    static final class GlyphEntry {
+        Shape shape;
+        int id;
+        int glyphIndex;
+        int xadvance;
+
+        // Glyph box, relative to the glyph origin, y up.
+        int left;
+        int bottom;
+        int width;
+        int height;
+
+        // Position in the pages.
+        int x;
+        int y;
+        int page;
+
+        /**
+         * Returns the y offset of the glyph from the top of the line, as in a text font file.
+         */
+        int getYOffset(int base) {
+            return width == 0 ? 0 : base - (bottom + height);
+        }
+    }
+
+    /**
+     * Renders a range of glyphs, splitting it in two until small enough.
+     */
+    private static final class RenderTask extends RecursiveAction {
+
+        private static final int THRESHOLD = 4;
+
+        private final FontGenerator generator;
+        private final Array<GlyphEntry> entries;
+        private final int start;
+        private final int end;
+        private final ByteBuffer[] pixels;
+
+        RenderTask(FontGenerator generator, Array<GlyphEntry> entries, int start, int end, ByteBuffer[] pixels) {
+            this.generator = generator;
+            this.entries = entries;
+            this.start = start;
+            this.end = end;
+            this.pixels = pixels;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > THRESHOLD) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new RenderTask(generator, entries, start, mid, pixels),
+                        new RenderTask(generator, entries, mid, end, pixels));
+                return;
+            }
+
+            // Each task has its own renderer, and each shape is only used by the task rendering it.
+            DistanceFieldRenderer renderer = new DistanceFieldRenderer();
+            for (int i = start; i < end; i++) {
+                // Pages are written at disjoint positions, with absolute puts only.
+                GlyphEntry entry = entries.get(i);
+                generator.renderGlyph(renderer, entry, pixels[entry.page], generator.pageWidth);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.PixmapIO;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.maltaisn.msdfgdx.BinaryFontFormat;
+import com.maltaisn.msdfgdx.DistanceFieldType;
+import com.maltaisn.msdfgdx.MsdfFont;
+import com.maltaisn.msdfgdx.MsdfFontData;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.UnsupportedEncodingException;
+
+
+/**
+ * A font generated by {@link FontGenerator}, made of font pages in memory and the glyph metrics.
+ * The generated font must be disposed when not needed anymore to free the pages,
+ * fonts created from it have their own textures.
+ */
+public final class GeneratedFont implements Disposable {
+
+    @NotNull
+    private final String name;
+    private final int glyphSize;
+    private final int distanceRange;
+    @NotNull
+    private final DistanceFieldType fieldType;
+    private final int lineHeight;
+    private final int base;
+    private final int pageWidth;
+    private final int pageHeight;
+    @NotNull
+    private final Array<Pixmap> pages;
+
+    // For each glyph: id, x, y, width, height, xoffset, yoffset, xadvance, page.
+    private final int[][] glyphs;
+
+    // Kerning triplets: first, second, amount.
+    private final int[] kernings;
+
+
+    GeneratedFont(@NotNull String name, int glyphSize, int distanceRange, @NotNull DistanceFieldType fieldType,
+                  int lineHeight, int base, int pageWidth, int pageHeight,
+                  @NotNull Array<Pixmap> pages, int[][] glyphs, int[] kernings) {
+        this.name = name;
+        this.glyphSize = glyphSize;
+        this.distanceRange = distanceRange;
+        this.fieldType = fieldType;
+        this.lineHeight = lineHeight;
+        this.base = base;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.pages = pages;
+        this.glyphs = glyphs;
+        this.kernings = kernings;
+    }
+
+
+    /**
+     * Returns the font data. Page paths are the file names that {@link #write(FileHandle)}
+     * would use for a font file named after the font.
+     */
+    @NotNull
+    public MsdfFontData getData() {
+        return getData(new FileHandle(name + ".fnt"));
+    }
+
+    private MsdfFontData getData(FileHandle fontFile) {
+        try {
+            byte[] content = toText(fontFile.nameWithoutExtension()).getBytes("UTF-8");
+            return new MsdfFontData(fontFile.sibling(fontFile.nameWithoutExtension() + ".fnt"), content, false);
+        } catch (UnsupportedEncodingException e) {
+            throw new GdxRuntimeException(e);
+        }
+    }
+
+    /**
+     * Create a font with new textures uploaded from the pages. Requires an OpenGL context.
+     */
+    @NotNull
+    public MsdfFont createFont() {
+        Array<TextureRegion> regions = new Array<TextureRegion>(pages.size);
+        for (Pixmap page : pages) {
+            Texture texture = new Texture(page, true);
+            texture.setFilter(Texture.TextureFilter.MipMapLinearNearest, Texture.TextureFilter.Linear);
+            regions.add(new TextureRegion(texture));
+        }
+        BitmapFont font = new BitmapFont(getData(), regions, true);
+        font.setOwnsTexture(true);
+        return new MsdfFont(font, glyphSize, distanceRange, fieldType);
+    }
+
+    /**
+     * Write the font to a text (.fnt) or binary font file, depending on the extension.
+     * Pages are written as PNG files next to the font file, named after it.
+     */
+    public void write(@NotNull FileHandle fontFile) {
+        String pagesName = fontFile.nameWithoutExtension();
+        if (BinaryFontFormat.EXTENSION.equals(fontFile.extension())) {
+            MsdfFontData data = getData(fontFile);
+            BinaryFontFormat.write(data, fontFile);
+        } else {
+            fontFile.writeString(toText(pagesName), false, "UTF-8");
+        }
+        for (int i = 0; i < pages.size; i++) {
+            PixmapIO.writePNG(fontFile.sibling(getPageFileName(pagesName, i)), pages.get(i));
+        }
+    }
+
+    /**
+     * Returns the font in the BMFont text format, with the fields added by msdf-bmfont-xml.
+     */
+    private String toText(String pagesName) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("info face=\"").append(name).append("\" size=").append(glyphSize)
+                .append(" bold=0 italic=0 charset=\"\" unicode=1 stretchH=100 smooth=1 aa=1")
+                .append(" padding=0,0,0,0 spacing=0,0\n");
+        sb.append("common lineHeight=").append(lineHeight).append(" base=").append(base)
+                .append(" scaleW=").append(pageWidth).append(" scaleH=").append(pageHeight)
+                .append(" pages=").append(pages.size).append(" packed=0")
+                .append(" distanceRange=").append(distanceRange)
+                .append(" fieldType=").append(fieldType.value).append('\n');
+        for (int i = 0; i < pages.size; i++) {
+            sb.append("page id=").append(i).append(" file=\"")
+                    .append(getPageFileName(pagesName, i)).append("\"\n");
+        }
+        sb.append("chars count=").append(glyphs.length).append('\n');
+        for (int[] glyph : glyphs) {
+            sb.append("char id=").append(glyph[0])
+                    .append(" x=").append(glyph[1])
+                    .append(" y=").append(glyph[2])
+                    .append(" width=").append(glyph[3])
+                    .append(" height=").append(glyph[4])
+                    .append(" xoffset=").append(glyph[5])
+                    .append(" yoffset=").append(glyph[6])
+                    .append(" xadvance=").append(glyph[7])
+                    .append(" page=").append(glyph[8])
+                    .append(" chnl=15\n");
+        }
+        if (kernings.length > 0) {
+            sb.append("kernings count=").append(kernings.length / 3).append('\n');
+            for (int i = 0; i < kernings.length; i += 3) {
+                sb.append("kerning first=").append(kernings[i])
+                        .append(" second=").append(kernings[i + 1])
+                        .append(" amount=").append(kernings[i + 2]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private String getPageFileName(String pagesName, int page) {
+        return pages.size == 1 ? pagesName + ".png" : pagesName + '_' + page + ".png";
+    }
+
+    /**
+     * Returns the font pages. They are owned by this object and disposed with it.
+     */
+    @NotNull
+    public Array<Pixmap> getPages() {
+        return pages;
+    }
+
+    @NotNull
+    public String getName() {
+        return name;
+    }
+
+    public int getGlyphSize() {
+        return glyphSize;
+    }
+
+    public int getDistanceRange() {
+        return distanceRange;
+    }
+
+    @NotNull
+    public DistanceFieldType getFieldType() {
+        return fieldType;
+    }
+
+    @Override
+    public void dispose() {
+        for (Pixmap page : pages) {
+            page.dispose();
+        }
+        pages.clear();
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+import com.maltaisn.msdfgdx.GlyphSource;
+
+import org.jetbrains.annotations.NotNull;
+
+
+/**
+ * Glyph source rendering glyphs with the settings of a {@link FontGenerator} when they are needed.
+ */
+final class GeneratorGlyphSource implements GlyphSource {
+
+    private final FontGenerator generator;
+    private final DistanceFieldRenderer renderer = new DistanceFieldRenderer();
+    private final int base;
+
+
+    GeneratorGlyphSource(FontGenerator generator) {
+        this.generator = generator;
+        this.base = generator.getBase();
+    }
+
+
+    @Override
+    public boolean loadGlyph(char ch, @NotNull Glyph glyph, @NotNull Pixmap cell) {
+        FontGenerator.GlyphEntry entry = generator.measureGlyph(ch);
+        if (entry == null) return false;
+
+        glyph.width = entry.width;
+        glyph.height = entry.height;
+        glyph.xoffset = entry.left;
+        glyph.yoffset = entry.getYOffset(base);
+        glyph.xadvance = entry.xadvance;
+
+        if (entry.shape != null && entry.width <= cell.getWidth() && entry.height <= cell.getHeight()) {
+            generator.renderGlyph(renderer, entry, cell.getPixels(), cell.getWidth());
+        }
+        return true;
+    }
+
+}
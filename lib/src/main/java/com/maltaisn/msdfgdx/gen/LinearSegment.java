@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+
+/**
+ * A straight line edge segment.
+ */
+final class LinearSegment extends EdgeSegment {
+
+    LinearSegment(double x0, double y0, double x1, double y1) {
+        super(x0, y0, x1, y1);
+    }
+
+
+    @Override
+    double pointX(double t) {
+        return x0 + (x1 - x0) * t;
+    }
+
+    @Override
+    double pointY(double t) {
+        return y0 + (y1 - y0) * t;
+    }
+
+    @Override
+    double directionX(double t) {
+        return x1 - x0;
+    }
+
+    @Override
+    double directionY(double t) {
+        return y1 - y0;
+    }
+
+    @Override
+    void signedDistance(double x, double y, SignedDistance result) {
+        double aqx = x - x0;
+        double aqy = y - y0;
+        double abx = x1 - x0;
+        double aby = y1 - y0;
+        double param = (aqx * abx + aqy * aby) / (abx * abx + aby * aby);
+        result.param = param;
+
+        // Vector from the point to the nearest endpoint.
+        double eqx = (param > 0.5 ? x1 : x0) - x;
+        double eqy = (param > 0.5 ? y1 : y0) - y;
+        double endpointDistance = Math.sqrt(eqx * eqx + eqy * eqy);
+        double abLength = Math.sqrt(abx * abx + aby * aby);
+        if (param > 0 && param < 1) {
+            double orthoDistance = (aby * aqx - abx * aqy) / abLength;
+            if (Math.abs(orthoDistance) < endpointDistance) {
+                result.set(orthoDistance, 0);
+                return;
+            }
+        }
+        double dot = endpointDistance == 0 ? 0 : Math.abs((abx * eqx + aby * eqy) / (abLength * endpointDistance));
+        result.set(nonZeroSign(aqx * aby - aqy * abx) * endpointDistance, dot);
+    }
+
+    @Override
+    void extendBounds(double[] bounds) {
+        bounds[0] = Math.min(bounds[0], Math.min(x0, x1));
+        bounds[1] = Math.min(bounds[1], Math.min(y0, y1));
+        bounds[2] = Math.max(bounds[2], Math.max(x0, x1));
+        bounds[3] = Math.max(bounds[3], Math.max(y0, y1));
+    }
+
+    @Override
+    int crossings(double x, double y) {
+        // Endpoints on the line count as above it, so a point shared by two segments is only counted once.
+        if (y0 <= y != y1 <= y) {
+            double t = (y - y0) / (y1 - y0);
+            if (pointX(t) > x) {
+                return y1 > y0 ? 1 : -1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    double area() {
+        return x0 * y1 - x1 * y0;
+    }
+
+    @Override
+    void reverse() {
+        double x = x0;
+        double y = y0;
+        x0 = x1;
+        y0 = y1;
+        x1 = x;
+        y1 = y;
+    }
+
+    @Override
+    void splitInThirds(EdgeSegment[] parts, int index) {
+        double ax = pointX(1.0 / 3);
+        double ay = pointY(1.0 / 3);
+        double bx = pointX(2.0 / 3);
+        double by = pointY(2.0 / 3);
+        parts[index] = new LinearSegment(x0, y0, ax, ay);
+        parts[index + 1] = new LinearSegment(ax, ay, bx, by);
+        parts[index + 2] = new LinearSegment(bx, by, x1, y1);
+        for (int i = 0; i < 3; i++) {
+            parts[index + i].color = color;
+        }
+    }
+
+}
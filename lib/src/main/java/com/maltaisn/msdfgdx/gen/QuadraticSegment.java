@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+
+/**
+ * A quadratic Bézier edge segment, the only curve used by TrueType outlines.
+ */
+final class QuadraticSegment extends EdgeSegment {
+
+    double cx;
+    double cy;
+
+    // Roots of the cubic and quadratic equations, reused to avoid allocating.
+    private final double[] roots = new double[3];
+
+
+    QuadraticSegment(double x0, double y0, double cx, double cy, double x1, double y1) {
+        super(x0, y0, x1, y1);
+        this.cx = cx;
+        this.cy = cy;
+    }
+
+
+    @Override
+    double pointX(double t) {
+        double s = 1 - t;
+        return s * s * x0 + 2 * s * t * cx + t * t * x1;
+    }
+
+    @Override
+    double pointY(double t) {
+        double s = 1 - t;
+        return s * s * y0 + 2 * s * t * cy + t * t * y1;
+    }
+
+    @Override
+    double directionX(double t) {
+        double dx = (cx - x0) + ((x1 - cx) - (cx - x0)) * t;
+        double dy = (cy - y0) + ((y1 - cy) - (cy - y0)) * t;
+        return dx == 0 && dy == 0 ? x1 - x0 : dx;
+    }
+
+    @Override
+    double directionY(double t) {
+        double dx = (cx - x0) + ((x1 - cx) - (cx - x0)) * t;
+        double dy = (cy - y0) + ((y1 - cy) - (cy - y0)) * t;
+        return dx == 0 && dy == 0 ? y1 - y0 : dy;
+    }
+
+    @Override
+    void signedDistance(double x, double y, SignedDistance result) {
+        double qax = x0 - x;
+        double qay = y0 - y;
+        double abx = cx - x0;
+        double aby = cy - y0;
+        double brx = x1 - cx - abx;
+        double bry = y1 - cy - aby;
+        double a = brx * brx + bry * bry;
+        double b = 3 * (abx * brx + aby * bry);
+        double c = 2 * (abx * abx + aby * aby) + (qax * brx + qay * bry);
+        double d = qax * abx + qay * aby;
+        double[] t = roots;
+        int solutions = EquationSolver.solveCubic(t, a, b, c, d);
+
+        // Distance from the start point.
+        double epx = directionX(0);
+        double epy = directionY(0);
+        double minDistance = nonZeroSign(epx * qay - epy * qax) * Math.sqrt(qax * qax + qay * qay);
+        double param = -(qax * epx + qay * epy) / (epx * epx + epy * epy);
+
+        // Distance from the end point.
+        epx = directionX(1);
+        epy = directionY(1);
+        double bqx = x1 - x;
+        double bqy = y1 - y;
+        double distance = Math.sqrt(bqx * bqx + bqy * bqy);
+        if (distance < Math.abs(minDistance)) {
+            minDistance = nonZeroSign(epx * bqy - epy * bqx) * distance;
+            param = ((x - cx) * epx + (y - cy) * epy) / (epx * epx + epy * epy);
+        }
+
+        // Distance from the points on the curve where the direction is orthogonal to the point.
+        for (int i = 0; i < solutions; i++) {
+            double ti = t[i];
+            if (ti > 0 && ti < 1) {
+                double qex = qax + 2 * ti * abx + ti * ti * brx;
+                double qey = qay + 2 * ti * aby + ti * ti * bry;
+                distance = Math.sqrt(qex * qex + qey * qey);
+                if (distance <= Math.abs(minDistance)) {
+                    double dx = abx + ti * brx;
+                    double dy = aby + ti * bry;
+                    minDistance = nonZeroSign(dx * qey - dy * qex) * distance;
+                    param = ti;
+                }
+            }
+        }
+
+        result.param = param;
+        if (param >= 0 && param <= 1) {
+            result.set(minDistance, 0);
+        } else if (param < 0.5) {
+            result.set(minDistance, normalizedDot(directionX(0), directionY(0), qax, qay));
+        } else {
+            result.set(minDistance, normalizedDot(directionX(1), directionY(1), bqx, bqy));
+        }
+    }
+
+    private static double normalizedDot(double ax, double ay, double bx, double by) {
+        double length = Math.sqrt(ax * ax + ay * ay) * Math.sqrt(bx * bx + by * by);
+        return length == 0 ? 0 : Math.abs((ax * bx + ay * by) / length);
+    }
+
+    @Override
+    void extendBounds(double[] bounds) {
+        bounds[0] = Math.min(bounds[0], Math.min(x0, x1));
+        bounds[1] = Math.min(bounds[1], Math.min(y0, y1));
+        bounds[2] = Math.max(bounds[2], Math.max(x0, x1));
+        bounds[3] = Math.max(bounds[3], Math.max(y0, y1));
+
+        // Add the extremums of the curve, where the direction is zero on an axis.
+        double ddx = x0 - 2 * cx + x1;
+        if (ddx != 0) {
+            double t = (x0 - cx) / ddx;
+            if (t > 0 && t < 1) {
+                double x = pointX(t);
+                bounds[0] = Math.min(bounds[0], x);
+                bounds[2] = Math.max(bounds[2], x);
+            }
+        }
+        double ddy = y0 - 2 * cy + y1;
+        if (ddy != 0) {
+            double t = (y0 - cy) / ddy;
+            if (t > 0 && t < 1) {
+                double y = pointY(t);
+                bounds[1] = Math.min(bounds[1], y);
+                bounds[3] = Math.max(bounds[3], y);
+            }
+        }
+    }
+
+    @Override
+    int crossings(double x, double y) {
+        // Split the curve at its vertical extremum so that each part is monotonic,
+        // then count each part like a linear segment.
+        double ddy = y0 - 2 * cy + y1;
+        double extremum = ddy != 0 ? (y0 - cy) / ddy : -1;
+        if (extremum > 0 && extremum < 1) {
+            return crossings(x, y, 0, extremum) + crossings(x, y, extremum, 1);
+        }
+        return crossings(x, y, 0, 1);
+    }
+
+    private int crossings(double x, double y, double t0, double t1) {
+        double ya = pointY(t0);
+        double yb = pointY(t1);
+        if (ya <= y == yb <= y) {
+            return 0;
+        }
+
+        // Find the parameter of the intersection within the monotonic part.
+        int solutions = EquationSolver.solveQuadratic(roots, y0 - 2 * cy + y1, 2 * (cy - y0), y0 - y);
+        double t = (t0 + t1) / 2;
+        for (int i = 0; i < solutions; i++) {
+            if (roots[i] >= t0 - 1e-9 && roots[i] <= t1 + 1e-9) {
+                t = roots[i];
+                break;
+            }
+        }
+        if (pointX(t) > x) {
+            return yb > ya ? 1 : -1;
+        }
+        return 0;
+    }
+
+    @Override
+    double area() {
+        // Area of the control polygon, close enough to determine orientation.
+        return (x0 * cy - cx * y0) + (cx * y1 - x1 * cy);
+    }
+
+    @Override
+    void reverse() {
+        double x = x0;
+        double y = y0;
+        x0 = x1;
+        y0 = y1;
+        x1 = x;
+        y1 = y;
+    }
+
+    @Override
+    void splitInThirds(EdgeSegment[] parts, int index) {
+        double ax = pointX(1.0 / 3);
+        double ay = pointY(1.0 / 3);
+        double bx = pointX(2.0 / 3);
+        double by = pointY(2.0 / 3);
+        // Control points of each part, from de Casteljau subdivision.
+        parts[index] = new QuadraticSegment(x0, y0,
+                x0 + (cx - x0) / 3, y0 + (cy - y0) / 3, ax, ay);
+        parts[index + 1] = new QuadraticSegment(ax, ay,
+                mix(mix(x0, cx, 5.0 / 9), mix(cx, x1, 4.0 / 9), 0.5),
+                mix(mix(y0, cy, 5.0 / 9), mix(cy, y1, 4.0 / 9), 0.5), bx, by);
+        parts[index + 2] = new QuadraticSegment(bx, by,
+                cx + (x1 - cx) * 2 / 3, cy + (y1 - cy) * 2 / 3, x1, y1);
+        for (int i = 0; i < 3; i++) {
+            parts[index + i].color = color;
+        }
+    }
+
+    private static double mix(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+
+}
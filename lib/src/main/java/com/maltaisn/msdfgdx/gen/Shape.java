@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+
+/**
+ * The outline of a glyph, made of closed contours of edge segments.
+ * A shape isn't thread-safe, it must only be used by one thread at a time.
+ */
+final class Shape {
+
+    final Array<Array<EdgeSegment>> contours = new Array<Array<EdgeSegment>>();
+
+
+    boolean isEmpty() {
+        for (Array<EdgeSegment> contour : contours) {
+            if (contour.size > 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the bounding box of the shape, {@code [minX, minY, maxX, maxY]}.
+     */
+    double[] getBounds() {
+        double[] bounds = {Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (Array<EdgeSegment> contour : contours) {
+            for (EdgeSegment edge : contour) {
+                edge.extendBounds(bounds);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Reverse all contours if the outer contours are counter-clockwise. The distance signs
+     * assume the TrueType convention of clockwise outer contours, with the y axis pointing up.
+     */
+    void normalizeOrientation() {
+        double area = 0;
+        for (Array<EdgeSegment> contour : contours) {
+            for (EdgeSegment edge : contour) {
+                area += edge.area();
+            }
+        }
+        if (area > 0) {
+            for (Array<EdgeSegment> contour : contours) {
+                contour.reverse();
+                for (EdgeSegment edge : contour) {
+                    edge.reverse();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the winding number of the shape around a point. The point is inside if non-zero.
+     */
+    int winding(double x, double y) {
+        int winding = 0;
+        for (Array<EdgeSegment> contour : contours) {
+            for (EdgeSegment edge : contour) {
+                winding += edge.crossings(x, y);
+            }
+        }
+        return winding;
+    }
+
+    /**
+     * Assign colors to the edges so that the edges meeting at a corner share at most one channel,
+     * which keeps the corner sharp in the MSDF. This is the simple edge coloring of msdfgen.
+     *
+     * @param angleThreshold The maximum angle in radians between two edges to be considered a corner.
+     */
+    void colorEdges(double angleThreshold) {
+        double crossThreshold = Math.sin(angleThreshold);
+        long[] seed = {0};
+        IntArray corners = new IntArray();
+        for (Array<EdgeSegment> contour : contours) {
+            if (contour.size == 0) continue;
+
+            // Find the corners
+            corners.clear();
+            EdgeSegment last = contour.peek();
+            double prevX = last.directionX(1);
+            double prevY = last.directionY(1);
+            for (int i = 0; i < contour.size; i++) {
+                EdgeSegment edge = contour.get(i);
+                if (isCorner(prevX, prevY, edge.directionX(0), edge.directionY(0), crossThreshold)) {
+                    corners.add(i);
+                }
+                prevX = edge.directionX(1);
+                prevY = edge.directionY(1);
+            }
+
+            if (corners.size == 0) {
+                // Smooth contour
+                for (EdgeSegment edge : contour) {
+                    edge.color = EdgeSegment.WHITE;
+                }
+
+            } else if (corners.size == 1) {
+                // Teardrop, the edges are split in three colors around the corner.
+                int[] colors = {EdgeSegment.WHITE, EdgeSegment.WHITE, EdgeSegment.WHITE};
+                colors[0] = switchColor(colors[0], seed, EdgeSegment.BLACK);
+                colors[2] = switchColor(colors[0], seed, EdgeSegment.BLACK);
+                int corner = corners.items[0];
+                int m = contour.size;
+                if (m >= 3) {
+                    for (int i = 0; i < m; i++) {
+                        int k = (int) (3 + 2.875 * i / (m - 1) - 1.4375 + 0.5) - 3;
+                        contour.get((corner + i) % m).color = colors[k + 1];
+                    }
+                } else {
+                    // Less than three edges for three colors, the edges must be split.
+                    EdgeSegment[] parts = new EdgeSegment[7];
+                    contour.get(0).splitInThirds(parts, 3 * corner);
+                    if (m >= 2) {
+                        contour.get(1).splitInThirds(parts, 3 - 3 * corner);
+                        parts[0].color = parts[1].color = colors[0];
+                        parts[2].color = parts[3].color = colors[1];
+                        parts[4].color = parts[5].color = colors[2];
+                    } else {
+                        parts[0].color = colors[0];
+                        parts[1].color = colors[1];
+                        parts[2].color = colors[2];
+                    }
+                    contour.clear();
+                    for (int i = 0; parts[i] != null; i++) {
+                        contour.add(parts[i]);
+                    }
+                }
+
+            } else {
+                // Multiple corners, switch color at each corner.
+                int cornerCount = corners.size;
+                int spline = 0;
+                int start = corners.items[0];
+                int m = contour.size;
+                int color = switchColor(EdgeSegment.WHITE, seed, EdgeSegment.BLACK);
+                int initialColor = color;
+                for (int i = 0; i < m; i++) {
+                    int index = (start + i) % m;
+                    if (spline + 1 < cornerCount && corners.items[spline + 1] == index) {
+                        spline++;
+                        color = switchColor(color, seed,
+                                spline == cornerCount - 1 ? initialColor : EdgeSegment.BLACK);
+                    }
+                    contour.get(index).color = color;
+                }
+            }
+        }
+    }
+
+    private static boolean isCorner(double ax, double ay, double bx, double by, double crossThreshold) {
+        double la = Math.sqrt(ax * ax + ay * ay);
+        double lb = Math.sqrt(bx * bx + by * by);
+        if (la == 0 || lb == 0) return false;
+        ax /= la;
+        ay /= la;
+        bx /= lb;
+        by /= lb;
+        return ax * bx + ay * by <= 0 || Math.abs(ax * by - ay * bx) > crossThreshold;
+    }
+
+    private static int switchColor(int color, long[] seed, int banned) {
+        int combined = color & banned;
+        if (combined == EdgeSegment.RED || combined == EdgeSegment.GREEN || combined == EdgeSegment.BLUE) {
+            return combined ^ EdgeSegment.WHITE;
+        }
+        if (color == EdgeSegment.BLACK || color == EdgeSegment.WHITE) {
+            int[] start = {EdgeSegment.CYAN, EdgeSegment.MAGENTA, EdgeSegment.YELLOW};
+            int result = start[(int) (seed[0] % 3)];
+            seed[0] /= 3;
+            return result;
+        }
+        int shifted = color << (1 + (int) (seed[0] & 1));
+        seed[0] >>= 1;
+        return (shifted | shifted >> 3) & EdgeSegment.WHITE;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+
+/**
+ * Packs rectangles in rows of pages of fixed size. Rectangles should be added
+ * from tallest to shortest for the rows to be filled with little waste.
+ */
+final class ShelfPacker {
+
+    private final int pageWidth;
+    private final int pageHeight;
+    private final int spacing;
+
+    private int pageCount;
+    private int shelfX;
+    private int shelfY;
+    private int shelfHeight;
+
+
+    ShelfPacker(int pageWidth, int pageHeight, int spacing) {
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.spacing = spacing;
+        pageCount = 1;
+    }
+
+
+    /**
+     * Pack a rectangle, putting its x and y position and its page in {@code out}.
+     */
+    void pack(int width, int height, int[] out) {
+        if (width > pageWidth || height > pageHeight) {
+            throw new GdxRuntimeException("Glyph of size " + width + "x" + height
+                    + " doesn't fit in a page of size " + pageWidth + "x" + pageHeight + '.');
+        }
+
+        if (shelfX + width > pageWidth) {
+            // Start a new row.
+            shelfX = 0;
+            shelfY += shelfHeight + spacing;
+            shelfHeight = 0;
+        }
+        if (shelfY + height > pageHeight) {
+            // Start a new page.
+            pageCount++;
+            shelfX = 0;
+            shelfY = 0;
+            shelfHeight = 0;
+        }
+
+        out[0] = shelfX;
+        out[1] = shelfY;
+        out[2] = pageCount - 1;
+        shelfX += width + spacing;
+        shelfHeight = Math.max(shelfHeight, height);
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+
+/**
+ * A signed distance from a point to an edge segment, mutable so it can be reused for each pixel.
+ * Distances of equal magnitude are ordered by how orthogonal the segment is at the nearest point.
+ */
+final class SignedDistance {
+
+    /**
+     * The signed distance, positive inside the shape.
+     */
+    double distance;
+
+    /**
+     * The absolute value of the dot product between the segment direction and the direction
+     * to the point, zero when the nearest point isn't an endpoint.
+     */
+    double dot;
+
+    /**
+     * The parameter of the nearest point on the segment, outside of [0, 1] past an endpoint.
+     */
+    double param;
+
+
+    SignedDistance set(double distance, double dot) {
+        this.distance = distance;
+        this.dot = dot;
+        return this;
+    }
+
+    SignedDistance set(SignedDistance other) {
+        distance = other.distance;
+        dot = other.dot;
+        param = other.param;
+        return this;
+    }
+
+    SignedDistance reset() {
+        distance = -Double.MAX_VALUE;
+        dot = 1;
+        param = 0;
+        return this;
+    }
+
+    boolean lessThan(SignedDistance other) {
+        double d1 = Math.abs(distance);
+        double d2 = Math.abs(other.distance);
+        return d1 < d2 || d1 == d2 && dot < other.dot;
+    }
+
+}
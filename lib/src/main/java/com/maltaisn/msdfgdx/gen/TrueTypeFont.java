@@ -0,0 +1,539 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.gen;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntIntMap;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * A TrueType or OpenType font file, from which glyph outlines and metrics are read.
+ * Only fonts with TrueType outlines ({@code glyf} table) are supported, not CFF outlines.
+ * Font collections are supported, the first font is used. Kerning is read from the {@code kern} table.
+ * <p>
+ * The font is immutable once parsed and can be used from several threads.
+ */
+public final class TrueTypeFont {
+
+    private final ByteBuffer data;
+
+    private final int unitsPerEm;
+    private final int ascender;
+    private final int descender;
+    private final int lineGap;
+
+    private final int glyphCount;
+    private final int[] advanceWidths;
+    private final int[] glyphOffsets;
+    private final int glyfOffset;
+
+    private final int cmapOffset;
+    private final int cmapFormat;
+
+    // Kerning pairs, key is left glyph in high bits, right glyph in low bits.
+    private final IntIntMap kernings = new IntIntMap();
+
+
+    /**
+     * Parse a font from a file.
+     */
+    public TrueTypeFont(@NotNull FileHandle file) {
+        this(file.readBytes());
+    }
+
+    /**
+     * Parse a font from the content of a font file.
+     */
+    public TrueTypeFont(@NotNull byte[] bytes) {
+        data = ByteBuffer.wrap(bytes);
+        try {
+            int fontOffset = 0;
+            int version = data.getInt(0);
+            if (version == 0x74746366) {
+                // Font collection ("ttcf"), use the first font.
+                fontOffset = data.getInt(12);
+                version = data.getInt(fontOffset);
+            }
+            if (version == 0x4F54544F) {
+                throw new GdxRuntimeException("Fonts with CFF outlines aren't supported.");
+            } else if (version != 0x00010000 && version != 0x74727565) {
+                throw new GdxRuntimeException("Not a TrueType font file.");
+            }
+
+            int head = findTable(fontOffset, "head", true);
+            unitsPerEm = data.getShort(head + 18) & 0xFFFF;
+            boolean longOffsets = data.getShort(head + 50) != 0;
+
+            int maxp = findTable(fontOffset, "maxp", true);
+            glyphCount = data.getShort(maxp + 4) & 0xFFFF;
+
+            int hhea = findTable(fontOffset, "hhea", true);
+            ascender = data.getShort(hhea + 4);
+            descender = data.getShort(hhea + 6);
+            lineGap = data.getShort(hhea + 8);
+            int metricCount = data.getShort(hhea + 34) & 0xFFFF;
+
+            // Advance widths, the last one applies to the remaining glyphs.
+            int hmtx = findTable(fontOffset, "hmtx", true);
+            advanceWidths = new int[glyphCount];
+            for (int i = 0; i < glyphCount; i++) {
+                advanceWidths[i] = data.getShort(hmtx + Math.min(i, metricCount - 1) * 4) & 0xFFFF;
+            }
+
+            int loca = findTable(fontOffset, "loca", true);
+            glyphOffsets = new int[glyphCount + 1];
+            for (int i = 0; i <= glyphCount; i++) {
+                glyphOffsets[i] = longOffsets ? data.getInt(loca + i * 4)
+                        : (data.getShort(loca + i * 2) & 0xFFFF) * 2;
+            }
+            glyfOffset = findTable(fontOffset, "glyf", true);
+
+            // Character map, preferring full unicode coverage.
+            int cmap = findTable(fontOffset, "cmap", true);
+            int subtable = -1;
+            int subtableFormat = 0;
+            int tableCount = data.getShort(cmap + 2) & 0xFFFF;
+            for (int i = 0; i < tableCount; i++) {
+                int record = cmap + 4 + i * 8;
+                int platform = data.getShort(record) & 0xFFFF;
+                int encoding = data.getShort(record + 2) & 0xFFFF;
+                int offset = cmap + data.getInt(record + 4);
+                int format = data.getShort(offset) & 0xFFFF;
+                boolean unicode = platform == 0 || platform == 3 && (encoding == 1 || encoding == 10);
+                if (unicode && (format == 12 || format == 4 && subtableFormat != 12)) {
+                    subtable = offset;
+                    subtableFormat = format;
+                }
+            }
+            if (subtable == -1) {
+                throw new GdxRuntimeException("No unicode character map found.");
+            }
+            cmapOffset = subtable;
+            cmapFormat = subtableFormat;
+
+            int kern = findTable(fontOffset, "kern", false);
+            if (kern != -1) {
+                readKernings(kern);
+            }
+
+        } catch (IndexOutOfBoundsException e) {
+            throw new GdxRuntimeException("Invalid font file, data is truncated.", e);
+        } catch (BufferUnderflowException e) {
+            throw new GdxRuntimeException("Invalid font file, data is truncated.", e);
+        }
+    }
+
+
+    private int findTable(int fontOffset, String tag, boolean required) {
+        int tableCount = data.getShort(fontOffset + 4) & 0xFFFF;
+        for (int i = 0; i < tableCount; i++) {
+            int record = fontOffset + 12 + i * 16;
+            if (data.get(record) == tag.charAt(0) && data.get(record + 1) == tag.charAt(1)
+                    && data.get(record + 2) == tag.charAt(2) && data.get(record + 3) == tag.charAt(3)) {
+                return data.getInt(record + 8);
+            }
+        }
+        if (required) {
+            throw new GdxRuntimeException("Missing required font table '" + tag + "'.");
+        }
+        return -1;
+    }
+
+    private void readKernings(int kern) {
+        if (data.getShort(kern) != 0) {
+            // Apple kerning table format, not supported.
+            return;
+        }
+        int tableCount = data.getShort(kern + 2) & 0xFFFF;
+        int offset = kern + 4;
+        for (int i = 0; i < tableCount; i++) {
+            int length = data.getShort(offset + 2) & 0xFFFF;
+            int coverage = data.getShort(offset + 4) & 0xFFFF;
+            // Only horizontal kerning values in format 0 are supported.
+            if ((coverage >>> 8) == 0 && (coverage & 0x7) == 0x1) {
+                int pairCount = data.getShort(offset + 6) & 0xFFFF;
+                for (int j = 0; j < pairCount; j++) {
+                    int pair = offset + 14 + j * 6;
+                    int left = data.getShort(pair) & 0xFFFF;
+                    int right = data.getShort(pair + 2) & 0xFFFF;
+                    kernings.put(left << 16 | right, data.getShort(pair + 4));
+                }
+            }
+            offset += length;
+        }
+    }
+
+    /**
+     * Returns the glyph index of a character, or 0 if the font has no glyph for it.
+     */
+    public int getGlyphIndex(int codePoint) {
+        if (cmapFormat == 12) {
+            int groupCount = data.getInt(cmapOffset + 12);
+            int lo = 0;
+            int hi = groupCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int group = cmapOffset + 16 + mid * 12;
+                int start = data.getInt(group);
+                int end = data.getInt(group + 4);
+                if (codePoint < start) {
+                    hi = mid - 1;
+                } else if (codePoint > end) {
+                    lo = mid + 1;
+                } else {
+                    return data.getInt(group + 8) + codePoint - start;
+                }
+            }
+            return 0;
+        }
+
+        // Format 4, segments of the basic multilingual plane.
+        if (codePoint > 0xFFFF) {
+            return 0;
+        }
+        int segmentCount = (data.getShort(cmapOffset + 6) & 0xFFFF) / 2;
+        int endCodes = cmapOffset + 14;
+        int startCodes = endCodes + segmentCount * 2 + 2;
+        int deltas = startCodes + segmentCount * 2;
+        int rangeOffsets = deltas + segmentCount * 2;
+        for (int i = 0; i < segmentCount; i++) {
+            int end = data.getShort(endCodes + i * 2) & 0xFFFF;
+            if (codePoint > end) continue;
+            int start = data.getShort(startCodes + i * 2) & 0xFFFF;
+            if (codePoint < start) return 0;
+            int delta = data.getShort(deltas + i * 2);
+            int rangeOffset = data.getShort(rangeOffsets + i * 2) & 0xFFFF;
+            if (rangeOffset == 0) {
+                return (codePoint + delta) & 0xFFFF;
+            }
+            int glyph = data.getShort(rangeOffsets + i * 2 + rangeOffset + (codePoint - start) * 2) & 0xFFFF;
+            return glyph == 0 ? 0 : (glyph + delta) & 0xFFFF;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of font units per em, the scale of all other values.
+     */
+    public int getUnitsPerEm() {
+        return unitsPerEm;
+    }
+
+    /**
+     * Returns the distance from the baseline to the top of the line, in font units.
+     */
+    public int getAscender() {
+        return ascender;
+    }
+
+    /**
+     * Returns the distance from the baseline to the bottom of the line, in font units, usually negative.
+     */
+    public int getDescender() {
+        return descender;
+    }
+
+    /**
+     * Returns the gap between lines, in font units.
+     */
+    public int getLineGap() {
+        return lineGap;
+    }
+
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    /**
+     * Returns the advance width of a glyph, in font units.
+     */
+    public int getAdvanceWidth(int glyphIndex) {
+        return advanceWidths[glyphIndex];
+    }
+
+    /**
+     * Returns the kerning between two glyphs, in font units.
+     */
+    public int getKerning(int leftGlyph, int rightGlyph) {
+        return kernings.get(leftGlyph << 16 | rightGlyph, 0);
+    }
+
+    /**
+     * Returns true if the font has kerning pairs.
+     */
+    public boolean hasKerning() {
+        return kernings.size > 0;
+    }
+
+    /**
+     * Returns the kerning pairs, keyed by left glyph in high bits and right glyph in low bits.
+     */
+    IntIntMap getKernings() {
+        return kernings;
+    }
+
+    /**
+     * Read the outline of a glyph. A new shape is returned on each call so that shapes can be used concurrently.
+     */
+    Shape getShape(int glyphIndex) {
+        Shape shape = new Shape();
+        addGlyphContours(shape, glyphIndex, 1, 0, 0, 1, 0, 0, 0);
+        return shape;
+    }
+
+    private void addGlyphContours(Shape shape, int glyphIndex, double a, double b, double c, double d,
+                                  double dx, double dy, int depth) {
+        if (glyphIndex < 0 || glyphIndex >= glyphCount || depth > 8) return;
+        int offset = glyfOffset + glyphOffsets[glyphIndex];
+        if (glyphOffsets[glyphIndex + 1] <= glyphOffsets[glyphIndex]) {
+            // Empty glyph, like a space.
+            return;
+        }
+
+        int contourCount = data.getShort(offset);
+        if (contourCount >= 0) {
+            addSimpleGlyphContours(shape, offset, contourCount, a, b, c, d, dx, dy);
+        } else {
+            addCompositeGlyphContours(shape, offset, a, b, c, d, dx, dy, depth);
+        }
+    }
+
+    private void addSimpleGlyphContours(Shape shape, int offset, int contourCount,
+                                        double a, double b, double c, double d, double dx, double dy) {
+        int pos = offset + 10;
+        int[] endPoints = new int[contourCount];
+        for (int i = 0; i < contourCount; i++) {
+            endPoints[i] = data.getShort(pos) & 0xFFFF;
+            pos += 2;
+        }
+        int pointCount = contourCount == 0 ? 0 : endPoints[contourCount - 1] + 1;
+        int instructionLength = data.getShort(pos) & 0xFFFF;
+        pos += 2 + instructionLength;
+
+        // Flags, with repeats.
+        byte[] flags = new byte[pointCount];
+        for (int i = 0; i < pointCount; ) {
+            byte flag = data.get(pos++);
+            flags[i++] = flag;
+            if ((flag & 0x08) != 0) {
+                int repeat = data.get(pos++) & 0xFF;
+                for (int j = 0; j < repeat && i < pointCount; j++) {
+                    flags[i++] = flag;
+                }
+            }
+        }
+
+        // Coordinates, as deltas from the previous point.
+        double[] xs = new double[pointCount];
+        double[] ys = new double[pointCount];
+        int value = 0;
+        for (int i = 0; i < pointCount; i++) {
+            int flag = flags[i];
+            if ((flag & 0x02) != 0) {
+                int delta = data.get(pos++) & 0xFF;
+                value += (flag & 0x10) != 0 ? delta : -delta;
+            } else if ((flag & 0x10) == 0) {
+                value += data.getShort(pos);
+                pos += 2;
+            }
+            xs[i] = value;
+        }
+        value = 0;
+        for (int i = 0; i < pointCount; i++) {
+            int flag = flags[i];
+            if ((flag & 0x04) != 0) {
+                int delta = data.get(pos++) & 0xFF;
+                value += (flag & 0x20) != 0 ? delta : -delta;
+            } else if ((flag & 0x20) == 0) {
+                value += data.getShort(pos);
+                pos += 2;
+            }
+            ys[i] = value;
+        }
+
+        // Transform the points for composite glyphs.
+        for (int i = 0; i < pointCount; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            xs[i] = a * x + c * y + dx;
+            ys[i] = b * x + d * y + dy;
+        }
+
+        int start = 0;
+        for (int i = 0; i < contourCount; i++) {
+            int end = endPoints[i];
+            Array<EdgeSegment> contour = buildContour(xs, ys, flags, start, end);
+            if (contour.size > 0) {
+                shape.contours.add(contour);
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Build the edges of a contour from its points. Two consecutive off-curve
+     * points have an implied on-curve point at their midpoint.
+     */
+    private static Array<EdgeSegment> buildContour(double[] xs, double[] ys, byte[] flags, int start, int end) {
+        Array<EdgeSegment> contour = new Array<EdgeSegment>();
+        int count = end - start + 1;
+        if (count < 2) return contour;
+
+        // Find an on-curve point to start from, or start at the midpoint of the first two points.
+        int first = -1;
+        for (int i = 0; i < count; i++) {
+            if ((flags[start + i] & 0x01) != 0) {
+                first = i;
+                break;
+            }
+        }
+        double startX;
+        double startY;
+        int begin;
+        int remaining;
+        if (first == -1) {
+            startX = (xs[start] + xs[start + 1]) / 2;
+            startY = (ys[start] + ys[start + 1]) / 2;
+            begin = 1;
+            remaining = count;
+        } else {
+            startX = xs[start + first];
+            startY = ys[start + first];
+            begin = first + 1;
+            remaining = count - 1;
+        }
+
+        double lastX = startX;
+        double lastY = startY;
+        boolean hasControl = false;
+        double controlX = 0;
+        double controlY = 0;
+        for (int i = 0; i < remaining; i++) {
+            int index = start + (begin + i) % count;
+            double x = xs[index];
+            double y = ys[index];
+            if ((flags[index] & 0x01) != 0) {
+                if (hasControl) {
+                    addQuadratic(contour, lastX, lastY, controlX, controlY, x, y);
+                    hasControl = false;
+                } else {
+                    addLinear(contour, lastX, lastY, x, y);
+                }
+                lastX = x;
+                lastY = y;
+            } else {
+                if (hasControl) {
+                    double midX = (controlX + x) / 2;
+                    double midY = (controlY + y) / 2;
+                    addQuadratic(contour, lastX, lastY, controlX, controlY, midX, midY);
+                    lastX = midX;
+                    lastY = midY;
+                }
+                controlX = x;
+                controlY = y;
+                hasControl = true;
+            }
+        }
+        if (hasControl) {
+            addQuadratic(contour, lastX, lastY, controlX, controlY, startX, startY);
+        } else if (lastX != startX || lastY != startY) {
+            addLinear(contour, lastX, lastY, startX, startY);
+        }
+        return contour;
+    }
+
+    private static void addLinear(Array<EdgeSegment> contour, double x0, double y0, double x1, double y1) {
+        if (x0 != x1 || y0 != y1) {
+            contour.add(new LinearSegment(x0, y0, x1, y1));
+        }
+    }
+
+    private static void addQuadratic(Array<EdgeSegment> contour, double x0, double y0,
+                                     double cx, double cy, double x1, double y1) {
+        if (cx == x0 && cy == y0 || cx == x1 && cy == y1) {
+            // Degenerate curve, its direction would be undefined at one end.
+            addLinear(contour, x0, y0, x1, y1);
+        } else {
+            contour.add(new QuadraticSegment(x0, y0, cx, cy, x1, y1));
+        }
+    }
+
+    private void addCompositeGlyphContours(Shape shape, int offset, double a, double b, double c, double d,
+                                           double dx, double dy, int depth) {
+        int pos = offset + 10;
+        int flags;
+        do {
+            flags = data.getShort(pos) & 0xFFFF;
+            int component = data.getShort(pos + 2) & 0xFFFF;
+            pos += 4;
+
+            double offsetX;
+            double offsetY;
+            if ((flags & 0x0001) != 0) {
+                offsetX = data.getShort(pos);
+                offsetY = data.getShort(pos + 2);
+                pos += 4;
+            } else {
+                offsetX = data.get(pos);
+                offsetY = data.get(pos + 1);
+                pos += 2;
+            }
+            if ((flags & 0x0002) == 0) {
+                // Point matching isn't supported, the component is placed at the origin.
+                offsetX = 0;
+                offsetY = 0;
+            }
+
+            double ca = 1;
+            double cb = 0;
+            double cc = 0;
+            double cd = 1;
+            if ((flags & 0x0008) != 0) {
+                ca = cd = f2Dot14(pos);
+                pos += 2;
+            } else if ((flags & 0x0040) != 0) {
+                ca = f2Dot14(pos);
+                cd = f2Dot14(pos + 2);
+                pos += 4;
+            } else if ((flags & 0x0080) != 0) {
+                ca = f2Dot14(pos);
+                cb = f2Dot14(pos + 2);
+                cc = f2Dot14(pos + 4);
+                cd = f2Dot14(pos + 6);
+                pos += 8;
+            }
+
+            // Combine the component transform with the parent transform.
+            addGlyphContours(shape, component,
+                    a * ca + c * cb, b * ca + d * cb,
+                    a * cc + c * cd, b * cc + d * cd,
+                    a * offsetX + c * offsetY + dx, b * offsetX + d * offsetY + dy, depth + 1);
+        } while ((flags & 0x0020) != 0);
+    }
+
+    private double f2Dot14(int pos) {
+        return data.getShort(pos) / 16384.0;
+    }
+
+}
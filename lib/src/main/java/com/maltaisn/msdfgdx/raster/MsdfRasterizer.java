@@ -0,0 +1,480 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.raster;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.NumberUtils;
+import com.maltaisn.msdfgdx.DistanceFieldType;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfFont;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Renders text to a {@link Pixmap} on the CPU, producing the same result as the font shader.
+ * This can be used to render text where there's no GPU, like on a server, or as a reference
+ * image to test the shader against.
+ * <p>
+ * Text is laid out with the font like a label, then each glyph quad is rasterized: pixels whose center
+ * is in the quad are shaded like in {@code font.frag}, with bilinear sampling of the font pages,
+ * and blended over the pixmap like with {@code GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA}. Mipmaps aren't used.
+ * Positions are in pixels, with the origin at the bottom left of the pixmap and the y axis pointing up,
+ * like a stage with a screen viewport.
+ * <p>
+ * The pixmap is split in bands of rows rendered in parallel on a {@link ForkJoinPool}, which requires Android API 21.
+ * A rasterizer must only be used by one thread at a time. This package isn't available on GWT.
+ */
+public final class MsdfRasterizer {
+
+    // Number of rows under which a band isn't split.
+    private static final int BAND_THRESHOLD = 16;
+
+    // Number of floats per vertex of a BitmapFontCache: position, color and texture coordinates.
+    private static final int VERTEX_SIZE = 5;
+    private static final int QUAD_SIZE = 4 * VERTEX_SIZE;
+
+    // Pool used by rasterizers without a pool set, created when first needed.
+    @Nullable
+    private static ForkJoinPool defaultPool;
+
+    @NotNull
+    private final MsdfFont font;
+    @NotNull
+    private final Page[] pages;
+    @NotNull
+    private final BitmapFontCache cache;
+
+    @Nullable
+    private ForkJoinPool pool;
+
+
+    /**
+     * Create a rasterizer for a font, loading its pages from the image files of its font file.
+     */
+    public MsdfRasterizer(@NotNull MsdfFont font) {
+        this(font, loadPages(font), true);
+    }
+
+    /**
+     * Create a rasterizer for a font, with the images of its page textures.
+     * The pixmaps are copied, they can be disposed afterwards.
+     */
+    public MsdfRasterizer(@NotNull MsdfFont font, @NotNull Array<Pixmap> pages) {
+        this(font, pages, false);
+    }
+
+    private MsdfRasterizer(MsdfFont font, Array<Pixmap> pixmaps, boolean ownsPixmaps) {
+        if (font.getDynamicAtlas() != null) {
+            throw new GdxRuntimeException("Fonts with a dynamic atlas can't be rasterized.");
+        }
+        if (pixmaps.size != font.getPageCount()) {
+            throw new IllegalArgumentException("Expected " + font.getPageCount()
+                    + " pages for the font, got " + pixmaps.size + ".");
+        }
+        this.font = font;
+        this.cache = font.getFont().newFontCache();
+
+        pages = new Page[pixmaps.size];
+        for (int i = 0; i < pixmaps.size; i++) {
+            pages[i] = new Page(pixmaps.get(i), font.getDistanceRange(i));
+            if (ownsPixmaps) {
+                pixmaps.get(i).dispose();
+            }
+        }
+    }
+
+    private static Array<Pixmap> loadPages(MsdfFont font) {
+        BitmapFontData data = font.getFont().getData();
+        Array<Pixmap> pixmaps = new Array<Pixmap>();
+        for (int i = 0; i < data.imagePaths.length; i++) {
+            pixmaps.add(new Pixmap(Gdx.files.getFileHandle(data.imagePaths[i], data.fontFile.type())));
+        }
+        return pixmaps;
+    }
+
+
+    /**
+     * Draw a line of text.
+     *
+     * @param x The x position of the left of the text.
+     * @param y The y position of the top of the text.
+     * @return The layout of the text, valid until the next draw.
+     */
+    @NotNull
+    public GlyphLayout draw(@NotNull Pixmap target, @NotNull FontStyle style,
+                            @NotNull CharSequence text, float x, float y) {
+        return draw(target, style, text, x, y, 0f, Align.left, false);
+    }
+
+    /**
+     * Draw text.
+     *
+     * @param x           The x position of the left of the text.
+     * @param y           The y position of the top of the text.
+     * @param targetWidth The width used for alignment and wrapping.
+     * @param halign      The horizontal alignment of each line, see {@link Align}.
+     * @param wrap        Whether the text is wrapped to the target width.
+     * @return The layout of the text, valid until the next draw.
+     */
+    @NotNull
+    public GlyphLayout draw(@NotNull Pixmap target, @NotNull FontStyle style, @NotNull CharSequence text,
+                            float x, float y, float targetWidth, int halign, boolean wrap) {
+        BitmapFontData data = font.getFont().getData();
+        float oldScaleX = data.scaleX;
+        float oldScaleY = data.scaleY;
+        data.setScale(style.getSize() / font.getGlyphSize());
+        GlyphLayout layout = cache.setText(text, x, y, targetWidth, halign, wrap);
+        data.setScale(oldScaleX, oldScaleY);
+        drawCache(target, style);
+        return layout;
+    }
+
+    /**
+     * Draw text laid out with the font scaled to the size of a style, like a label does.
+     *
+     * @param x The x position of the layout origin.
+     * @param y The y position of the layout origin.
+     */
+    public void draw(@NotNull Pixmap target, @NotNull FontStyle style, @NotNull GlyphLayout layout, float x, float y) {
+        BitmapFontData data = font.getFont().getData();
+        float oldScaleX = data.scaleX;
+        float oldScaleY = data.scaleY;
+        data.setScale(style.getSize() / font.getGlyphSize());
+        cache.setText(layout, x, y);
+        data.setScale(oldScaleX, oldScaleY);
+        drawCache(target, style);
+    }
+
+    private void drawCache(Pixmap target, FontStyle style) {
+        if (target.getFormat() != Pixmap.Format.RGBA8888) {
+            throw new IllegalArgumentException("Target pixmap format must be RGBA8888.");
+        }
+        int quadCount = 0;
+        for (int i = 0; i < pages.length; i++) {
+            quadCount += cache.getVertexCount(i) / QUAD_SIZE;
+        }
+        if (quadCount == 0) return;
+
+        // Gather the quads of all pages, with the page of each.
+        float[] quads = new float[quadCount * QUAD_SIZE];
+        int[] quadPages = new int[quadCount];
+        int quad = 0;
+        for (int i = 0; i < pages.length; i++) {
+            int count = cache.getVertexCount(i);
+            System.arraycopy(cache.getVertices(i), 0, quads, quad * QUAD_SIZE, count);
+            for (int j = 0; j < count / QUAD_SIZE; j++) {
+                quadPages[quad++] = i;
+            }
+        }
+
+        Shader shader = new Shader(font, style);
+        ForkJoinPool pool = this.pool != null ? this.pool : getDefaultPool();
+        pool.invoke(new BandTask(shader, pages, quads, quadPages, target, 0, target.getHeight()));
+    }
+
+    @NotNull
+    private static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) {
+            defaultPool = new ForkJoinPool();
+        }
+        return defaultPool;
+    }
+
+    /**
+     * Set the pool used to render in parallel, or null to use a pool shared by all rasterizers,
+     * the default, created when first needed with one thread per processor. Its threads are daemon threads,
+     * which are stopped when idle. {@link ForkJoinPool#commonPool()} isn't used since it requires Android API 24.
+     */
+    @NotNull
+    public MsdfRasterizer setPool(@Nullable ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    @NotNull
+    public MsdfFont getFont() {
+        return font;
+    }
+
+
+    /**
+     * A font page converted to RGBA8888 values for fast sampling.
+     */
+    private static final class Page {
+        final int width;
+        final int height;
+        final int[] texels;
+        // Distance range in the units of the font, which differs for pages of fallback fonts.
+        final float distanceRange;
+
+        Page(Pixmap pixmap, float distanceRange) {
+            this.distanceRange = distanceRange;
+            width = pixmap.getWidth();
+            height = pixmap.getHeight();
+            texels = new int[width * height];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    texels[y * width + x] = pixmap.getPixel(x, y);
+                }
+            }
+        }
+
+        /**
+         * Sample the page with linear filtering and clamp to edge wrapping, like OpenGL does.
+         * Texture coordinates are normalized, with v=0 on the first row of the page image.
+         */
+        void sample(float u, float v, float[] out) {
+            float tx = u * width - 0.5f;
+            float ty = v * height - 0.5f;
+            int x0 = (int) Math.floor(tx);
+            int y0 = (int) Math.floor(ty);
+            float fx = tx - x0;
+            float fy = ty - y0;
+            int x1 = clamp(x0 + 1, width - 1);
+            int y1 = clamp(y0 + 1, height - 1);
+            x0 = clamp(x0, width - 1);
+            y0 = clamp(y0, height - 1);
+
+            int c00 = texels[y0 * width + x0];
+            int c10 = texels[y0 * width + x1];
+            int c01 = texels[y1 * width + x0];
+            int c11 = texels[y1 * width + x1];
+            for (int i = 0; i < 4; i++) {
+                int shift = 24 - i * 8;
+                float top = ((c00 >>> shift) & 0xff) * (1 - fx) + ((c10 >>> shift) & 0xff) * fx;
+                float bottom = ((c01 >>> shift) & 0xff) * (1 - fx) + ((c11 >>> shift) & 0xff) * fx;
+                out[i] = (top * (1 - fy) + bottom * fy) / 255f;
+            }
+        }
+
+        private static int clamp(int value, int max) {
+            return value < 0 ? 0 : (value > max ? max : value);
+        }
+    }
+
+    /**
+     * The fragment shader of {@code font.frag}, with the values of its uniforms.
+     */
+    private static final class Shader {
+        final boolean sdf;
+        final float distanceScale;
+        final Color color;
+        final float fontWeight;
+        final boolean shadow;
+        final float shadowClipped;
+        final Color shadowColor;
+        final float shadowOffsetX;
+        final float shadowOffsetY;
+        final float shadowSmoothing;
+        final boolean innerShadow;
+        final Color innerShadowColor;
+        final float innerShadowRange;
+
+        Shader(MsdfFont font, FontStyle style) {
+            sdf = font.getFieldType() == DistanceFieldType.SDF;
+            distanceScale = style.getSize() / font.getGlyphSize();
+            color = new Color(style.getColor());
+            fontWeight = style.getWeight();
+            // Effects are skipped when transparent, like the shader variants do.
+            shadowColor = new Color(style.getShadowColor());
+            shadow = shadowColor.a > 0f;
+            shadowClipped = style.isShadowClipped() ? 1f : 0f;
+            shadowOffsetX = style.getShadowOffset().x;
+            shadowOffsetY = style.getShadowOffset().y;
+            shadowSmoothing = style.getShadowSmoothing();
+            innerShadowColor = new Color(style.getInnerShadowColor());
+            innerShadow = innerShadowColor.a > 0f;
+            innerShadowRange = style.getInnerShadowRange();
+        }
+
+        /**
+         * Shade a fragment, setting the RGBA color to the result.
+         *
+         * @param alpha  The alpha of the vertex color.
+         * @param sample Temporary array of 4 floats.
+         * @param result Array of 4 floats for the result.
+         */
+        void shade(Page page, float u, float v, float alpha, float[] sample, float[] result) {
+            // Glyph
+            page.sample(u, v, sample);
+            float msdfAlpha = sample[3];
+            float distanceFactor = page.distanceRange * distanceScale;
+            float distance;
+            if (sdf) {
+                distance = distanceFactor * (msdfAlpha + fontWeight - 0.5f);
+            } else {
+                distance = distanceFactor * (median(sample[0], sample[1], sample[2]) + fontWeight - 0.5f);
+            }
+            float glyphAlpha = clamp01(distance + 0.5f);
+            result[0] = color.r;
+            result[1] = color.g;
+            result[2] = color.b;
+            result[3] = glyphAlpha * color.a;
+
+            // Inner shadow
+            if (innerShadow) {
+                distance = msdfAlpha + fontWeight;
+                float innerShadowAlpha = linearstep(0.5f + innerShadowRange, 0.5f, distance)
+                        * innerShadowColor.a * glyphAlpha;
+                blend(innerShadowColor.r, innerShadowColor.g, innerShadowColor.b, innerShadowAlpha,
+                        result[0], result[1], result[2], result[3], result);
+            }
+
+            // Shadow
+            if (shadow) {
+                page.sample(u - shadowOffsetX / page.width, v - shadowOffsetY / page.height, sample);
+                distance = sample[3] + fontWeight;
+                float shadowAlpha = linearstep(0.5f - shadowSmoothing, 0.5f + shadowSmoothing, distance)
+                        * shadowColor.a;
+                shadowAlpha *= 1f - glyphAlpha * shadowClipped;
+                blend(result[0], result[1], result[2], result[3],
+                        shadowColor.r, shadowColor.g, shadowColor.b, shadowAlpha, result);
+            }
+
+            result[3] *= alpha;
+        }
+
+        private static float median(float r, float g, float b) {
+            return Math.max(Math.min(r, g), Math.min(Math.max(r, g), b));
+        }
+
+        /**
+         * Porter-Duff src over dst blending.
+         */
+        private static void blend(float sr, float sg, float sb, float sa,
+                                  float dr, float dg, float db, float da, float[] out) {
+            float a = sa + da * (1f - sa);
+            float div = a == 0f ? 1f : a;
+            out[0] = (sa * sr + da * dr * (1f - sa)) / div;
+            out[1] = (sa * sg + da * dg * (1f - sa)) / div;
+            out[2] = (sa * sb + da * db * (1f - sa)) / div;
+            out[3] = a;
+        }
+
+        private static float linearstep(float a, float b, float x) {
+            return clamp01((x - a) / (b - a));
+        }
+
+        private static float clamp01(float x) {
+            return x < 0f ? 0f : (x > 1f ? 1f : x);
+        }
+    }
+
+    /**
+     * Renders the quads intersecting a band of rows, splitting it in two until small enough.
+     * Bands don't overlap, so each pixel is written by a single task.
+     */
+    private static final class BandTask extends RecursiveAction {
+
+        private final Shader shader;
+        private final Page[] pages;
+        private final float[] quads;
+        private final int[] quadPages;
+        private final Pixmap target;
+        private final int start;
+        private final int end;
+
+        BandTask(Shader shader, Page[] pages, float[] quads, int[] quadPages, Pixmap target, int start, int end) {
+            this.shader = shader;
+            this.pages = pages;
+            this.quads = quads;
+            this.quadPages = quadPages;
+            this.target = target;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > BAND_THRESHOLD) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new BandTask(shader, pages, quads, quadPages, target, start, mid),
+                        new BandTask(shader, pages, quads, quadPages, target, mid, end));
+                return;
+            }
+
+            float[] sample = new float[4];
+            float[] color = new float[4];
+            ByteBuffer pixels = target.getPixels();
+            int width = target.getWidth();
+            int height = target.getHeight();
+            for (int q = 0; q < quadPages.length; q++) {
+                // Vertices are bottom left, top left, top right and bottom right, see BitmapFontCache.
+                int offset = q * QUAD_SIZE;
+                float x1 = quads[offset];
+                float y1 = quads[offset + 1];
+                float alpha = (NumberUtils.floatToIntColor(quads[offset + 2]) >>> 24) / 255f;
+                float u1 = quads[offset + 3];
+                float v1 = quads[offset + 4];
+                float x2 = quads[offset + 10];
+                float y2 = quads[offset + 11];
+                float u2 = quads[offset + 13];
+                float v2 = quads[offset + 14];
+                float minX = Math.min(x1, x2);
+                float maxX = Math.max(x1, x2);
+                float minY = Math.min(y1, y2);
+                float maxY = Math.max(y1, y2);
+
+                // Pixels whose center is in the quad, pixel rows go down while y goes up.
+                int colStart = Math.max((int) Math.ceil(minX - 0.5f), 0);
+                int colEnd = Math.min((int) Math.ceil(maxX - 0.5f), width);
+                int rowStart = Math.max((int) Math.floor(height - 0.5f - maxY) + 1, start);
+                int rowEnd = Math.min((int) Math.floor(height - 0.5f - minY) + 1, end);
+
+                Page page = pages[quadPages[q]];
+                for (int row = rowStart; row < rowEnd; row++) {
+                    float cy = height - row - 0.5f;
+                    float v = v1 + (cy - y1) / (y2 - y1) * (v2 - v1);
+                    for (int col = colStart; col < colEnd; col++) {
+                        float cx = col + 0.5f;
+                        float u = u1 + (cx - x1) / (x2 - x1) * (u2 - u1);
+                        shader.shade(page, u, v, alpha, sample, color);
+                        blendPixel(pixels, (row * width + col) * 4, color);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Blend a color over a pixel with {@code GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA}, on all channels.
+         */
+        private static void blendPixel(ByteBuffer pixels, int index, float[] color) {
+            float sa = Shader.clamp01(color[3]);
+            for (int i = 0; i < 4; i++) {
+                float src = Shader.clamp01(color[i]);
+                float dst = (pixels.get(index + i) & 0xff) / 255f;
+                float value = src * sa + dst * (1f - sa);
+                pixels.put(index + i, (byte) Math.round(value * 255f));
+            }
+        }
+    }
+
+}
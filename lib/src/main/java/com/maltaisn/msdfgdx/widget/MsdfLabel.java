@@ -18,14 +18,28 @@ package com.maltaisn.msdfgdx.widget;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.Disableable;
 import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.StringBuilder;
+import com.maltaisn.msdfgdx.DynamicAtlas;
 import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.GlyphLayoutCache;
+import com.maltaisn.msdfgdx.MsdfBatch;
 import com.maltaisn.msdfgdx.MsdfFont;
 import com.maltaisn.msdfgdx.MsdfShader;
+import com.maltaisn.msdfgdx.MsdfStats;
+import com.maltaisn.msdfgdx.TextTransform;
+import com.maltaisn.msdfgdx.UpperCaseTransform;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -37,6 +51,8 @@ import org.jetbrains.annotations.Nullable;
  *
  * This widget expects to find a {@link MsdfShader} named "default" in the skin.
  * The following should be done before: {@code skin.add("default", new MsdfShader())}
+ * When drawn with a {@link MsdfBatch}, the shader isn't used and the style is passed per vertex.
+ * If the skin has a {@link GlyphLayoutCache} named "default", it's used to share layouts between labels.
  */
 public class MsdfLabel extends Label implements Disableable {
 
@@ -47,9 +63,24 @@ public class MsdfLabel extends Label implements Disableable {
     private FontStyle fontStyle;
 
     private final StringBuilder txt = new StringBuilder();
+    private final StringBuilder displayedTxt = new StringBuilder();
+
+    @Nullable
+    private TextTransform textTransform;
+
+    @Nullable
+    private GlyphLayoutCache layoutCache;
+    @Nullable
+    private GlyphLayout cachedLayout;
+    @Nullable
+    private String ellipsis;
+    private float lastPrefHeight;
+    private int atlasVersion;
 
     private boolean disabled = false;
 
+    private final Color tempColor = new Color();
+
 
     /**
      * Create a new label.
@@ -78,6 +109,7 @@ public class MsdfLabel extends Label implements Disableable {
 
         this.skin = skin;
         this.shader = skin.get(MsdfShader.class);
+        this.layoutCache = skin.optional("default", GlyphLayoutCache.class);
 
         txt.append(text == null ? "" : text);
         setFontStyle(fontStyle);
@@ -86,11 +118,244 @@ public class MsdfLabel extends Label implements Disableable {
 
     @Override
     public void draw(@NotNull Batch batch, float parentAlpha) {
+        DynamicAtlas atlas = font.getDynamicAtlas();
+        if (atlas != null && atlas.getVersion() != atlasVersion) {
+            // Glyphs were evicted from the font atlas since the text was laid out.
+            invalidate();
+        }
+
+        if (batch instanceof MsdfBatch) {
+            // Style is passed per vertex, no need to change the shader.
+            MsdfBatch msdfBatch = (MsdfBatch) batch;
+            msdfBatch.setFontStyle(font, fontStyle);
+            drawText(batch, parentAlpha, -1, null);
+            msdfBatch.clearFontStyle();
+            return;
+        }
+
+        // Let the render group draw the text later if there's one.
+        MsdfRenderGroup renderGroup = findRenderGroup();
+        if (renderGroup != null && renderGroup.defer(this, batch, parentAlpha)) {
+            return;
+        }
+
         // Draw the text
+        MsdfStats stats = MsdfStats.getActive();
+        MsdfShader shader = getShader();
+        if (stats != null && batch.getShader() != shader) stats.addShaderSwitch();
         batch.setShader(shader);
         shader.updateForFont(font, fontStyle);
-        super.draw(batch, parentAlpha * (disabled ? 0.5f : 1f));
+        drawText(batch, parentAlpha, -1, shader);
         batch.setShader(null);
+        if (stats != null) stats.addShaderSwitch();
+    }
+
+    @Override
+    public void layout() {
+        MsdfStats stats = MsdfStats.getActive();
+        if (stats != null) {
+            long start = System.nanoTime();
+            layoutText();
+            stats.addLayout(System.nanoTime() - start);
+        } else {
+            layoutText();
+        }
+    }
+
+    private void layoutText() {
+        DynamicAtlas atlas = font.getDynamicAtlas();
+        if (layoutCache == null || ellipsis != null) {
+            cachedLayout = null;
+            super.layout();
+            if (atlas != null) atlasVersion = atlas.getVersion();
+            return;
+        }
+
+        // Same as Label.layout(), except that glyph layouts are obtained from the cache.
+        BitmapFontCache cache = getBitmapFontCache();
+        BitmapFont bitmapFont = cache.getFont();
+        float fontScale = getFontScaleX();
+        float oldScaleX = bitmapFont.getScaleX();
+        float oldScaleY = bitmapFont.getScaleY();
+        bitmapFont.getData().setScale(fontScale);
+
+        boolean wrap = getWrap();
+        if (wrap) {
+            float prefHeight = getPrefHeight();
+            if (prefHeight != lastPrefHeight) {
+                lastPrefHeight = prefHeight;
+                invalidateHierarchy();
+            }
+        }
+
+        float width = getWidth();
+        float height = getHeight();
+        Drawable background = super.getStyle().background;
+        float x = 0;
+        float y = 0;
+        if (background != null) {
+            x = background.getLeftWidth();
+            y = background.getBottomHeight();
+            width -= background.getLeftWidth() + background.getRightWidth();
+            height -= background.getBottomHeight() + background.getTopHeight();
+        }
+
+        StringBuilder text = super.getText();
+        int labelAlign = getLabelAlign();
+        int lineAlign = getLineAlign();
+        float textWidth;
+        float textHeight;
+        GlyphLayout layout;
+        if (wrap || text.indexOf("\n") != -1) {
+            // If the text can span multiple lines, determine the text's actual size so it can be aligned within the label.
+            layout = layoutCache.get(font, text, fontScale, width, lineAlign, wrap);
+            textWidth = layout.width;
+            textHeight = layout.height;
+
+            if ((labelAlign & Align.left) == 0) {
+                if ((labelAlign & Align.right) != 0) {
+                    x += width - textWidth;
+                } else {
+                    x += (width - textWidth) / 2;
+                }
+            }
+        } else {
+            textWidth = width;
+            textHeight = bitmapFont.getData().capHeight;
+        }
+
+        if ((labelAlign & Align.top) != 0) {
+            y += bitmapFont.isFlipped() ? 0 : height - textHeight;
+            y += bitmapFont.getDescent();
+        } else if ((labelAlign & Align.bottom) != 0) {
+            y += bitmapFont.isFlipped() ? height - textHeight : 0;
+            y -= bitmapFont.getDescent();
+        } else {
+            y += (height - textHeight) / 2;
+        }
+        if (!bitmapFont.isFlipped()) y += textHeight;
+
+        layout = layoutCache.get(font, text, fontScale, textWidth, lineAlign, wrap);
+        if (atlas != null) {
+            // A cached layout may have glyphs that were evicted from the font atlas.
+            atlas.ensureGlyphs(layout);
+            atlasVersion = atlas.getVersion();
+        }
+        cache.setText(layout, x, y);
+        cachedLayout = layout;
+
+        bitmapFont.getData().setScale(oldScaleX, oldScaleY);
+    }
+
+    /**
+     * Returns the layout of the text. If a layout cache is used, the returned layout
+     * is shared with other labels and must not be modified.
+     */
+    @NotNull
+    @Override
+    public GlyphLayout getGlyphLayout() {
+        return cachedLayout != null ? cachedLayout : super.getGlyphLayout();
+    }
+
+    @Override
+    public void setEllipsis(@Nullable String ellipsis) {
+        super.setEllipsis(ellipsis);
+        this.ellipsis = ellipsis;
+    }
+
+    @Override
+    public void setEllipsis(boolean ellipsis) {
+        super.setEllipsis(ellipsis);
+        this.ellipsis = ellipsis ? "..." : null;
+    }
+
+    /**
+     * Set the cache used to share glyph layouts between labels, or null to not use one.
+     * Layouts aren't cached when the label has an ellipsis.
+     */
+    public void setLayoutCache(@Nullable GlyphLayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+        invalidate();
+    }
+
+    @Nullable
+    public GlyphLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+
+    /**
+     * Draw the text deferred by a {@link MsdfRenderGroup}, at the position the label had when it was deferred.
+     * Only the glyphs on one font page are drawn, the background is drawn with the first page.
+     * The shader is already set on the batch and its uniforms are up to date.
+     */
+    void drawDeferred(@NotNull Batch batch, float parentAlpha, float x, float y, int page) {
+        float oldX = getX();
+        float oldY = getY();
+        setPosition(x, y);
+        drawText(batch, parentAlpha, page, getShader());
+        setPosition(oldX, oldY);
+    }
+
+    /**
+     * Returns whether the text has glyphs on a font page. The label must be laid out.
+     */
+    boolean hasGlyphsOnPage(int page) {
+        BitmapFontCache cache = getBitmapFontCache();
+        return page < cache.getFont().getRegions().size && cache.getVertexCount(page) > 0;
+    }
+
+    /**
+     * Draw the background and the text, like {@link Label#draw(Batch, float)} but page by page.
+     * The texture size and distance factor are updated for each page, in the shader uniforms or in the batch.
+     *
+     * @param page   The font page to draw the glyphs of, or -1 to draw all pages.
+     * @param shader The shader set on the batch, or null if drawing with a {@link MsdfBatch}.
+     */
+    private void drawText(@NotNull Batch batch, float parentAlpha, int page, @Nullable MsdfShader shader) {
+        validate();
+        Color color = tempColor.set(getColor());
+        color.a *= parentAlpha * (disabled ? 0.5f : 1f);
+        Drawable background = super.getStyle().background;
+        if (background != null && page <= 0) {
+            batch.setColor(color.r, color.g, color.b, color.a);
+            background.draw(batch, getX(), getY(), getWidth(), getHeight());
+        }
+
+        BitmapFontCache cache = getBitmapFontCache();
+        cache.tint(color);
+        cache.setPosition(getX(), getY());
+        Array<TextureRegion> regions = cache.getFont().getRegions();
+        int start = page == -1 ? 0 : page;
+        int end = page == -1 ? regions.size : page + 1;
+        int vertexCount = 0;
+        for (int i = start; i < end; i++) {
+            int count = cache.getVertexCount(i);
+            if (count == 0) continue;
+            vertexCount += count;
+            if (shader == null) {
+                ((MsdfBatch) batch).setFontStyle(font, fontStyle, i);
+            } else if (!shader.isPageApplied(font, fontStyle, i)) {
+                // Pages may have different sizes or distance ranges, flush text drawn with the previous values.
+                batch.flush();
+                shader.updateForPage(font, fontStyle, i);
+            }
+            batch.draw(regions.get(i).getTexture(), cache.getVertices(i), 0, count);
+        }
+
+        MsdfStats stats = MsdfStats.getActive();
+        if (stats != null) {
+            stats.addGlyphs(vertexCount / Sprite.SPRITE_SIZE);
+        }
+    }
+
+    @Nullable
+    private MsdfRenderGroup findRenderGroup() {
+        for (Group parent = getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof MsdfRenderGroup) {
+                return (MsdfRenderGroup) parent;
+            }
+        }
+        return null;
     }
 
     public void setTxt(@Nullable CharSequence newText) {
@@ -102,11 +367,18 @@ public class MsdfLabel extends Label implements Disableable {
             txt.append(newText);
         }
 
-        if (fontStyle.isAllCaps()) {
-            // Not very memory-efficient...
-            newText = newText.toString().toUpperCase();
+        CharSequence displayed = txt;
+        TextTransform transform = getTextTransform();
+        if (transform != null) {
+            displayedTxt.setLength(0);
+            transform.transform(txt, displayedTxt);
+            displayed = displayedTxt;
+        }
+
+        // Avoid invalidating the layout if the displayed text is unchanged.
+        if (!textEquals(displayed)) {
+            super.setText(displayed);
         }
-        super.setText(newText);
     }
 
     @Override
@@ -116,7 +388,7 @@ public class MsdfLabel extends Label implements Disableable {
 
     /**
      * Returns the label text that was set.
-     * If font style is all caps, the original text will be returned.
+     * If a text transform is used, the original text will be returned.
      *
      * @return the text, never null.
      */
@@ -130,6 +402,14 @@ public class MsdfLabel extends Label implements Disableable {
         return txt;
     }
 
+    /**
+     * Returns the text displayed by the label, after the text transform if any.
+     */
+    @NotNull
+    protected CharSequence getDisplayedText() {
+        return super.getText();
+    }
+
     public void setFontStyle(@NotNull FontStyle fontStyle) {
         this.fontStyle = fontStyle;
         this.font = skin.get(fontStyle.getFontName(), MsdfFont.class);
@@ -138,6 +418,27 @@ public class MsdfLabel extends Label implements Disableable {
         setTxt(txt);
     }
 
+    /**
+     * Set the transform applied to the text before it's displayed.
+     * If null, the text is uppercased if the font style is all caps.
+     */
+    public void setTextTransform(@Nullable TextTransform textTransform) {
+        this.textTransform = textTransform;
+        setTxt(txt);
+    }
+
+    /**
+     * Returns the transform applied to the text before it's displayed, or null if there's none.
+     * If no transform was set, the default uppercase transform is returned if the font style is all caps.
+     */
+    @Nullable
+    public TextTransform getTextTransform() {
+        if (textTransform == null && fontStyle.isAllCaps()) {
+            return UpperCaseTransform.getDefault();
+        }
+        return textTransform;
+    }
+
     @NotNull
     public FontStyle getFontStyle() {
         return fontStyle;
@@ -147,6 +448,15 @@ public class MsdfLabel extends Label implements Disableable {
         return font;
     }
 
+    /**
+     * Returns the shader used to draw the label, which is the variant of the skin shader for
+     * the distance field type of the font, with only the effects used by the font style.
+     */
+    @NotNull
+    public MsdfShader getShader() {
+        return shader.getVariant(font, fontStyle);
+    }
+
     /**
      * @deprecated Use {@link #setFillParent(boolean)}
      */
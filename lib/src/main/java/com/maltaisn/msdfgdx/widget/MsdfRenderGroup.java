@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.widget;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.Sort;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfBatch;
+import com.maltaisn.msdfgdx.MsdfFont;
+import com.maltaisn.msdfgdx.MsdfShader;
+import com.maltaisn.msdfgdx.MsdfStats;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * A table that defers drawing of the {@link MsdfLabel} it contains until all its children are drawn.
+ * Labels are then drawn grouped by shader, texture and font style, so that the shader is changed once
+ * and the batch is only flushed when the texture or the font style changes. Without this, each label
+ * flushes the batch twice when other actors are drawn between labels. With fonts having multiple pages,
+ * the glyphs of all labels on the first page are drawn first, then those on the second page, and so on.
+ * <p>
+ * Using this group changes the drawing order: text is always drawn over everything else in the group.
+ * Labels are deferred to the nearest render group ancestor, so actors that clip their children,
+ * like a {@code ScrollPane}, should have their own render group inside them for the clipping to apply.
+ * <p>
+ * Deferring has no effect when drawing with a {@link MsdfBatch}, since no shader change is needed then.
+ */
+public class MsdfRenderGroup extends Table {
+
+    private final Array<Entry> entries = new Array<Entry>();
+    private final Pool<Entry> entryPool = new Pool<Entry>() {
+        @Override
+        protected Entry newObject() {
+            return new Entry();
+        }
+    };
+
+    // Objects seen in the current draw, the index of each is used for sorting.
+    private final Array<Object> shaders = new Array<Object>();
+    private final Array<Object> textures = new Array<Object>();
+    private final Array<Object> styles = new Array<Object>();
+
+    private final Matrix4 oldTransform = new Matrix4();
+
+    private boolean deferText = true;
+    private boolean deferring;
+
+
+    public MsdfRenderGroup() {
+        this(null);
+    }
+
+    public MsdfRenderGroup(@Nullable Skin skin) {
+        super(skin);
+    }
+
+
+    @Override
+    protected void drawChildren(@NotNull Batch batch, float parentAlpha) {
+        if (!deferText || batch instanceof MsdfBatch) {
+            super.drawChildren(batch, parentAlpha);
+            return;
+        }
+
+        deferring = true;
+        try {
+            super.drawChildren(batch, parentAlpha);
+        } finally {
+            deferring = false;
+        }
+        drawDeferred(batch);
+    }
+
+    /**
+     * Defer drawing of a label. The label position and the batch transform are saved
+     * since they may be different when the deferred labels are drawn.
+     *
+     * @return Whether the label was deferred. If not, the label must be drawn immediately.
+     */
+    boolean defer(@NotNull MsdfLabel label, @NotNull Batch batch, float parentAlpha) {
+        if (!deferring) {
+            return false;
+        }
+
+        // Labels are sorted by their first page, which is the only page of most fonts.
+        MsdfFont font = label.getFont();
+        Texture texture = font.getFont().getRegion().getTexture();
+
+        Entry entry = entryPool.obtain();
+        entry.label = label;
+        entry.parentAlpha = parentAlpha;
+        entry.x = label.getX();
+        entry.y = label.getY();
+        entry.transform.set(batch.getTransformMatrix());
+        entry.shaderIndex = indexOf(shaders, label.getShader());
+        entry.textureIndex = indexOf(textures, texture);
+        entry.styleIndex = indexOf(styles, label.getFontStyle());
+        entries.add(entry);
+        return true;
+    }
+
+    private void drawDeferred(Batch batch) {
+        if (entries.size == 0) {
+            return;
+        }
+
+        Sort.instance().sort(entries, ENTRY_COMPARATOR);
+
+        int pageCount = 1;
+        for (int i = 0; i < entries.size; i++) {
+            pageCount = Math.max(pageCount, entries.get(i).label.getFont().getFont().getRegions().size);
+        }
+
+        // Labels are drawn page by page, so that the texture changes once per page
+        // instead of once per page of each label for fonts with multiple pages.
+        oldTransform.set(batch.getTransformMatrix());
+        MsdfStats stats = MsdfStats.getActive();
+        MsdfShader shader = null;
+        for (int page = 0; page < pageCount; page++) {
+            for (int i = 0; i < entries.size; i++) {
+                Entry entry = entries.get(i);
+                MsdfLabel label = entry.label;
+                if (page > 0 && !label.hasGlyphsOnPage(page)) {
+                    continue;
+                }
+                if (label.getShader() != shader) {
+                    shader = label.getShader();
+                    batch.setShader(shader);
+                    if (stats != null) stats.addShaderSwitch();
+                }
+                if (!Arrays.equals(entry.transform.val, batch.getTransformMatrix().val)) {
+                    batch.setTransformMatrix(entry.transform);
+                }
+
+                MsdfFont font = label.getFont();
+                FontStyle style = label.getFontStyle();
+                // Uniforms are about to change, text drawn with the previous values must be flushed.
+                // Pages may have different sizes or distance ranges, only those are updated if the style is the same.
+                if (!shader.isStyleApplied(style)) {
+                    batch.flush();
+                    shader.updateForFont(font, style);
+                }
+                if (!shader.isPageApplied(font, style, page)) {
+                    batch.flush();
+                    shader.updateForPage(font, style, page);
+                }
+                label.drawDeferred(batch, entry.parentAlpha, entry.x, entry.y, page);
+            }
+        }
+        batch.setShader(null);
+        if (stats != null && shader != null) stats.addShaderSwitch();
+        if (!Arrays.equals(oldTransform.val, batch.getTransformMatrix().val)) {
+            batch.setTransformMatrix(oldTransform);
+        }
+
+        entryPool.freeAll(entries);
+        entries.clear();
+        shaders.clear();
+        textures.clear();
+        styles.clear();
+    }
+
+    /**
+     * Set whether labels are deferred or drawn immediately like in a regular table. Default is true.
+     */
+    public void setDeferText(boolean deferText) {
+        this.deferText = deferText;
+    }
+
+    public boolean isDeferText() {
+        return deferText;
+    }
+
+    private static int indexOf(Array<Object> array, Object obj) {
+        int index = array.indexOf(obj, true);
+        if (index == -1) {
+            index = array.size;
+            array.add(obj);
+        }
+        return index;
+    }
+
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            if (e1.shaderIndex != e2.shaderIndex) return e1.shaderIndex - e2.shaderIndex;
+            if (e1.textureIndex != e2.textureIndex) return e1.textureIndex - e2.textureIndex;
+            return e1.styleIndex - e2.styleIndex;
+        }
+    };
+
+    private static final class Entry implements Pool.Poolable {
+        MsdfLabel label;
+        float parentAlpha;
+        float x;
+        float y;
+        final Matrix4 transform = new Matrix4();
+        int shaderIndex;
+        int textureIndex;
+        int styleIndex;
+
+        @Override
+        public void reset() {
+            label = null;
+        }
+    }
+
+}
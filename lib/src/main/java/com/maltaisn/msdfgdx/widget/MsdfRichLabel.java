@@ -0,0 +1,333 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.widget;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.maltaisn.msdfgdx.DynamicAtlas;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfBatch;
+import com.maltaisn.msdfgdx.MsdfFont;
+import com.maltaisn.msdfgdx.MsdfShader;
+import com.maltaisn.msdfgdx.MsdfStats;
+import com.maltaisn.msdfgdx.RichText;
+import com.maltaisn.msdfgdx.RichTextParser;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * A label displaying {@link RichText}, where spans of text can have another color, weight or shadow
+ * than the label font style. The text is laid out as a single paragraph like a {@link MsdfLabel},
+ * and the style of each glyph is found from the span of its character after layout.
+ * <p>
+ * When drawn with a {@link MsdfBatch}, the style is passed per vertex and the whole text is drawn in
+ * a single pass, without flushing. Otherwise, the shader uniforms are updated and the batch flushed
+ * between glyphs of different spans. Text is never deferred by a {@link MsdfRenderGroup}.
+ * <p>
+ * Markup set with {@link #setMarkup(String)} is parsed with the {@link RichTextParser} named "default"
+ * in the skin if there's one, so that parsed text is shared between labels. Spans apply to the displayed
+ * text, so a text transform must not change the length of the text.
+ */
+public class MsdfRichLabel extends MsdfLabel {
+
+    @NotNull
+    private final Skin skin;
+    @Nullable
+    private RichTextParser parser;
+    private RichText richText;
+
+    // Style of each span, with the font and size of the label style, and the version of the label style.
+    private final Array<FontStyle> spanStyles = new Array<FontStyle>();
+    private int styleVersion;
+    // Shader features needed by the label style and all span styles.
+    private int features;
+
+    // For each font page, the span of each glyph on the page in order, or -1 for the label style.
+    private final Array<IntArray> pageSpans = new Array<IntArray>();
+    private int atlasVersion;
+
+    private final Color tempColor = new Color();
+
+
+    /**
+     * Create a new rich label.
+     *
+     * @param markup   The label initial markup, can be null.
+     * @param skin     The skin, used to retrieve the shader and the parser under the "default" name.
+     * @param fontName The name of the font style obtained from the skin.
+     */
+    public MsdfRichLabel(@Nullable String markup, @NotNull Skin skin, @NotNull String fontName) {
+        this(markup, skin, skin.get(fontName, FontStyle.class));
+    }
+
+    /**
+     * Create a new rich label.
+     *
+     * @param markup    The label initial markup, can be null.
+     * @param skin      The skin, used to retrieve the shader and the parser under the "default" name.
+     * @param fontStyle The label font style.
+     */
+    public MsdfRichLabel(@Nullable String markup, @NotNull Skin skin, @NotNull FontStyle fontStyle) {
+        super(null, skin, fontStyle);
+        this.skin = skin;
+        setMarkup(markup);
+    }
+
+    /**
+     * Create a new rich label.
+     *
+     * @param text      The label initial text.
+     * @param skin      The skin, used to retrieve the shader under the "default" name.
+     * @param fontStyle The label font style.
+     */
+    public MsdfRichLabel(@NotNull RichText text, @NotNull Skin skin, @NotNull FontStyle fontStyle) {
+        super(null, skin, fontStyle);
+        this.skin = skin;
+        setRichText(text);
+    }
+
+
+    /**
+     * Parse markup and display it, see {@link RichTextParser} for the syntax.
+     */
+    public void setMarkup(@Nullable String markup) {
+        if (markup == null) markup = "";
+        if (parser == null) {
+            parser = skin.optional("default", RichTextParser.class);
+            if (parser == null) {
+                parser = new RichTextParser(skin, 1);
+            }
+        }
+        setRichText(parser.parse(markup));
+    }
+
+    /**
+     * Set the rich text displayed by the label.
+     */
+    public void setRichText(@NotNull RichText text) {
+        //noinspection ConstantConditions
+        if (text == null) throw new NullPointerException("Text cannot be null");
+        if (text == richText) return;
+        richText = text;
+        updateSpanStyles();
+        super.setTxt(text.getText());
+        invalidate();
+    }
+
+    @NotNull
+    public RichText getRichText() {
+        return richText;
+    }
+
+    /**
+     * Set plain text, without spans.
+     */
+    @Override
+    public void setTxt(@Nullable CharSequence newText) {
+        if (richText == null || newText == getTxt()) {
+            // Called from the label constructor, or to update the displayed text after a style change.
+            super.setTxt(newText);
+            return;
+        }
+        setRichText(new RichText.Builder().append(newText == null ? "" : newText).build());
+    }
+
+    @Override
+    public void setFontStyle(@NotNull FontStyle fontStyle) {
+        super.setFontStyle(fontStyle);
+        if (richText != null) {
+            updateSpanStyles();
+        }
+    }
+
+    /**
+     * Create the style of each span from the span style or the label style, keeping the font and size
+     * of the label style since they affect layout.
+     */
+    private void updateSpanStyles() {
+        FontStyle labelStyle = getFontStyle();
+        styleVersion = labelStyle.getVersion();
+        features = labelStyle.getShaderFeatures();
+        spanStyles.clear();
+        for (int i = 0; i < richText.getSpanCount(); i++) {
+            FontStyle spanStyle = richText.getSpanStyle(i);
+            FontStyle style = new FontStyle(spanStyle != null ? spanStyle : labelStyle);
+            style.setFontName(labelStyle.getFontName());
+            style.setSize(labelStyle.getSize());
+            style.setAllCaps(labelStyle.isAllCaps());
+            Color color = richText.getSpanColor(i);
+            if (color != null) {
+                style.setColor(new Color(color));
+            }
+            spanStyles.add(style);
+            features |= style.getShaderFeatures();
+        }
+    }
+
+    @Override
+    public void layout() {
+        super.layout();
+        DynamicAtlas atlas = getFont().getDynamicAtlas();
+        if (atlas != null) atlasVersion = atlas.getVersion();
+        mapGlyphSpans();
+    }
+
+    /**
+     * Find the span of each glyph in the font cache. Glyphs are in the same order as the characters
+     * of the displayed text, but characters without glyphs like line breaks are skipped.
+     */
+    private void mapGlyphSpans() {
+        BitmapFontCache cache = getBitmapFontCache();
+        int pageCount = cache.getFont().getRegions().size;
+        while (pageSpans.size < pageCount) pageSpans.add(new IntArray());
+        for (int i = 0; i < pageSpans.size; i++) pageSpans.get(i).clear();
+
+        CharSequence text = getDisplayedText();
+        Glyph missingGlyph = cache.getFont().getData().missingGlyph;
+        int length = text.length();
+        int index = 0;
+        int span = -1;
+        Array<GlyphLayout.GlyphRun> runs = getGlyphLayout().runs;
+        for (int i = 0; i < runs.size; i++) {
+            Array<Glyph> glyphs = runs.get(i).glyphs;
+            for (int j = 0; j < glyphs.size; j++) {
+                Glyph glyph = glyphs.get(j);
+                int start = index;
+                while (index < length && text.charAt(index) != glyph.id && glyph != missingGlyph) {
+                    index++;
+                }
+                if (index < length) {
+                    span = richText.getSpanAt(index);
+                    index++;
+                } else {
+                    // Not in the text, like an ellipsis. Use the style of the previous glyph.
+                    index = start;
+                }
+                pageSpans.get(glyph.page).add(span);
+            }
+        }
+
+        for (int i = 0; i < pageCount; i++) {
+            IntArray spans = pageSpans.get(i);
+            int quads = cache.getVertexCount(i) / Sprite.SPRITE_SIZE;
+            if (spans.size != quads) {
+                // Glyphs don't match the cache, draw the page with the label style.
+                spans.clear();
+                for (int j = 0; j < quads; j++) spans.add(-1);
+            }
+        }
+    }
+
+    @Override
+    public void draw(@NotNull Batch batch, float parentAlpha) {
+        if (richText.getSpanCount() == 0) {
+            super.draw(batch, parentAlpha);
+            return;
+        }
+
+        MsdfFont font = getFont();
+        FontStyle labelStyle = getFontStyle();
+        DynamicAtlas atlas = font.getDynamicAtlas();
+        if (atlas != null && atlas.getVersion() != atlasVersion) {
+            // Glyphs were evicted from the font atlas since the text was laid out.
+            invalidate();
+        }
+        if (labelStyle.getVersion() != styleVersion) {
+            updateSpanStyles();
+        }
+        validate();
+
+        Color color = tempColor.set(getColor());
+        color.a *= parentAlpha * (isDisabled() ? 0.5f : 1f);
+        Drawable background = getBackground();
+        if (background != null) {
+            batch.setColor(color.r, color.g, color.b, color.a);
+            background.draw(batch, getX(), getY(), getWidth(), getHeight());
+        }
+
+        MsdfStats stats = MsdfStats.getActive();
+        MsdfBatch msdfBatch = batch instanceof MsdfBatch ? (MsdfBatch) batch : null;
+        MsdfShader shader = null;
+        if (msdfBatch == null) {
+            // Variant with the effects of all spans.
+            shader = skin.get(MsdfShader.class).getVariant(font.getFieldType(), features);
+            if (stats != null && batch.getShader() != shader) stats.addShaderSwitch();
+            batch.setShader(shader);
+        }
+
+        BitmapFontCache cache = getBitmapFontCache();
+        cache.tint(color);
+        cache.setPosition(getX(), getY());
+        Array<TextureRegion> regions = cache.getFont().getRegions();
+        int vertexCount = 0;
+        for (int i = 0; i < regions.size; i++) {
+            int count = cache.getVertexCount(i);
+            if (count == 0) continue;
+            vertexCount += count;
+            Texture texture = regions.get(i).getTexture();
+            float[] vertices = cache.getVertices(i);
+            IntArray spans = pageSpans.get(i);
+
+            // Draw consecutive glyphs with the same span together.
+            int start = 0;
+            while (start < spans.size) {
+                int span = spans.get(start);
+                int end = start + 1;
+                while (end < spans.size && spans.get(end) == span) end++;
+
+                FontStyle style = span == -1 ? labelStyle : spanStyles.get(span);
+                if (msdfBatch != null) {
+                    msdfBatch.setFontStyle(font, style, i);
+                } else {
+                    if (!shader.isStyleApplied(style)) {
+                        batch.flush();
+                        shader.updateForFont(font, style);
+                    }
+                    if (!shader.isPageApplied(font, style, i)) {
+                        batch.flush();
+                        shader.updateForPage(font, style, i);
+                    }
+                }
+                batch.draw(texture, vertices, start * Sprite.SPRITE_SIZE, (end - start) * Sprite.SPRITE_SIZE);
+                start = end;
+            }
+        }
+
+        if (msdfBatch != null) {
+            msdfBatch.clearFontStyle();
+        } else {
+            batch.setShader(null);
+            if (stats != null) stats.addShaderSwitch();
+        }
+        if (stats != null) {
+            stats.addGlyphs(vertexCount / Sprite.SPRITE_SIZE);
+        }
+    }
+
+}
@@ -0,0 +1,540 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.widget;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.ui.Widget;
+import com.badlogic.gdx.scenes.scene2d.utils.Cullable;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.maltaisn.msdfgdx.DynamicAtlas;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfBatch;
+import com.maltaisn.msdfgdx.MsdfFont;
+import com.maltaisn.msdfgdx.MsdfShader;
+import com.maltaisn.msdfgdx.MsdfStats;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+
+/**
+ * A widget to display large amounts of text, like logs or license texts, with a distance field font.
+ * Unlike {@link MsdfLabel}, which lays out all of its text, only the lines in the visible area,
+ * plus a margin of lines above and below, are laid out. The vertices are rebuilt in the same buffers
+ * when scrolling past the margin, so memory used for drawing depends on the visible area only.
+ * <p>
+ * The visible area is the culling area, which is set by a {@code ScrollPane} containing the widget.
+ * Without a culling area, all lines are laid out, so the widget should always be put in a scroll pane.
+ * Lines are separated with {@code '\n'} and aren't wrapped. Since lines aren't all laid out, the preferred
+ * width is the width of the widest line laid out so far, unless set with {@link #setPrefWidth(float)}.
+ * <p>
+ * Text can be {@link #append(CharSequence) appended}, for example for a console. Only the appended text is
+ * indexed, and new lines are laid out after the lines already laid out. With a {@link #setMaxLines(int)
+ * maximum number of lines}, the oldest lines are dropped from the front without laying out the others again.
+ * <p>
+ * Like {@link MsdfLabel}, this widget expects to find a {@link MsdfShader} named "default" in the skin,
+ * unless it's drawn with a {@link MsdfBatch}.
+ */
+public class MsdfTextArea extends Widget implements Cullable {
+
+    private final Skin skin;
+    private final MsdfShader shader;
+
+    private MsdfFont font;
+    private FontStyle fontStyle;
+    private int styleVersion;
+    private int atlasVersion;
+
+    // Text, the characters before textStart belong to dropped lines.
+    private final StringBuilder text = new StringBuilder();
+    private int textStart;
+
+    // Index of the first character of each line in the text, indexed up to indexedLength.
+    // The lines before firstLine were dropped, there were removedLines lines dropped in total.
+    private final IntArray lineStarts = new IntArray();
+    private int firstLine;
+    private int removedLines;
+    private int indexedLength;
+    private int maxLines;
+
+    @Nullable
+    private Rectangle cullingArea;
+    private int marginLines = 20;
+
+    // Lines laid out in the font cache and drawn, counting dropped lines, the end is exclusive.
+    // The font cache starts with the builtBase line, whose top is at a y position of zero. Lines
+    // between builtBase and builtStart were dropped after being laid out and aren't drawn.
+    @Nullable
+    private BitmapFontCache cache;
+    private int builtStart;
+    private int builtEnd;
+    private int builtBase;
+    private boolean dirty = true;
+
+    // Number of vertices on each font page in the font cache before each line laid out, from builtBase.
+    private final IntArray lineVertexStarts = new IntArray();
+
+    private float maxLineWidth;
+    private float prefWidth = -1;
+
+    private final Color tempColor = new Color();
+
+
+    /**
+     * Create a new text area.
+     *
+     * @param text     The initial text, can be null.
+     * @param skin     The skin, used to retrieve the shader under the "default" name.
+     * @param fontName The name of the font style obtained from the skin.
+     */
+    public MsdfTextArea(@Nullable CharSequence text, @NotNull Skin skin, @NotNull String fontName) {
+        this(text, skin, skin.get(fontName, FontStyle.class));
+    }
+
+    /**
+     * Create a new text area.
+     *
+     * @param text      The initial text, can be null.
+     * @param skin      The skin, used to retrieve the shader under the "default" name.
+     * @param fontStyle The font style.
+     */
+    @SuppressWarnings("ConstantConditions")
+    public MsdfTextArea(@Nullable CharSequence text, @NotNull Skin skin, @NotNull FontStyle fontStyle) {
+        if (skin == null) throw new NullPointerException("Skin cannot be null");
+        if (fontStyle == null) throw new NullPointerException("Font style cannot be null");
+
+        this.skin = skin;
+        this.shader = skin.get(MsdfShader.class);
+
+        setFontStyle(fontStyle);
+        setText(text);
+    }
+
+
+    @Override
+    public void draw(@NotNull Batch batch, float parentAlpha) {
+        validate();
+        if (fontStyle.getVersion() != styleVersion) {
+            // Line height may have changed.
+            styleVersion = fontStyle.getVersion();
+            dirty = true;
+            invalidateHierarchy();
+        }
+        DynamicAtlas atlas = font.getDynamicAtlas();
+        if (atlas != null && atlas.getVersion() != atlasVersion) {
+            // Glyphs were evicted from the font atlas since the text was laid out.
+            dirty = true;
+        }
+
+        BitmapFontCache cache = buildVisibleLines();
+
+        MsdfStats stats = MsdfStats.getActive();
+        MsdfShader shader = null;
+        if (batch instanceof MsdfBatch) {
+            ((MsdfBatch) batch).setFontStyle(font, fontStyle);
+        } else {
+            shader = this.shader.getVariant(font, fontStyle);
+            if (stats != null && batch.getShader() != shader) stats.addShaderSwitch();
+            batch.setShader(shader);
+            shader.updateForFont(font, fontStyle);
+        }
+
+        Color color = tempColor.set(getColor());
+        color.a *= parentAlpha;
+        cache.tint(color);
+        cache.setPosition(getX(), getY() + getHeight() - (builtBase - removedLines) * getLineHeight());
+        Array<TextureRegion> regions = cache.getFont().getRegions();
+        int vertexCount = 0;
+        for (int i = 0; i < regions.size; i++) {
+            int offset = getVertexStart(i);
+            int count = cache.getVertexCount(i) - offset;
+            if (count == 0) continue;
+            vertexCount += count;
+            if (shader == null) {
+                ((MsdfBatch) batch).setFontStyle(font, fontStyle, i);
+            } else if (!shader.isPageApplied(font, fontStyle, i)) {
+                // Pages may have different sizes or distance ranges, flush text drawn with the previous values.
+                batch.flush();
+                shader.updateForPage(font, fontStyle, i);
+            }
+            batch.draw(regions.get(i).getTexture(), cache.getVertices(i), offset, count);
+        }
+
+        if (shader != null) {
+            batch.setShader(null);
+            if (stats != null) stats.addShaderSwitch();
+        } else {
+            ((MsdfBatch) batch).clearFontStyle();
+        }
+        if (stats != null) {
+            stats.addGlyphs(vertexCount / Sprite.SPRITE_SIZE);
+        }
+    }
+
+    /**
+     * Lay out the visible lines in the font cache if they aren't already, with the margin.
+     * If the visible lines continue the lines laid out, like when text is appended, only
+     * the new lines are laid out. Otherwise, all lines are laid out again.
+     */
+    @NotNull
+    BitmapFontCache buildVisibleLines() {
+        if (cache == null) {
+            cache = font.getFont().newFontCache();
+        }
+
+        int lineCount = getLineCount();
+        int first = 0;
+        int last = lineCount;
+        if (cullingArea != null) {
+            float lineHeight = getLineHeight();
+            float height = getHeight();
+            first = Math.max((int) ((height - cullingArea.y - cullingArea.height) / lineHeight), 0);
+            last = Math.max(Math.min((int) Math.ceil((height - cullingArea.y) / lineHeight), lineCount), first);
+        }
+        first += removedLines;
+        last += removedLines;
+
+        if (!dirty && first >= builtStart) {
+            if (last <= builtEnd) {
+                return cache;
+            }
+            int end = Math.min(last + marginLines, removedLines + lineCount);
+            if (first <= builtEnd && end - builtStart <= last - first + 2 * marginLines) {
+                layoutLines(builtEnd, end);
+                builtEnd = end;
+                return cache;
+            }
+        }
+
+        // Clearing the cache keeps its vertex arrays and frees the layouts to their pool,
+        // so they are reused for the new lines.
+        dirty = false;
+        cache.clear();
+        lineVertexStarts.clear();
+        builtStart = Math.max(first - marginLines, removedLines);
+        builtEnd = Math.min(last + marginLines, removedLines + lineCount);
+        builtBase = builtStart;
+        layoutLines(builtStart, builtEnd);
+        return cache;
+    }
+
+    /**
+     * Add lines to the font cache, counting dropped lines, the end is exclusive.
+     */
+    private void layoutLines(int start, int end) {
+        MsdfStats stats = MsdfStats.getActive();
+        long startTime = stats != null ? System.nanoTime() : 0;
+        BitmapFontCache cache = this.cache;
+        int pageCount = cache.getFont().getRegions().size;
+        BitmapFontData data = font.getFont().getData();
+        float lineHeight = getLineHeight();
+        float oldScaleX = data.scaleX;
+        float oldScaleY = data.scaleY;
+        data.setScale(fontStyle.getSize() / font.getGlyphSize());
+        float y = (builtBase - start) * lineHeight + data.descent;
+        for (int i = start - removedLines; i < end - removedLines; i++) {
+            int lineStart = getLineStart(i);
+            int lineEnd = getLineEnd(i);
+            for (int j = 0; j < pageCount; j++) {
+                lineVertexStarts.add(cache.getVertexCount(j));
+            }
+            if (lineEnd > lineStart) {
+                GlyphLayout layout = cache.addText(text, 0f, y, lineStart, lineEnd, 0f, Align.left, false);
+                if (layout.width > maxLineWidth) {
+                    maxLineWidth = layout.width;
+                    if (prefWidth < 0) invalidateHierarchy();
+                }
+            }
+            y -= lineHeight;
+        }
+        data.setScale(oldScaleX, oldScaleY);
+
+        DynamicAtlas atlas = font.getDynamicAtlas();
+        if (atlas != null) atlasVersion = atlas.getVersion();
+        if (stats != null) stats.addLayout(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Returns the index of the first vertex drawn on a font page in the font cache,
+     * skipping the vertices of the dropped lines.
+     */
+    int getVertexStart(int page) {
+        int lineOffset = (builtStart - builtBase) * cache.getFont().getRegions().size;
+        return lineOffset < lineVertexStarts.size ? lineVertexStarts.get(lineOffset + page)
+                : cache.getVertexCount(page);
+    }
+
+    /**
+     * Index the line starts of the text added since the last call.
+     */
+    private void indexLines() {
+        int length = text.length();
+        char[] chars = text.chars;
+        for (int i = indexedLength; i < length; i++) {
+            if (chars[i] == '\n') {
+                lineStarts.add(i + 1);
+            }
+        }
+        indexedLength = length;
+    }
+
+    /**
+     * Drop lines from the front until there are no more lines than the maximum.
+     * Lines already laid out stay where they are in the font cache, and the dropped lines in the
+     * font cache are skipped when drawing. The lines are laid out again once there are more dropped
+     * lines than lines kept in the font cache, so that it doesn't grow indefinitely.
+     */
+    private void dropLines() {
+        int lineCount = getLineCount();
+        if (maxLines == 0 || lineCount <= maxLines) return;
+
+        int count = lineCount - maxLines;
+        firstLine += count;
+        removedLines += count;
+        textStart = lineStarts.get(firstLine);
+        if (builtStart < removedLines) {
+            // Dropped lines are in the font cache.
+            builtStart = Math.min(removedLines, builtEnd);
+            if (builtStart - builtBase > builtEnd - builtStart) {
+                dirty = true;
+            }
+        }
+        if (firstLine * 2 >= lineStarts.size) {
+            // Remove the dropped text once there's more of it than text kept, so it's done in linear time.
+            compact();
+        }
+        invalidateHierarchy();
+    }
+
+    /**
+     * Remove the dropped lines from the text and the line starts.
+     */
+    private void compact() {
+        int shift = textStart;
+        text.delete(0, shift);
+        int[] items = lineStarts.items;
+        int size = lineStarts.size - firstLine;
+        for (int i = 0; i < size; i++) {
+            items[i] = items[i + firstLine] - shift;
+        }
+        lineStarts.size = size;
+        indexedLength -= shift;
+        textStart = 0;
+        firstLine = 0;
+    }
+
+    private int getLineStart(int line) {
+        return lineStarts.get(firstLine + line);
+    }
+
+    /**
+     * Returns the index of the character after the last character of a line, excluding the line separator.
+     */
+    private int getLineEnd(int line) {
+        int index = firstLine + line + 1;
+        int end = index < lineStarts.size ? lineStarts.get(index) - 1 : text.length();
+        if (end > getLineStart(line) && text.charAt(end - 1) == '\r') end--;
+        return end;
+    }
+
+    /**
+     * Set the text. Line starts are indexed in a single pass, but no line is laid out until drawn.
+     */
+    public void setText(@Nullable CharSequence newText) {
+        text.setLength(0);
+        if (newText != null) text.append(newText);
+        textStart = 0;
+        lineStarts.clear();
+        lineStarts.add(0);
+        firstLine = 0;
+        removedLines = 0;
+        indexedLength = 0;
+        indexLines();
+        dropLines();
+        maxLineWidth = 0;
+        dirty = true;
+        invalidateHierarchy();
+    }
+
+    /**
+     * Append text. Only the appended text is indexed, and the lines already laid out are kept,
+     * unless the text is appended to a non-empty last line which is laid out.
+     * If there are more lines than the maximum afterwards, the oldest lines are dropped.
+     */
+    public void append(@NotNull CharSequence str) {
+        if (str.length() == 0) return;
+
+        int lastLine = getLineCount() - 1;
+        int lastLineAbs = removedLines + lastLine;
+        if (!dirty && lastLineAbs >= builtStart && lastLineAbs < builtEnd) {
+            if (getLineEnd(lastLine) > getLineStart(lastLine)) {
+                // The last line is extended, lay out everything again.
+                dirty = true;
+            } else {
+                // The last line is empty and has no vertices, it's laid out again with the appended lines.
+                builtEnd--;
+                lineVertexStarts.size -= cache.getFont().getRegions().size;
+            }
+        }
+        text.append(str);
+        indexLines();
+        dropLines();
+        invalidateHierarchy();
+    }
+
+    /**
+     * Returns the text. It must not be modified.
+     */
+    @NotNull
+    public StringBuilder getText() {
+        if (textStart > 0) compact();
+        return text;
+    }
+
+    /**
+     * Returns the number of lines in the text, at least one.
+     */
+    public int getLineCount() {
+        return lineStarts.size - firstLine;
+    }
+
+    /**
+     * Set the maximum number of lines, or zero for no maximum. When there are more lines,
+     * the oldest lines are dropped. The last line counts even if it's empty.
+     */
+    public void setMaxLines(int maxLines) {
+        if (maxLines < 0) throw new IllegalArgumentException("Max lines must be positive.");
+        this.maxLines = maxLines;
+        dropLines();
+    }
+
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    /**
+     * Returns the number of lines dropped from the front since the text was last set.
+     */
+    public int getDroppedLineCount() {
+        return removedLines;
+    }
+
+    /**
+     * Returns the height of a line, in the widget coordinates.
+     */
+    public float getLineHeight() {
+        return font.getFont().getData().lineHeight * fontStyle.getSize() / font.getGlyphSize();
+    }
+
+    /**
+     * Returns the line at a y position in the widget coordinates, which may be out of the text bounds.
+     */
+    public int getLineAt(float y) {
+        return (int) ((getHeight() - y) / getLineHeight());
+    }
+
+    /**
+     * Returns the y position of the top of a line, in the widget coordinates.
+     */
+    public float getLineY(int line) {
+        return getHeight() - line * getLineHeight();
+    }
+
+    public void setFontStyle(@NotNull FontStyle fontStyle) {
+        //noinspection ConstantConditions
+        if (fontStyle == null) throw new NullPointerException("Font style cannot be null");
+        MsdfFont font = skin.get(fontStyle.getFontName(), MsdfFont.class);
+        if (font != this.font) {
+            this.font = font;
+            cache = null;
+        }
+        this.fontStyle = fontStyle;
+        styleVersion = fontStyle.getVersion();
+        maxLineWidth = 0;
+        dirty = true;
+        invalidateHierarchy();
+    }
+
+    @NotNull
+    public FontStyle getFontStyle() {
+        return fontStyle;
+    }
+
+    public MsdfFont getFont() {
+        return font;
+    }
+
+    /**
+     * Set the number of lines laid out above and below the visible lines, so that they are
+     * not laid out again every time the text is scrolled. Default is 20 lines.
+     */
+    public void setMarginLines(int marginLines) {
+        if (marginLines < 0) throw new IllegalArgumentException("Margin must be positive.");
+        this.marginLines = marginLines;
+    }
+
+    public int getMarginLines() {
+        return marginLines;
+    }
+
+    /**
+     * Returns the number of lines currently laid out.
+     */
+    public int getLaidOutLineCount() {
+        return builtEnd - builtStart;
+    }
+
+    /**
+     * Set the preferred width, or a negative value to use the width of the widest line laid out so far.
+     */
+    public void setPrefWidth(float prefWidth) {
+        this.prefWidth = prefWidth;
+        invalidateHierarchy();
+    }
+
+    @Override
+    public float getPrefWidth() {
+        return prefWidth >= 0 ? prefWidth : maxLineWidth;
+    }
+
+    @Override
+    public float getPrefHeight() {
+        return getLineCount() * getLineHeight();
+    }
+
+    @Override
+    public void setCullingArea(@Nullable Rectangle cullingArea) {
+        this.cullingArea = cullingArea;
+    }
+
+    @Nullable
+    public Rectangle getCullingArea() {
+        return cullingArea;
+    }
+
+}
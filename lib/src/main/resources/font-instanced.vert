@@ -0,0 +1,37 @@
+// Vertex shader for MsdfInstancedRenderer, drawing each glyph as an instance of a unit quad.
+// Used with font.frag and PER_VERTEX_STYLE, the style values being read from the style table.
+uniform mat4 u_projTrans;
+
+// Style table, five vec4 per style, see StyleAttributes.writeUniforms.
+uniform vec4 u_styles[MAX_STYLES * 5];
+
+// Corner of the unit quad, per vertex.
+attribute vec2 a_corner;
+
+// Glyph instance: position and size, texture coordinates, tint color and style index.
+attribute vec4 a_rect;
+attribute vec4 a_texRect;
+attribute vec4 a_color;
+attribute float a_style;
+
+varying vec4 v_color;
+varying vec2 v_texCoord;
+
+varying vec4 v_fontColor;
+varying vec4 v_shadowColor;
+varying vec4 v_innerShadowColor;
+varying vec4 v_fontParams;
+varying vec3 v_shadowParams;
+
+void main() {
+    gl_Position = u_projTrans * vec4(a_rect.xy + a_corner * a_rect.zw, 0.0, 1.0);
+    v_texCoord = mix(a_texRect.xy, a_texRect.zw, a_corner);
+    v_color = a_color;
+
+    int i = int(a_style + 0.5) * 5;
+    v_fontColor = u_styles[i];
+    v_shadowColor = u_styles[i + 1];
+    v_innerShadowColor = u_styles[i + 2];
+    v_fontParams = u_styles[i + 3];
+    v_shadowParams = u_styles[i + 4].xyz;
+}
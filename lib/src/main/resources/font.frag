@@ -13,6 +13,24 @@ uniform vec2 u_textureSize;
 varying vec4 v_color;
 varying vec2 v_texCoord;
 
+#ifdef PER_VERTEX_STYLE
+// Style is passed per vertex by MsdfBatch instead of with uniforms.
+varying vec4 v_fontColor;
+varying vec4 v_shadowColor;
+varying vec4 v_innerShadowColor;
+varying vec4 v_fontParams;
+varying vec3 v_shadowParams;
+
+#define distanceFactor v_fontParams.x
+#define color v_fontColor
+#define fontWeight v_fontParams.y
+#define shadowClipped v_fontParams.z
+#define shadowColor v_shadowColor
+#define shadowOffset v_shadowParams.xy
+#define shadowSmoothing v_shadowParams.z
+#define innerShadowColor v_innerShadowColor
+#define innerShadowRange v_fontParams.w
+#else
 uniform float distanceFactor;
 
 uniform vec4 color;
@@ -25,6 +43,7 @@ uniform float shadowSmoothing;
 
 uniform vec4 innerShadowColor;
 uniform float innerShadowRange;
+#endif
 
 
 float median(float r, float g, float b) {
@@ -43,22 +62,55 @@ float linearstep(float a, float b, float x) {
 }
 
 void main() {
+#ifdef PER_VERTEX_STYLE
+    if (distanceFactor == 0.0) {
+        // Not text, draw like a regular sprite.
+        gl_FragColor = v_color * TEXTURE(u_texture, v_texCoord);
+        return;
+    }
+#endif
+
     // Glyph
     vec4 msdf = TEXTURE(u_texture, v_texCoord);
+#ifdef SDF
+    // Single channel distance field, in the alpha channel like the shadow.
+    float distance = distanceFactor * (msdf.a + fontWeight - 0.5);
+#else
     float distance = distanceFactor * (median(msdf.r, msdf.g, msdf.b) + fontWeight - 0.5);
+#endif
     float glyphAlpha = clamp(distance + 0.5, 0.0, 1.0);
     vec4 glyph = vec4(color.rgb, glyphAlpha * color.a);
 
-    // Shadow
-    distance = TEXTURE(u_texture, v_texCoord - shadowOffset / u_textureSize).a + fontWeight;
-    float shadowAlpha = linearstep(0.5 - shadowSmoothing, 0.5 + shadowSmoothing, distance) * shadowColor.a;
-    shadowAlpha *= 1.0 - glyphAlpha * shadowClipped;
-    vec4 shadow = vec4(shadowColor.rgb, shadowAlpha);
+    vec4 result = glyph;
 
+#ifdef INNER_SHADOW
     // Inner shadow
+#ifdef PER_VERTEX_STYLE
+    if (innerShadowColor.a > 0.0) {
+#endif
     distance = msdf.a + fontWeight;
     float innerShadowAlpha = linearstep(0.5 + innerShadowRange, 0.5, distance) * innerShadowColor.a * glyphAlpha;
     vec4 innerShadow = vec4(innerShadowColor.rgb, innerShadowAlpha);
+    result = blend(innerShadow, glyph, 1.0);
+#ifdef PER_VERTEX_STYLE
+    }
+#endif
+#endif
+
+#ifdef SHADOW
+    // Shadow
+#ifdef PER_VERTEX_STYLE
+    if (shadowColor.a > 0.0) {
+#endif
+    distance = TEXTURE(u_texture, v_texCoord - shadowOffset / u_textureSize).a + fontWeight;
+    float shadowAlpha = linearstep(0.5 - shadowSmoothing, 0.5 + shadowSmoothing, distance) * shadowColor.a;
+    shadowAlpha *= 1.0 - glyphAlpha * shadowClipped;
+    vec4 shadow = vec4(shadowColor.rgb, shadowAlpha);
+    result = blend(result, shadow, 1.0);
+#ifdef PER_VERTEX_STYLE
+    }
+#endif
+#endif
 
-    gl_FragColor = blend(blend(innerShadow, glyph, 1.0), shadow, v_color.a);
+    gl_FragColor = vec4(result.rgb, result.a * v_color.a);
 }
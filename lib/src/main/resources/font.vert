@@ -7,8 +7,31 @@ attribute vec4 a_color;
 varying vec4 v_color;
 varying vec2 v_texCoord;
 
+#ifdef PER_VERTEX_STYLE
+// Style attributes set by MsdfBatch, see font.frag for the meaning of each value.
+attribute vec4 a_fontColor;
+attribute vec4 a_shadowColor;
+attribute vec4 a_innerShadowColor;
+attribute vec4 a_fontParams;
+attribute vec3 a_shadowParams;
+
+varying vec4 v_fontColor;
+varying vec4 v_shadowColor;
+varying vec4 v_innerShadowColor;
+varying vec4 v_fontParams;
+varying vec3 v_shadowParams;
+#endif
+
 void main() {
     gl_Position = u_projTrans * a_position;
     v_texCoord = a_texCoord0;
     v_color = a_color;
-}
\ No newline at end of file
+
+#ifdef PER_VERTEX_STYLE
+    v_fontColor = a_fontColor;
+    v_shadowColor = a_shadowColor;
+    v_innerShadowColor = a_innerShadowColor;
+    v_fontParams = a_fontParams;
+    v_shadowParams = a_shadowParams;
+#endif
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class BinaryFontFormatTest {
+
+    @Test
+    public void roundTrip_msdf() throws IOException {
+        MsdfFontData expected = new MsdfFontData(getAsset("font/roboto-32.fnt"), false);
+        MsdfFontData actual = roundTrip(expected, false);
+
+        assertEquals(32f, actual.getGlyphSize(), 0f);
+        assertEquals(5f, actual.getDistanceRange(), 0f);
+        assertEquals(DistanceFieldType.MSDF, actual.getFieldType());
+        assertFontDataEquals(expected, actual);
+    }
+
+    @Test
+    public void roundTrip_sdf() throws IOException {
+        MsdfFontData expected = new MsdfFontData(getAsset("font/roboto-40-sdf.fnt"), false);
+        expected.setFieldType(DistanceFieldType.SDF);
+        MsdfFontData actual = roundTrip(expected, false);
+
+        assertEquals(40f, actual.getGlyphSize(), 0f);
+        assertEquals(6f, actual.getDistanceRange(), 0f);
+        assertEquals(DistanceFieldType.SDF, actual.getFieldType());
+        assertFontDataEquals(expected, actual);
+    }
+
+    @Test
+    public void roundTrip_flipped() throws IOException {
+        FileHandle fontFile = getAsset("font/roboto-32.fnt");
+        MsdfFontData flipped = new MsdfFontData(fontFile, true);
+
+        // Metrics are written as if not flipped, and flipped again if needed when read.
+        assertFontDataEquals(flipped, roundTrip(new MsdfFontData(fontFile, false), true));
+        assertFontDataEquals(new MsdfFontData(fontFile, false), roundTrip(flipped, false));
+    }
+
+    @Test
+    public void roundTrip_compactedKernings() throws IOException {
+        FileHandle fontFile = getAsset("font/roboto-32.fnt");
+        MsdfFontData compacted = new MsdfFontData(fontFile, false);
+        compacted.compactKernings();
+        assertFontDataEquals(new MsdfFontData(fontFile, false), roundTrip(compacted, false));
+    }
+
+    @Test
+    public void readHeader() throws IOException {
+        MsdfFontData data = new MsdfFontData(getAsset("font/roboto-32.fnt"), false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFontFormat.write(data, out, data.fontFile.parent().path());
+        FileHandle binaryFile = getBinaryFile(data.fontFile);
+        MsdfFontData header = BinaryFontFormat.readHeader(
+                new MemoryFileHandle(binaryFile, out.toByteArray()));
+
+        assertEquals(data.getGlyphSize(), header.getGlyphSize(), 0f);
+        assertEquals(data.getDistanceRange(), header.getDistanceRange(), 0f);
+        assertEquals(data.getFieldType(), header.getFieldType());
+        assertEquals(data.getPageWidth(), header.getPageWidth());
+        assertEquals(data.getPageHeight(), header.getPageHeight());
+        assertArrayEquals(data.imagePaths, header.imagePaths);
+    }
+
+    /**
+     * Write font data in the binary format, then read it back from a file next to the original font file.
+     */
+    private static MsdfFontData roundTrip(MsdfFontData data, boolean flip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFontFormat.write(data, out, data.fontFile.parent().path());
+        return new MsdfFontData(getBinaryFile(data.fontFile), out.toByteArray(), flip);
+    }
+
+    private static FileHandle getBinaryFile(FileHandle fontFile) {
+        return fontFile.sibling(fontFile.nameWithoutExtension() + '.' + BinaryFontFormat.EXTENSION);
+    }
+
+    private static void assertFontDataEquals(MsdfFontData expected, MsdfFontData actual) {
+        assertEquals(expected.getGlyphSize(), actual.getGlyphSize(), 0f);
+        assertEquals(expected.getDistanceRange(), actual.getDistanceRange(), 0f);
+        assertEquals(expected.getFieldType(), actual.getFieldType());
+        assertEquals(expected.getPageWidth(), actual.getPageWidth());
+        assertEquals(expected.getPageHeight(), actual.getPageHeight());
+        assertArrayEquals(expected.imagePaths, actual.imagePaths);
+
+        assertEquals(expected.lineHeight, actual.lineHeight, 0f);
+        assertEquals(expected.capHeight, actual.capHeight, 0f);
+        assertEquals(expected.xHeight, actual.xHeight, 0f);
+        assertEquals(expected.ascent, actual.ascent, 0f);
+        assertEquals(expected.descent, actual.descent, 0f);
+        assertEquals(expected.down, actual.down, 0f);
+        assertEquals(expected.spaceXadvance, actual.spaceXadvance, 0f);
+        assertEquals(expected.padTop, actual.padTop, 0f);
+        assertEquals(expected.padRight, actual.padRight, 0f);
+        assertEquals(expected.padBottom, actual.padBottom, 0f);
+        assertEquals(expected.padLeft, actual.padLeft, 0f);
+
+        if (expected.missingGlyph == null) {
+            assertNull(actual.missingGlyph);
+        } else {
+            assertGlyphEquals(expected, expected.missingGlyph, actual, actual.missingGlyph);
+        }
+
+        int glyphs = 0;
+        for (Glyph[] page : expected.glyphs) {
+            if (page == null) continue;
+            for (Glyph glyph : page) {
+                if (glyph == null) continue;
+                Glyph actualGlyph = actual.getGlyph((char) glyph.id);
+                assertNotNull("Missing glyph " + glyph.id, actualGlyph);
+                assertGlyphEquals(expected, glyph, actual, actualGlyph);
+                glyphs++;
+            }
+        }
+        assertTrue(glyphs > 0);
+        assertEquals(glyphs, countGlyphs(actual));
+    }
+
+    private static void assertGlyphEquals(MsdfFontData expectedData, Glyph expected,
+                                          MsdfFontData actualData, Glyph actual) {
+        String message = "Glyph " + expected.id;
+        assertEquals(message, expected.id, actual.id);
+        assertEquals(message, expected.srcX, actual.srcX);
+        assertEquals(message, expected.srcY, actual.srcY);
+        assertEquals(message, expected.width, actual.width);
+        assertEquals(message, expected.height, actual.height);
+        assertEquals(message, expected.xoffset, actual.xoffset);
+        assertEquals(message, expected.yoffset, actual.yoffset);
+        assertEquals(message, expected.xadvance, actual.xadvance);
+        assertEquals(message, expected.page, actual.page);
+        for (char second = 0; second < 0x200; second++) {
+            assertEquals(message + ", kerning with " + (int) second,
+                    expectedData.getKerning(expected, second), actualData.getKerning(actual, second));
+        }
+    }
+
+    private static int countGlyphs(MsdfFontData data) {
+        int count = 0;
+        for (Glyph[] page : data.glyphs) {
+            if (page == null) continue;
+            for (Glyph glyph : page) {
+                if (glyph != null) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a file in the test assets directory, given with the {@code msdfgdx.assets} system property.
+     */
+    private static FileHandle getAsset(String path) {
+        String assets = System.getProperty("msdfgdx.assets", "../test/assets");
+        return new FileHandle(new File(assets, path));
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+
+public class GlyphInstanceBufferTest {
+
+    private MsdfFont font;
+    private FontStyle style;
+
+    @Before
+    public void setUp() {
+        // A font without glyphs nor texture, only its metrics are used by the buffer.
+        BitmapFont bitmapFont = new BitmapFont(new BitmapFontData(), Array.with(new TextureRegion()), true);
+        font = new MsdfFont(bitmapFont, 32f, 4f);
+        style = new FontStyle().setSize(64f).setColor(new Color(Color.RED));
+    }
+
+    @Test
+    public void add_convertsFontCacheQuads() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(4, 2);
+        float color1 = Color.WHITE.toFloatBits();
+        float color2 = Color.BLUE.toFloatBits();
+        float[] vertices = new float[3 * Sprite.SPRITE_SIZE];
+        putQuad(vertices, Sprite.SPRITE_SIZE, 10f, 20f, 18f, 32f, color1, 0.1f, 0.2f, 0.3f, 0.4f);
+        putQuad(vertices, 2 * Sprite.SPRITE_SIZE, -5f, 2f, 5f, 7f, color2, 0.5f, 0.25f, 0.75f, 0.5f);
+
+        buffer.addStyle(font, new FontStyle(), 0);
+        int styleIdx = buffer.addStyle(font, style, 0);
+        assertEquals(1, styleIdx);
+        assertEquals(2, buffer.add(vertices, Sprite.SPRITE_SIZE, 2 * Sprite.SPRITE_SIZE, styleIdx));
+        assertEquals(2, buffer.getSize());
+
+        float[] instances = buffer.getInstances();
+        assertInstance(instances, 0, 10f, 20f, 8f, 12f, 0.1f, 0.2f, 0.3f, 0.4f, color1, styleIdx);
+        assertInstance(instances, 1, -5f, 2f, 10f, 5f, 0.5f, 0.25f, 0.75f, 0.5f, color2, styleIdx);
+    }
+
+    @Test
+    public void addStyle_writesUniforms() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(1, 1);
+        style.setWeight(0.1f).setInnerShadowRange(0.2f);
+        assertEquals(0, buffer.addStyle(font, style, 0));
+
+        float[] styles = buffer.getStyles();
+        assertEquals(1f, styles[0], 0f);
+        assertEquals(0f, styles[1], 0f);
+        assertEquals(0f, styles[2], 0f);
+        assertEquals(1f, styles[3], 0f);
+        // Distance range of 4 at 32 px, for a size of 64 px.
+        assertEquals(8f, styles[12], 0f);
+        assertEquals(0.1f, styles[13], 0f);
+        assertEquals(0.2f, styles[15], 0f);
+    }
+
+    @Test
+    public void addStyle_reusesSameStyle() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(1, 4);
+        assertEquals(0, buffer.addStyle(font, style, 0));
+        assertEquals(0, buffer.addStyle(font, style, 0));
+        assertEquals(1, buffer.addStyle(font, style, 1));
+        assertEquals(2, buffer.addStyle(font, new FontStyle(style), 0));
+        assertEquals(1, buffer.addStyle(font, style, 1));
+        assertEquals(3, buffer.getStyleCount());
+    }
+
+    @Test
+    public void addStyle_addsAgainAfterVersionChange() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(1, 4);
+        assertEquals(0, buffer.addStyle(font, style, 0));
+        int version = style.getVersion();
+        style.setSize(32f);
+        assertNotEquals(version, style.getVersion());
+        assertEquals(1, buffer.addStyle(font, style, 0));
+        assertEquals(1, buffer.addStyle(font, style, 0));
+        assertEquals(2, buffer.getStyleCount());
+
+        // The old entry keeps the values it was added with.
+        assertEquals(8f, buffer.getStyles()[12], 0f);
+        assertEquals(4f, buffer.getStyles()[GlyphInstanceBuffer.STYLE_SIZE + 12], 0f);
+    }
+
+    @Test
+    public void addStyle_styleTableFull() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(1, 2);
+        assertEquals(0, buffer.addStyle(font, style, 0));
+        assertEquals(1, buffer.addStyle(font, new FontStyle(), 0));
+        assertEquals(-1, buffer.addStyle(font, new FontStyle(), 0));
+        // Styles already in the table can still be used.
+        assertEquals(0, buffer.addStyle(font, style, 0));
+        assertEquals(2, buffer.getStyleCount());
+    }
+
+    @Test
+    public void add_partialWhenFull() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(2, 1);
+        int styleIdx = buffer.addStyle(font, style, 0);
+        float[] vertices = new float[3 * Sprite.SPRITE_SIZE];
+        for (int i = 0; i < 3; i++) {
+            putQuad(vertices, i * Sprite.SPRITE_SIZE, i, 0f, i + 1f, 1f, 0f, 0f, 0f, 1f, 1f);
+        }
+
+        assertEquals(2, buffer.add(vertices, 0, vertices.length, styleIdx));
+        assertEquals(2, buffer.getSize());
+        assertEquals(0, buffer.getRemaining());
+        assertEquals(1f, buffer.getInstances()[GlyphInstanceBuffer.INSTANCE_SIZE], 0f);
+        assertEquals(0, buffer.add(vertices, 2 * Sprite.SPRITE_SIZE, Sprite.SPRITE_SIZE, styleIdx));
+        assertEquals(2, buffer.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_invalidStyle() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(1, 1);
+        buffer.add(new float[Sprite.SPRITE_SIZE], 0, Sprite.SPRITE_SIZE, 0);
+    }
+
+    @Test
+    public void clear() {
+        GlyphInstanceBuffer buffer = new GlyphInstanceBuffer(1, 1);
+        int styleIdx = buffer.addStyle(font, style, 0);
+        buffer.add(new float[Sprite.SPRITE_SIZE], 0, Sprite.SPRITE_SIZE, styleIdx);
+        buffer.clear();
+
+        assertEquals(0, buffer.getSize());
+        assertEquals(1, buffer.getRemaining());
+        assertEquals(0, buffer.getStyleCount());
+        assertEquals(0, buffer.addStyle(font, new FontStyle(), 0));
+        assertEquals(1, buffer.add(new float[Sprite.SPRITE_SIZE], 0, Sprite.SPRITE_SIZE, 0));
+    }
+
+    /**
+     * Put a glyph quad at an offset in vertices, in the order used by {@link com.badlogic.gdx.graphics.g2d.BitmapFontCache}.
+     */
+    private static void putQuad(float[] vertices, int offset, float x, float y, float x2, float y2,
+                                float color, float u, float v, float u2, float v2) {
+        float[] quad = {
+                x, y, color, u, v,
+                x, y2, color, u, v2,
+                x2, y2, color, u2, v2,
+                x2, y, color, u2, v,
+        };
+        System.arraycopy(quad, 0, vertices, offset, quad.length);
+    }
+
+    private static void assertInstance(float[] instances, int index, float x, float y, float width, float height,
+                                       float u, float v, float u2, float v2, float color, int style) {
+        int idx = index * GlyphInstanceBuffer.INSTANCE_SIZE;
+        float[] expected = {x, y, width, height, u, v, u2, v2, color, style};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("instance " + index + ", component " + i, expected[i], instances[idx + i], 0f);
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.maltaisn.msdfgdx;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class KerningTableTest {
+
+    @Test
+    public void put_get() {
+        KerningTable table = new KerningTable();
+        table.put('A', 'V', -3);
+        table.put('T', 'o', 2);
+        assertEquals(-3, table.get('A', 'V'));
+        assertEquals(2, table.get('T', 'o'));
+        assertEquals(0, table.get('V', 'A'));
+        assertEquals(2, table.size());
+
+        table.put('A', 'V', -5);
+        assertEquals(-5, table.get('A', 'V'));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void put_zeroKey() {
+        KerningTable table = new KerningTable();
+        table.put('\0', '\0', 4);
+        table.put('\0', 'a', 1);
+        assertEquals(4, table.get('\0', '\0'));
+        assertEquals(1, table.get('\0', 'a'));
+        assertEquals(2, table.size());
+
+        table.put('\0', '\0', -2);
+        assertEquals(-2, table.get('\0', '\0'));
+        assertEquals(2, table.size());
+
+        int[] pairs = table.toArray();
+        assertEquals(4, pairs.length);
+        assertEquals(0, pairs[0]);
+        assertEquals(-2, pairs[1]);
+
+        table.put('\0', '\0', 0);
+        assertEquals(0, table.get('\0', '\0'));
+        assertEquals(1, table.get('\0', 'a'));
+        assertEquals(1, table.size());
+        table.put('\0', '\0', 0);
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void put_zeroAmountRemoves() {
+        KerningTable table = new KerningTable();
+        table.put('A', 'V', -3);
+        table.put('A', 'V', 0);
+        table.put('T', 'o', 0);
+        assertEquals(0, table.get('A', 'V'));
+        assertEquals(0, table.size());
+        assertEquals(0, table.toArray().length);
+    }
+
+    @Test
+    public void put_remove_collisions() {
+        // Many pairs in a small table, so that clusters are long and removals shift keys back.
+        Random random = new Random(42);
+        KerningTable table = new KerningTable(0);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            char first = (char) (random.nextInt(48));
+            char second = (char) (random.nextInt(48));
+            int amount = random.nextInt(3) == 0 ? 0 : random.nextInt(255) - 127;
+            table.put(first, second, amount);
+            if (amount == 0) {
+                expected.remove(first << 16 | second);
+            } else {
+                expected.put(first << 16 | second, amount);
+            }
+
+            if (i % 500 == 0) {
+                assertTableEquals(expected, table);
+            }
+        }
+        assertTableEquals(expected, table);
+
+        for (int key : expected.keySet()) {
+            table.put((char) (key >>> 16), (char) key, 0);
+        }
+        assertEquals(0, table.size());
+        assertEquals(0, table.get('\0', '\0'));
+    }
+
+    @Test
+    public void put_grows() {
+        KerningTable table = new KerningTable(0);
+        long initialMemory = table.getMemoryUsage();
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            table.put((char) ('A' + i / 32), (char) ('a' + i % 32), i % 100 + 1);
+        }
+        assertEquals(count, table.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 100 + 1, table.get((char) ('A' + i / 32), (char) ('a' + i % 32)));
+        }
+
+        // Load factor is kept under 0.6, with 5 bytes per slot.
+        assertTrue(table.getMemoryUsage() > initialMemory);
+        assertTrue(table.getMemoryUsage() >= 32 + 5 * (long) Math.ceil(count / 0.6));
+    }
+
+    @Test
+    public void clear() {
+        KerningTable table = new KerningTable();
+        table.put('A', 'V', -3);
+        table.put('\0', '\0', 1);
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(0, table.get('A', 'V'));
+        assertEquals(0, table.get('\0', '\0'));
+        assertEquals(0, table.toArray().length);
+    }
+
+    @Test
+    public void fromGlyphs_binaryRoundTrip() throws IOException {
+        FileHandle fontFile = getAsset("font/roboto-32.fnt");
+        MsdfFontData original = new MsdfFontData(fontFile, false);
+        MsdfFontData compacted = new MsdfFontData(fontFile, false);
+        KerningTable table = compacted.compactKernings();
+        assertTrue(table.size() > 0);
+        assertTrue(table.getGlyphKerningMemory() > 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFontFormat.write(compacted, out, fontFile.parent().path());
+        FileHandle binaryFile = fontFile.sibling(fontFile.nameWithoutExtension() + '.' + BinaryFontFormat.EXTENSION);
+        MsdfFontData read = new MsdfFontData(binaryFile, out.toByteArray(), false);
+        assertNull(read.getKerningTable());
+
+        int pairs = 0;
+        for (Glyph[] page : original.glyphs) {
+            if (page == null) continue;
+            for (Glyph first : page) {
+                if (first == null) continue;
+                Glyph compactedFirst = compacted.getGlyph((char) first.id);
+                Glyph readFirst = read.getGlyph((char) first.id);
+                assertNotNull(readFirst);
+                for (char second = 0; second < 0x200; second++) {
+                    int amount = first.getKerning(second);
+                    if (amount != 0) pairs++;
+                    assertEquals(amount, table.get((char) first.id, second));
+                    assertEquals(amount, compacted.getKerning(compactedFirst, second));
+                    assertEquals(amount, readFirst.getKerning(second));
+                }
+            }
+        }
+        assertEquals(table.size(), pairs);
+    }
+
+    private static void assertTableEquals(Map<Integer, Integer> expected, KerningTable table) {
+        assertEquals(expected.size(), table.size());
+        for (char first = 0; first < 48; first++) {
+            for (char second = 0; second < 48; second++) {
+                Integer amount = expected.get(first << 16 | second);
+                assertEquals(amount != null ? amount : 0, table.get(first, second));
+            }
+        }
+        int[] pairs = table.toArray();
+        assertEquals(expected.size() * 2, pairs.length);
+        for (int i = 0; i < pairs.length; i += 2) {
+            assertEquals(expected.get(pairs[i]), Integer.valueOf(pairs[i + 1]));
+        }
+    }
+
+    /**
+     * Returns a file in the test assets directory, given with the {@code msdfgdx.assets} system property.
+     */
+    private static FileHandle getAsset(String path) {
+        String assets = System.getProperty("msdfgdx.assets", "../test/assets");
+        return new FileHandle(new File(assets, path));
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.maltaisn.msdfgdx.widget;
+
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.BitmapFontData;
+import com.badlogic.gdx.graphics.g2d.BitmapFont.Glyph;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Array;
+import com.maltaisn.msdfgdx.FontStyle;
+import com.maltaisn.msdfgdx.MsdfFont;
+import com.maltaisn.msdfgdx.MsdfShader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+
+public class MsdfTextAreaTest {
+
+    private static final float LINE_HEIGHT = 10f;
+
+    private Skin skin;
+    private FontStyle style;
+
+    @Before
+    public void setUp() {
+        // A font without texture, with a glyph for each lowercase letter. The glyphs are added after
+        // creating the font so that no glyph region is set, the U coordinate identifies the glyph.
+        BitmapFontData data = new BitmapFontData();
+        data.lineHeight = LINE_HEIGHT;
+        BitmapFont bitmapFont = new BitmapFont(data, Array.with(new TextureRegion()), true);
+        for (char c = 'a'; c <= 'z'; c++) {
+            Glyph glyph = new Glyph();
+            glyph.id = c;
+            glyph.width = 5;
+            glyph.height = 8;
+            glyph.xadvance = 6;
+            glyph.u = c;
+            data.setGlyph(c, glyph);
+        }
+
+        // The shader is only needed to draw with a sprite batch, it can't be created without a GL context.
+        skin = new Skin() {
+            @Override
+            public <T> T get(String name, Class<T> type) {
+                return type == MsdfShader.class ? null : super.get(name, type);
+            }
+        };
+        skin.add("test", new MsdfFont(bitmapFont, 32f, 4f));
+        style = new FontStyle().setFontName("test").setSize(32f);
+    }
+
+    @Test
+    public void append_afterEmptyLastLine() {
+        MsdfTextArea area = new MsdfTextArea("a\nb\n", skin, style);
+        assertLines(area, "a", "b", "");
+        assertEquals(3, area.getLaidOutLineCount());
+
+        area.append("c\n");
+        assertLines(area, "a", "b", "c", "");
+        assertEquals(4, area.getLaidOutLineCount());
+
+        area.append("\nd");
+        assertLines(area, "a", "b", "c", "", "d");
+    }
+
+    @Test
+    public void append_toLastLine() {
+        MsdfTextArea area = new MsdfTextArea("a\nb", skin, style);
+        assertLines(area, "a", "b");
+
+        area.append("c\nd");
+        assertLines(area, "a", "bc", "d");
+    }
+
+    @Test
+    public void append_dropLines() {
+        MsdfTextArea area = new MsdfTextArea(null, skin, style);
+        area.setMaxLines(4);
+        List<String> lines = new ArrayList<>();
+        lines.add("");
+        for (int i = 0; i < 60; i++) {
+            String line = String.valueOf((char) ('a' + i % 26));
+            area.append(line + '\n');
+
+            // The last line is empty, so the last 3 lines appended are kept.
+            lines.add(lines.size() - 1, line);
+            if (lines.size() > 4) lines.remove(0);
+            assertEquals(Math.max(i - 2, 0), area.getDroppedLineCount());
+            assertLines(area, lines.toArray(new String[0]));
+        }
+    }
+
+    @Test
+    public void setMaxLines_dropLines() {
+        MsdfTextArea area = new MsdfTextArea("a\nb\nc\nd\ne", skin, style);
+        assertLines(area, "a", "b", "c", "d", "e");
+
+        area.setMaxLines(3);
+        assertEquals(2, area.getDroppedLineCount());
+        assertLines(area, "c", "d", "e");
+
+        area.append("f\ng");
+        assertEquals(3, area.getDroppedLineCount());
+        assertLines(area, "d", "ef", "g");
+    }
+
+    /**
+     * Lay out the lines and check that the glyphs drawn are the glyphs of the lines,
+     * on successive lines, and that there are no other lines.
+     */
+    private static void assertLines(MsdfTextArea area, String... lines) {
+        assertEquals(lines.length, area.getLineCount());
+        BitmapFontCache cache = area.buildVisibleLines();
+        int idx = area.getVertexStart(0);
+        float[] vertices = cache.getVertices(0);
+        float firstY = 0f;
+        int firstLine = -1;
+        for (int i = 0; i < lines.length; i++) {
+            for (int j = 0; j < lines[i].length(); j++) {
+                if (firstLine == -1) {
+                    firstLine = i;
+                    firstY = vertices[idx + 1];
+                }
+                String message = "line " + i + ", glyph " + j;
+                assertEquals(message, lines[i].charAt(j), vertices[idx + 3], 0f);
+                assertEquals(message, firstY - (i - firstLine) * LINE_HEIGHT, vertices[idx + 1], 0f);
+                idx += Sprite.SPRITE_SIZE;
+            }
+        }
+        assertEquals(cache.getVertexCount(0), idx);
+    }
+
+}
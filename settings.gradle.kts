@@ -1,4 +1,6 @@
 rootProject.name = "msdf-gdx"
 
 include(":lib")
+include(":benchmarks")
+include(":tools")
 include(":test:test-core", ":test:test-android", ":test:test-desktop")
@@ -0,0 +1,67 @@
+plugins {
+    java
+}
+
+val mainClassName = "com.maltaisn.msdfgdx.tools.FontCompiler"
+
+dependencies {
+    val gdxVersion: String by project
+
+    implementation(project(":lib"))
+
+    implementation("com.badlogicgames.gdx:gdx:$gdxVersion")
+    implementation("com.badlogicgames.gdx:gdx-tools:$gdxVersion")
+
+    compileOnly("org.jetbrains:annotations:23.1.0")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// Compile fonts with: ./gradlew :tools:compileFonts -Pinput=<dir> [-Poutput=<dir>] [-Pbinary]
+tasks.register<JavaExec>("compileFonts") {
+    group = "msdf-gdx"
+    description = "Convert msdf-bmfont XML fonts to LibGDX fonts and merge the SDF alpha channel."
+    mainClass.set(mainClassName)
+    classpath = sourceSets.main.get().runtimeClasspath
+    workingDir = rootProject.projectDir
+
+    val arguments = mutableListOf<String>()
+    findProperty("output")?.let { arguments += listOf("-o", it.toString()) }
+    if (hasProperty("binary")) arguments += "--binary"
+    findProperty("input")?.let { arguments += it.toString() }
+    args(arguments)
+}
+
+// Pack fonts and images in a shared atlas with:
+// ./gradlew :tools:packAtlas -Pinput=<files or dirs, comma separated> -Poutput=<dir> [-PatlasName=<name>]
+tasks.register<JavaExec>("packAtlas") {
+    group = "msdf-gdx"
+    description = "Pack the pages of several fonts and other images into a shared texture atlas."
+    mainClass.set("com.maltaisn.msdfgdx.tools.AtlasPacker")
+    classpath = sourceSets.main.get().runtimeClasspath
+    workingDir = rootProject.projectDir
+
+    val arguments = mutableListOf<String>()
+    findProperty("output")?.let { arguments += listOf("-o", it.toString()) }
+    findProperty("atlasName")?.let { arguments += listOf("-n", it.toString()) }
+    findProperty("input")?.let { arguments += it.toString().split(',') }
+    args(arguments)
+}
+
+tasks.register<Jar>("dist") {
+    archiveClassifier.set("all")
+    from(files(sourceSets.main.get().output.classesDirs))
+    from(configurations.runtimeClasspath.get().map { if (it.isDirectory) it else zipTree(it) })
+
+    // Dependencies have their own manifest and other common files, keep the first one.
+    // Signatures of signed dependencies don't match the merged jar and would prevent it from running.
+    duplicatesStrategy = DuplicatesStrategy.EXCLUDE
+    exclude("META-INF/*.SF", "META-INF/*.DSA", "META-INF/*.RSA")
+
+    manifest {
+        attributes["Main-Class"] = mainClassName
+    }
+}
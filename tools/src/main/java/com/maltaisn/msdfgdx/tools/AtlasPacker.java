@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.tools;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.tools.texturepacker.TexturePacker;
+import com.maltaisn.msdfgdx.DistanceFieldType;
+import com.maltaisn.msdfgdx.MsdfFontData;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+
+/**
+ * Command line tool packing the pages of several fonts and other images, like UI icons, into the pages of
+ * a single texture atlas. Text of different fonts and images from the same atlas page can then be drawn
+ * with {@link com.maltaisn.msdfgdx.MsdfBatch} without flushing, since each font keeps its own glyph size
+ * and distance range in the vertex attributes and the texture size uniform is the size of the atlas page.
+ * <p>
+ * Font pages are packed without rotation or whitespace stripping, and are named after their file name
+ * without extension, which is how {@link com.maltaisn.msdfgdx.MsdfFont#getFontRegionsFromAtlas} finds them.
+ * Pages of SDF fonts without an alpha channel have their distance moved to the alpha channel, since atlas
+ * pages are RGBA. The font files are copied to the output directory and can be loaded with the
+ * {@code atlasName} loader parameter.
+ * <p>
+ * Usage: {@code AtlasPacker -o <output dir> [-n <atlas name>] [--max-size <size>] [--padding <px>] <file or dir>...}.
+ * Inputs are font files ({@code .fnt} or {@code .msdfbin}), images, or directories of images,
+ * whose regions are named by their path relative to the directory, without extension.
+ */
+public final class AtlasPacker {
+
+    @NotNull
+    private final TexturePacker.Settings settings;
+
+    // Images to pack, by region name.
+    private final Map<String, BufferedImage> images = new HashMap<String, BufferedImage>();
+    private final List<File> fontFiles = new ArrayList<File>();
+    private DistanceFieldType fieldType;
+
+
+    /**
+     * @param maxSize The maximum width and height of the atlas pages.
+     * @param padding The padding between regions in pixels. Should be at least 2 if mipmaps are used.
+     */
+    public AtlasPacker(int maxSize, int padding) {
+        settings = new TexturePacker.Settings();
+        // Glyph regions are computed from the page coordinates so pages can't be changed.
+        settings.rotation = false;
+        settings.stripWhitespaceX = false;
+        settings.stripWhitespaceY = false;
+        settings.alias = false;
+        settings.useIndexes = false;
+        settings.premultiplyAlpha = false;
+        settings.paddingX = padding;
+        settings.paddingY = padding;
+        settings.edgePadding = true;
+        settings.duplicatePadding = false;
+        settings.maxWidth = maxSize;
+        settings.maxHeight = maxSize;
+        settings.filterMin = Texture.TextureFilter.Linear;
+        settings.filterMag = Texture.TextureFilter.Linear;
+    }
+
+
+    public static void main(String[] args) {
+        File outputDir = null;
+        String atlasName = "atlas";
+        int maxSize = 2048;
+        int padding = 2;
+        List<File> inputs = new ArrayList<File>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-o") || arg.equals("--output")) {
+                    outputDir = new File(nextArg(args, ++i, arg));
+                } else if (arg.equals("-n") || arg.equals("--name")) {
+                    atlasName = nextArg(args, ++i, arg);
+                } else if (arg.equals("--max-size")) {
+                    maxSize = Integer.parseInt(nextArg(args, ++i, arg));
+                } else if (arg.equals("--padding")) {
+                    padding = Integer.parseInt(nextArg(args, ++i, arg));
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    inputs.add(new File(arg));
+                }
+            }
+            if (outputDir == null) throw new IllegalArgumentException("No output directory.");
+            if (inputs.isEmpty()) throw new IllegalArgumentException("No input files.");
+            if (maxSize <= 0 || padding < 0) throw new IllegalArgumentException("Invalid atlas size or padding.");
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: AtlasPacker -o <output dir> [-n <atlas name>] [--max-size <size>] "
+                    + "[--padding <px>] <file or dir>...");
+            System.exit(2);
+            return;
+        }
+
+        AtlasPacker packer = new AtlasPacker(maxSize, padding);
+        try {
+            for (File input : inputs) {
+                if (input.isDirectory()) {
+                    packer.addImageDirectory(input);
+                } else if (input.getName().endsWith(".fnt") || input.getName().endsWith(".msdfbin")) {
+                    packer.addFont(input);
+                } else {
+                    packer.addImage(input, input.getName().replaceFirst("\\.[^.]*$", ""));
+                }
+            }
+            packer.pack(outputDir, atlasName);
+        } catch (Exception e) {
+            System.err.println("Failed to pack atlas: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println("Packed " + packer.images.size() + " regions into atlas " + atlasName);
+    }
+
+    private static String nextArg(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value for " + option);
+        return args[i];
+    }
+
+    /**
+     * Add the pages of a font to the atlas. All fonts should have the same distance field type,
+     * otherwise the batch still flushes when changing shader between fonts of different types.
+     */
+    public void addFont(@NotNull File fontFile) throws IOException {
+        MsdfFontData data = new MsdfFontData(new FileHandle(fontFile.getAbsoluteFile()), false);
+        DistanceFieldType type = data.getFieldType();
+        if (fieldType != null && type != fieldType) {
+            System.out.println("Font " + fontFile.getName() + " is " + type + " but other fonts are "
+                    + fieldType + ", text will be drawn with a different shader.");
+        }
+        fieldType = type;
+
+        for (String path : data.getImagePaths()) {
+            File pageFile = new File(path);
+            BufferedImage image = read(pageFile);
+            if (type == DistanceFieldType.SDF && !image.getColorModel().hasAlpha()) {
+                image = toAlpha(image);
+            }
+            addImage(image, pageFile.getName().replaceFirst("\\.[^.]*$", ""));
+        }
+        fontFiles.add(fontFile);
+    }
+
+    /**
+     * Add all images in a directory and its subdirectories to the atlas.
+     */
+    public void addImageDirectory(@NotNull File dir) throws IOException {
+        addImageDirectory(dir, "");
+    }
+
+    private void addImageDirectory(File dir, String prefix) throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) throw new IOException("Could not list directory: " + dir);
+        for (File child : children) {
+            String name = child.getName();
+            if (child.isDirectory()) {
+                addImageDirectory(child, prefix + name + "/");
+            } else if (name.endsWith(".png") || name.endsWith(".jpg")) {
+                addImage(child, prefix + name.substring(0, name.lastIndexOf('.')));
+            }
+        }
+    }
+
+    /**
+     * Add an image to the atlas, with a region name.
+     */
+    public void addImage(@NotNull File file, @NotNull String name) throws IOException {
+        addImage(read(file), name);
+    }
+
+    private void addImage(BufferedImage image, String name) throws IOException {
+        if (images.containsKey(name)) {
+            throw new IOException("Duplicate region name " + name
+                    + ", font pages and images must have different file names.");
+        }
+        images.put(name, image);
+    }
+
+    /**
+     * Pack the images to the atlas pages and write the atlas, and copy the font files to the output directory.
+     */
+    public void pack(@NotNull File outputDir, @NotNull String atlasName) throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Could not create output directory: " + outputDir);
+        }
+
+        TexturePacker packer = new TexturePacker(settings);
+        for (Map.Entry<String, BufferedImage> entry : images.entrySet()) {
+            packer.addImage(entry.getValue(), entry.getKey());
+        }
+        packer.pack(outputDir, atlasName);
+
+        for (File fontFile : fontFiles) {
+            File outFile = new File(outputDir, fontFile.getName());
+            if (!fontFile.getCanonicalFile().equals(outFile.getCanonicalFile())) {
+                Files.copy(fontFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of a single channel image with the distance in the alpha channel.
+     */
+    @NotNull
+    private static BufferedImage toAlpha(@NotNull BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+        int shift = image.getColorModel().getComponentSize(0) - 8;
+        int[] distances = raster.getSamples(0, 0, width, height, 0, (int[]) null);
+        for (int i = 0; i < distances.length; i++) {
+            int distance = shift > 0 ? distances[i] >>> shift : distances[i];
+            distances[i] = distance << 24 | 0xFFFFFF;
+        }
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        result.setRGB(0, 0, width, height, distances, 0, width);
+        return result;
+    }
+
+    @NotNull
+    private static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) throw new IOException("Unsupported image format: " + file);
+        return image;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.tools;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+
+/**
+ * Merges a SDF page into the alpha channel of a MSDF page, keeping the colors of the MSDF page,
+ * to produce the MSDFA pages needed for shadows. This replaces the layer mask step done in Gimp.
+ */
+final class ChannelMerger {
+
+    private ChannelMerger() {
+        // No instance
+    }
+
+    /**
+     * Merge the pages and write the result.
+     *
+     * @param msdfFile   The MSDF page.
+     * @param sdfFile    The SDF page, of the same size, whose alpha channel (or red channel if
+     *                   it has no alpha) is used for the alpha channel of the result.
+     * @param outputFile The PNG file to write, can be the same as one of the inputs.
+     */
+    static void merge(@NotNull File msdfFile, @NotNull File sdfFile, @NotNull File outputFile) throws IOException {
+        BufferedImage msdf = read(msdfFile);
+        BufferedImage sdf = read(sdfFile);
+        int width = msdf.getWidth();
+        int height = msdf.getHeight();
+        if (sdf.getWidth() != width || sdf.getHeight() != height) {
+            throw new IOException("SDF page " + sdfFile + " has size " + sdf.getWidth() + "x" + sdf.getHeight()
+                    + " but MSDF page has size " + width + "x" + height
+                    + ". Both must be generated with the same parameters.");
+        }
+
+        // Distances are read from the raster samples directly, since converting a grayscale image
+        // to RGB applies a gamma correction.
+        Raster raster = sdf.getRaster();
+        int band = sdf.getColorModel().hasAlpha() ? raster.getNumBands() - 1 : 0;
+        int shift = sdf.getColorModel().getComponentSize(band) - 8;
+        int[] distances = raster.getSamples(0, 0, width, height, band, (int[]) null);
+
+        int[] colors = msdf.getRGB(0, 0, width, height, null, 0, width);
+        for (int i = 0; i < colors.length; i++) {
+            int distance = shift > 0 ? distances[i] >>> shift : distances[i];
+            colors[i] = distance << 24 | colors[i] & 0xFFFFFF;
+        }
+
+        // Non-premultiplied ARGB image so that colors of transparent pixels are kept.
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        result.setRGB(0, 0, width, height, colors, 0, width);
+        if (!ImageIO.write(result, "png", outputFile)) {
+            throw new IOException("No PNG writer available.");
+        }
+    }
+
+    @NotNull
+    private static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) throw new IOException("Unsupported image format: " + file);
+        return image;
+    }
+
+}
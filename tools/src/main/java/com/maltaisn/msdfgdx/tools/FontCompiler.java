@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.tools;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.maltaisn.msdfgdx.BinaryFontFormat;
+import com.maltaisn.msdfgdx.DistanceFieldType;
+import com.maltaisn.msdfgdx.MsdfFontData;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Command line tool compiling fonts generated by msdf-bmfont-xml to fonts usable by msdf-gdx,
+ * replacing the Python script and the manual Gimp steps described in {@code utils/README.md}.
+ * For each XML {@code .fnt} file:
+ * <ul>
+ * <li>The distance range and the glyph size are validated.</li>
+ * <li>The file is converted to the LibGDX text format, or to the binary format with {@code --binary}.</li>
+ * <li>For MSDF fonts, each page {@code name.png} is merged with the SDF page {@code name-sdf.png}
+ * if there's one, to put the SDF in the alpha channel. Other pages are copied as is.</li>
+ * </ul>
+ * Usage: {@code FontCompiler [-o <output dir>] [--binary] [--threads <count>] <file or dir>...}.
+ * Directories are searched for {@code .fnt} files, non recursively. Fonts are compiled in parallel,
+ * and the exit code is non-zero if any font failed.
+ */
+public final class FontCompiler {
+
+    private static final String FONT_EXTENSION = ".fnt";
+    private static final String SDF_PAGE_SUFFIX = "-sdf";
+
+    @Nullable
+    private final File outputDir;
+    private final boolean binary;
+
+
+    /**
+     * @param outputDir The directory to write the fonts to, or null to write them next to the input files.
+     * @param binary    Whether to write fonts in the binary format.
+     */
+    public FontCompiler(@Nullable File outputDir, boolean binary) {
+        this.outputDir = outputDir;
+        this.binary = binary;
+    }
+
+
+    public static void main(String[] args) {
+        File outputDir = null;
+        boolean binary = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<File> inputs = new ArrayList<File>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-o") || arg.equals("--output")) {
+                    outputDir = new File(nextArg(args, ++i, arg));
+                } else if (arg.equals("--binary")) {
+                    binary = true;
+                } else if (arg.equals("--threads")) {
+                    threads = Integer.parseInt(nextArg(args, ++i, arg));
+                    if (threads <= 0) throw new IllegalArgumentException("Thread count must be greater than zero.");
+                } else if (arg.startsWith("-")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                } else {
+                    inputs.add(new File(arg));
+                }
+            }
+            if (inputs.isEmpty()) {
+                throw new IllegalArgumentException("No input files.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: FontCompiler [-o <output dir>] [--binary] [--threads <count>] <file or dir>...");
+            System.exit(2);
+            return;
+        }
+
+        List<File> files;
+        try {
+            files = findFonts(inputs);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        int failed = new FontCompiler(outputDir, binary).compileAll(files, threads);
+        System.out.println("Compiled " + (files.size() - failed) + " of " + files.size() + " fonts.");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String nextArg(String[] args, int i, String option) {
+        if (i >= args.length) throw new IllegalArgumentException("Missing value for " + option);
+        return args[i];
+    }
+
+    /**
+     * Expand directories to the font files they contain.
+     */
+    @NotNull
+    static List<File> findFonts(@NotNull List<File> inputs) throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                File[] children = input.listFiles();
+                if (children == null) throw new IOException("Could not list directory: " + input);
+                for (File child : children) {
+                    if (child.isFile() && child.getName().endsWith(FONT_EXTENSION)) {
+                        files.add(child);
+                    }
+                }
+            } else if (input.isFile()) {
+                files.add(input);
+            } else {
+                throw new IOException("Input file doesn't exist: " + input);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Compile fonts in parallel and print errors.
+     *
+     * @return The number of fonts that failed to compile.
+     */
+    public int compileAll(@NotNull List<File> files, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())));
+        List<Future<?>> futures = new ArrayList<Future<?>>(files.size());
+        for (final File file : files) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        compile(file);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }));
+        }
+        executor.shutdown();
+
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+                System.out.println("Compiled " + files.get(i));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() instanceof RuntimeException && e.getCause().getCause() != null
+                        ? e.getCause().getCause() : e.getCause();
+                System.err.println("Failed to compile " + files.get(i) + ": " + cause.getMessage());
+                failed++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                return files.size() - i;
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Compile a single XML font file.
+     */
+    public void compile(@NotNull File file) throws IOException {
+        XmlFontConverter converter = new XmlFontConverter(file);
+        converter.validate();
+
+        File inputDir = file.getAbsoluteFile().getParentFile();
+        File outDir = outputDir != null ? outputDir : inputDir;
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Could not create output directory: " + outDir);
+        }
+
+        // Pages
+        DistanceFieldType fieldType = DistanceFieldType.fromValue(converter.getFieldTypeValue());
+        for (String page : converter.getPageFiles()) {
+            File pageFile = new File(inputDir, page);
+            if (!pageFile.isFile()) throw new IOException("Missing page file: " + pageFile);
+            File outPageFile = new File(outDir, page);
+            File parent = outPageFile.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create output directory: " + parent);
+            }
+
+            File sdfPageFile = getSdfPageFile(pageFile);
+            if (fieldType == DistanceFieldType.MSDF && sdfPageFile.isFile()) {
+                ChannelMerger.merge(pageFile, sdfPageFile, outPageFile);
+            } else {
+                if (fieldType == DistanceFieldType.MSDF) {
+                    System.out.println("No SDF page " + sdfPageFile.getName()
+                            + " found, page will have no alpha channel and shadows won't work.");
+                }
+                if (!pageFile.getCanonicalFile().equals(outPageFile.getCanonicalFile())) {
+                    Files.copy(pageFile.toPath(), outPageFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+
+        // Font file
+        String name = file.getName();
+        if (name.endsWith(FONT_EXTENSION)) {
+            name = name.substring(0, name.length() - FONT_EXTENSION.length());
+        }
+        File textFile = new File(outDir, name + FONT_EXTENSION);
+        byte[] content = converter.convert().getBytes(Charset.forName("UTF-8"));
+        if (binary) {
+            // Parse the converted file in memory, page paths are resolved relative to the text file.
+            MsdfFontData data = new MsdfFontData(new FileHandle(textFile), content, false);
+            BinaryFontFormat.write(data, new FileHandle(new File(outDir, name + "." + BinaryFontFormat.EXTENSION)));
+        } else {
+            OutputStream out = new FileOutputStream(textFile);
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the SDF page file for a page, {@code name-sdf.png} for {@code name.png}.
+     */
+    @NotNull
+    private static File getSdfPageFile(@NotNull File pageFile) {
+        String name = pageFile.getName();
+        int dot = name.lastIndexOf('.');
+        String sdfName = dot == -1 ? name + SDF_PAGE_SUFFIX
+                : name.substring(0, dot) + SDF_PAGE_SUFFIX + name.substring(dot);
+        return new File(pageFile.getParentFile(), sdfName);
+    }
+
+}
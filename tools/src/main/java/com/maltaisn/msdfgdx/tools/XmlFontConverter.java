@@ -0,0 +1,253 @@
+/*
+ * Copyright 2019 Nicolas Maltais
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.maltaisn.msdfgdx.tools;
+
+import com.maltaisn.msdfgdx.DistanceFieldType;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+
+/**
+ * Converts a XML {@code .fnt} file produced by msdf-bmfont-xml to the text format read by LibGDX,
+ * adding the {@code distanceRange} and {@code fieldType} attributes read from the distance field tag.
+ * Characters are sorted by id and kernings with an amount of zero are dropped.
+ */
+final class XmlFontConverter {
+
+    // Attributes written for each tag, in order. Values of attributes ending with * are quoted,
+    // the value after = is used if the attribute is missing.
+    private static final String[] INFO_ATTRS = {"face*", "size", "bold", "italic", "charset*", "unicode",
+            "stretchH", "smooth", "aa", "padding", "spacing", "outline=0"};
+    private static final String[] COMMON_ATTRS = {"lineHeight", "base", "scaleW", "scaleH", "pages", "packed",
+            "alphaChnl", "redChnl", "greenChnl", "blueChnl"};
+    private static final String[] PAGE_ATTRS = {"id", "file*"};
+    private static final String[] CHAR_ATTRS = {"id", "x", "y", "width", "height",
+            "xoffset", "yoffset", "xadvance", "page", "chnl"};
+    private static final String[] KERNING_ATTRS = {"first", "second", "amount"};
+
+    @NotNull
+    private final File file;
+    @NotNull
+    private final Element root;
+
+
+    /**
+     * Parse a XML font file.
+     */
+    XmlFontConverter(@NotNull File file) throws IOException {
+        this.file = file;
+        try {
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document document = builder.parse(file);
+            root = document.getDocumentElement();
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Could not create XML parser.", e);
+        } catch (SAXException e) {
+            throw new IOException("Font file isn't valid XML: " + file, e);
+        }
+        if (!root.getTagName().equals("font")) {
+            throw new IOException("Not a XML font file: " + file);
+        }
+    }
+
+
+    /**
+     * Returns the glyph size, the {@code size} attribute of the info tag.
+     */
+    int getGlyphSize() throws IOException {
+        return Math.abs(parseInt(getElement("info"), "size"));
+    }
+
+    /**
+     * Returns the distance range, the {@code distanceRange} attribute of the distance field tag.
+     */
+    int getDistanceRange() throws IOException {
+        Element distanceField = findElement("distanceField");
+        if (distanceField == null || !distanceField.hasAttribute("distanceRange")) {
+            throw new IOException("Missing distanceRange attribute in " + file);
+        }
+        return parseInt(distanceField, "distanceRange");
+    }
+
+    /**
+     * Returns the value of the {@code fieldType} attribute of the distance field tag, or null if not defined.
+     */
+    @Nullable
+    String getFieldTypeValue() {
+        Element distanceField = findElement("distanceField");
+        return distanceField != null && distanceField.hasAttribute("fieldType")
+                ? distanceField.getAttribute("fieldType") : null;
+    }
+
+    /**
+     * Returns the file names of the pages, relative to the font file.
+     */
+    @NotNull
+    List<String> getPageFiles() throws IOException {
+        List<String> files = new ArrayList<String>();
+        NodeList pages = getElement("pages").getElementsByTagName("page");
+        for (int i = 0; i < pages.getLength(); i++) {
+            files.add(((Element) pages.item(i)).getAttribute("file"));
+        }
+        return files;
+    }
+
+    /**
+     * Check that the glyph size and the distance range are defined and greater than zero.
+     */
+    void validate() throws IOException {
+        if (getGlyphSize() <= 0) {
+            throw new IOException("Font size must be greater than zero in " + file);
+        }
+        if (getDistanceRange() <= 0) {
+            throw new IOException("Distance range must be greater than zero in " + file);
+        }
+    }
+
+    /**
+     * Convert the font to the text format.
+     */
+    @NotNull
+    String convert() throws IOException {
+        StringBuilder sb = new StringBuilder(8192);
+
+        appendElement(sb, "info", getElement("info"), INFO_ATTRS);
+        sb.append('\n');
+        appendElement(sb, "common", getElement("common"), COMMON_ATTRS);
+        sb.append(" distanceRange=").append(getDistanceRange());
+        DistanceFieldType fieldType = DistanceFieldType.fromValue(getFieldTypeValue());
+        if (fieldType != DistanceFieldType.MSDF) {
+            sb.append(" fieldType=").append(fieldType.value);
+        }
+
+        NodeList pages = getElement("pages").getElementsByTagName("page");
+        for (int i = 0; i < pages.getLength(); i++) {
+            sb.append('\n');
+            appendElement(sb, "page", (Element) pages.item(i), PAGE_ATTRS);
+        }
+
+        // Characters, sorted by id.
+        NodeList chars = getElement("chars").getElementsByTagName("char");
+        Element[] sortedChars = new Element[chars.getLength()];
+        long[] ids = new long[sortedChars.length];
+        for (int i = 0; i < sortedChars.length; i++) {
+            Element element = (Element) chars.item(i);
+            // Sort by id in the high bits, and keep the element index in the low bits.
+            ids[i] = (long) parseInt(element, "id") << 32 | i;
+            sortedChars[i] = element;
+        }
+        Arrays.sort(ids);
+        sb.append("\nchars count=").append(sortedChars.length);
+        for (long id : ids) {
+            sb.append('\n');
+            appendElement(sb, "char", sortedChars[(int) id], CHAR_ATTRS);
+        }
+
+        // Kernings, only non-zero ones.
+        List<Element> kernings = new ArrayList<Element>();
+        Element kerningsElement = findElement("kernings");
+        if (kerningsElement != null) {
+            NodeList nodes = kerningsElement.getElementsByTagName("kerning");
+            for (int i = 0; i < nodes.getLength(); i++) {
+                Element kerning = (Element) nodes.item(i);
+                if (parseInt(kerning, "amount") != 0) {
+                    kernings.add(kerning);
+                }
+            }
+        }
+        sb.append("\nkernings count=").append(kernings.size());
+        for (Element kerning : kernings) {
+            sb.append('\n');
+            appendElement(sb, "kerning", kerning, KERNING_ATTRS);
+        }
+        sb.append('\n');
+
+        return sb.toString();
+    }
+
+    /**
+     * Append a tag with a list of attributes to include, in the text format.
+     */
+    private void appendElement(StringBuilder sb, String name, Element element, String[] attrs) throws IOException {
+        sb.append(name);
+        for (String attr : attrs) {
+            String defaultValue = null;
+            int equals = attr.indexOf('=');
+            if (equals != -1) {
+                defaultValue = attr.substring(equals + 1);
+                attr = attr.substring(0, equals);
+            }
+            boolean quoted = attr.endsWith("*");
+            if (quoted) {
+                attr = attr.substring(0, attr.length() - 1);
+            }
+
+            String value;
+            if (element.hasAttribute(attr)) {
+                value = element.getAttribute(attr);
+            } else if (defaultValue != null) {
+                value = defaultValue;
+            } else {
+                throw new IOException("Missing " + attr + " attribute in " + name + " tag of " + file);
+            }
+
+            sb.append(' ').append(attr).append('=');
+            if (quoted) {
+                sb.append('"').append(value).append('"');
+            } else {
+                sb.append(value);
+            }
+        }
+    }
+
+    @NotNull
+    private Element getElement(String name) throws IOException {
+        Element element = findElement(name);
+        if (element == null) throw new IOException("Missing " + name + " tag in " + file);
+        return element;
+    }
+
+    @Nullable
+    private Element findElement(String name) {
+        NodeList nodes = root.getElementsByTagName(name);
+        return nodes.getLength() > 0 ? (Element) nodes.item(0) : null;
+    }
+
+    private int parseInt(Element element, String attr) throws IOException {
+        try {
+            return Integer.parseInt(element.getAttribute(attr).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid " + attr + " attribute in " + element.getTagName() + " tag of " + file, e);
+        }
+    }
+
+}